@@ -5,6 +5,7 @@ import ch.qos.logback.classic.Logger;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import me.itzg.helpers.assertcmd.AssertCommand;
+import me.itzg.helpers.batch.BatchCommand;
 import me.itzg.helpers.curseforge.InstallCurseForgeCommand;
 import me.itzg.helpers.errors.ExceptionHandler;
 import me.itzg.helpers.errors.ExitCodeMapper;
@@ -12,6 +13,7 @@ import me.itzg.helpers.fabric.InstallFabricLoaderCommand;
 import me.itzg.helpers.find.FindCommand;
 import me.itzg.helpers.forge.InstallForgeCommand;
 import me.itzg.helpers.get.GetCommand;
+import me.itzg.helpers.http.FetchMetrics;
 import me.itzg.helpers.modrinth.ModrinthCommand;
 import me.itzg.helpers.mvn.MavenDownloadCommand;
 import me.itzg.helpers.patch.PatchCommand;
@@ -23,45 +25,29 @@ import me.itzg.helpers.sync.InterpolateCommand;
 import me.itzg.helpers.sync.MulitCopyCommand;
 import me.itzg.helpers.sync.Sync;
 import me.itzg.helpers.sync.SyncAndInterpolate;
+import me.itzg.helpers.trace.Tracer;
 import me.itzg.helpers.vanillatweaks.VanillaTweaksCommand;
 import me.itzg.helpers.versions.CompareVersionsCommand;
 import me.itzg.helpers.versions.JavaReleaseCommand;
 import org.slf4j.LoggerFactory;
 import picocli.CommandLine;
 import picocli.CommandLine.*;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.Model.OptionSpec;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.nio.file.Path;
 import java.util.Enumeration;
+import java.util.List;
 import java.util.jar.Attributes;
 import java.util.jar.Attributes.Name;
 import java.util.jar.Manifest;
 
 @Command(name = "mc-image-helper",
-    versionProvider = McImageHelper.AppVersionProvider.class,
-    subcommands = {
-        Asciify.class,
-        AssertCommand.class,
-        CompareVersionsCommand.class,
-        FindCommand.class,
-        GetCommand.class,
-        HashCommand.class,
-        InstallCurseForgeCommand.class,
-        InstallFabricLoaderCommand.class,
-        InstallForgeCommand.class,
-        InterpolateCommand.class,
-        JavaReleaseCommand.class,
-        MavenDownloadCommand.class,
-        ModrinthCommand.class,
-        MulitCopyCommand.class,
-        NetworkInterfacesCommand.class,
-        PatchCommand.class,
-        Sync.class,
-        SyncAndInterpolate.class,
-        YamlPathCmd.class,
-        VanillaTweaksCommand.class,
-    }
+    versionProvider = McImageHelper.AppVersionProvider.class
+    // subcommands are registered by newCommandLine
 )
 @Slf4j
 public class McImageHelper {
@@ -69,6 +55,33 @@ public class McImageHelper {
   public static final String OPTION_SPLIT_COMMAS = "\\s*,\\s*";
   public static final String VERSION_REGEX = "\\d+(\\.\\d+)+";
 
+  /**
+   * In the order shown in the usage
+   */
+  static final String[] SUBCOMMAND_NAMES = {
+      "asciify",
+      "assert",
+      "batch",
+      "compare-versions",
+      "find",
+      "get",
+      "hash",
+      "install-curseforge",
+      "install-fabric-loader",
+      "install-forge",
+      "interpolate",
+      "java-release",
+      "maven-download",
+      "modrinth",
+      "mcopy",
+      "network-interfaces",
+      "patch",
+      "sync",
+      "sync-and-interpolate",
+      "yaml-path",
+      "vanillatweaks",
+  };
+
   @SuppressWarnings("unused")
   @CommandLine.Option(names = {"-h",
       "--help"}, usageHelp = true, description = "Show this usage and exit")
@@ -99,10 +112,6 @@ public class McImageHelper {
     private static void setLevel(boolean enabled, Level level) {
       ((Logger) LoggerFactory.getLogger("me.itzg.helpers")).setLevel(
           enabled ? level : Level.INFO);
-      if (Level.TRACE.isGreaterOrEqual(level)) {
-        ((Logger) LoggerFactory.getLogger("org.apache.hc.client5.http")).setLevel(
-            enabled ? level : Level.INFO);
-      }
     }
 
   }
@@ -112,6 +121,18 @@ public class McImageHelper {
   @Getter
   boolean silent;
 
+  @Option(names = "--fetch-metrics-file", defaultValue = "${env:FETCH_METRICS_FILE}", paramLabel = "FILE",
+      description = "When set, metrics of HTTP requests made by the command are written to this file once it completes")
+  Path fetchMetricsFile;
+
+  @Option(names = "--fetch-metrics-format", defaultValue = "${env:FETCH_METRICS_FORMAT:-json}",
+      description = "Valid values: ${COMPLETION-CANDIDATES}\nDefault: ${DEFAULT-VALUE}")
+  FetchMetrics.Format fetchMetricsFormat;
+
+  @Option(names = "--trace-file", defaultValue = "${env:HELPER_TRACE_FILE}", paramLabel = "FILE",
+      description = "When set, spans of the phases of the command are written to this file in Chrome trace format")
+  Path traceFile;
+
   private static String version;
 
   public static void main(String[] args) {
@@ -123,13 +144,136 @@ public class McImageHelper {
       System.exit(1);
     }
 
-    System.exit(
-        new CommandLine(rootCommand)
-            .setExitCodeExceptionMapper(new ExitCodeMapper())
-            .setExecutionExceptionHandler(new ExceptionHandler(rootCommand))
-            .setCaseInsensitiveEnumValuesAllowed(true)
-            .execute(args)
-    );
+    final Tracer.Span parseSpan = Tracer.span("startup", "command line parsing");
+    final int exitCode = newCommandLine(rootCommand, args)
+        .setExecutionStrategy(parseResult -> {
+          // enabled here rather than by the option so that parsing has no side effects, such as
+          // for a batch line that is rejected for giving --trace-file
+          if (rootCommand.traceFile != null) {
+            Tracer.enable();
+          }
+          parseSpan.close();
+          return executeTraced(parseResult);
+        })
+        .execute(args);
+
+    rootCommand.writeFetchMetrics();
+    rootCommand.writeTrace();
+
+    System.exit(exitCode);
+  }
+
+  /**
+   * Creates the command line for a root command, such as for each command of a batch.
+   * <p>
+   * Only the subcommand invoked by the given arguments is registered, when one is, since picocli
+   * introspects the options of each registered subcommand, which loads their classes and dependencies.
+   * Otherwise, all subcommands are registered for the usage.
+   * </p>
+   */
+  public static CommandLine newCommandLine(McImageHelper rootCommand, String[] args) {
+    final CommandLine commandLine = new CommandLine(rootCommand);
+
+    final String invoked = findSubcommandName(commandLine.getCommandSpec(), args);
+    if (invoked != null && subcommandClass(invoked) != null) {
+      commandLine.addSubcommand(invoked, subcommandClass(invoked));
+    }
+    else {
+      for (final String name : SUBCOMMAND_NAMES) {
+        commandLine.addSubcommand(name, subcommandClass(name));
+      }
+    }
+
+    // applied after adding subcommands so that they're propagated to them
+    return commandLine
+        .setExitCodeExceptionMapper(new ExitCodeMapper())
+        .setExecutionExceptionHandler(new ExceptionHandler(rootCommand))
+        .setCaseInsensitiveEnumValuesAllowed(true);
+  }
+
+  /**
+   * @return the first positional argument, skipping root options and their parameters, or null if none
+   */
+  static String findSubcommandName(CommandSpec rootSpec, String[] args) {
+    for (int i = 0; i < args.length; i++) {
+      final String arg = args[i];
+      if (arg.startsWith("-")) {
+        if (!arg.contains("=")) {
+          final OptionSpec option = rootSpec.findOption(arg);
+          if (option != null && option.arity().min() > 0) {
+            // skip the option's parameter
+            ++i;
+          }
+        }
+      }
+      else {
+        return arg;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Resolves the class of a subcommand only when needed, since each class literal is loaded
+   * only once its case is reached.
+   * @return null if not a known subcommand
+   */
+  static Class<?> subcommandClass(String name) {
+    switch (name) {
+      case "asciify": return Asciify.class;
+      case "assert": return AssertCommand.class;
+      case "batch": return BatchCommand.class;
+      case "compare-versions": return CompareVersionsCommand.class;
+      case "find": return FindCommand.class;
+      case "get": return GetCommand.class;
+      case "hash": return HashCommand.class;
+      case "install-curseforge": return InstallCurseForgeCommand.class;
+      case "install-fabric-loader": return InstallFabricLoaderCommand.class;
+      case "install-forge": return InstallForgeCommand.class;
+      case "interpolate": return InterpolateCommand.class;
+      case "java-release": return JavaReleaseCommand.class;
+      case "maven-download": return MavenDownloadCommand.class;
+      case "modrinth": return ModrinthCommand.class;
+      case "mcopy": return MulitCopyCommand.class;
+      case "network-interfaces": return NetworkInterfacesCommand.class;
+      case "patch": return PatchCommand.class;
+      case "sync": return Sync.class;
+      case "sync-and-interpolate": return SyncAndInterpolate.class;
+      case "yaml-path": return YamlPathCmd.class;
+      case "vanillatweaks": return VanillaTweaksCommand.class;
+      default: return null;
+    }
+  }
+
+  /**
+   * Executes the last subcommand within a span named after it
+   */
+  public static int executeTraced(ParseResult parseResult) {
+    final List<CommandLine> commands = parseResult.asCommandLineList();
+    try (Tracer.Span ignored = Tracer.span("command",
+        commands.get(commands.size() - 1).getCommandName())) {
+      return new RunLast().execute(parseResult);
+    }
+  }
+
+  private void writeTrace() {
+    if (traceFile != null) {
+      try {
+        Tracer.write(traceFile);
+      } catch (IOException e) {
+        log.warn("Failed to write trace to {}", traceFile, e);
+      }
+    }
+  }
+
+  private void writeFetchMetrics() {
+    if (fetchMetricsFile != null) {
+      try {
+        FetchMetrics.global().write(fetchMetricsFile, fetchMetricsFormat);
+      } catch (IOException e) {
+        log.warn("Failed to write fetch metrics to {}", fetchMetricsFile, e);
+      }
+    }
   }
 
   private static String loadVersion() throws IOException {
@@ -0,0 +1,161 @@
+package me.itzg.helpers.batch;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+import me.itzg.helpers.McImageHelper;
+import me.itzg.helpers.errors.GenericException;
+import me.itzg.helpers.errors.InvalidParameterException;
+import me.itzg.helpers.http.Fetch;
+import me.itzg.helpers.http.SharedFetchArgs;
+import picocli.CommandLine;
+import picocli.CommandLine.ArgGroup;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.ExitCode;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.ParameterException;
+import picocli.CommandLine.Parameters;
+import reactor.core.Disposable;
+
+@Command(name = "batch",
+    description = "Runs the subcommands given one per line of a script within this process, which avoids"
+        + " the startup time of running each separately."
+        + " Lines are split into arguments like a shell, but without expansion, and lines starting with # are ignored."
+        + " Exits with the first non-zero exit code of a subcommand."
+        + " Options that apply to the whole process, such as --trace-file and --fetch-metrics-file,"
+        + " must be given before batch rather than on a line."
+)
+@Slf4j
+public class BatchCommand implements Callable<Integer> {
+
+    /**
+     * Root options that are only acted upon once the process completes, so would be silently ignored on a line
+     */
+    private static final List<String> PROCESS_OPTIONS = Arrays.asList(
+        "--trace-file", "--fetch-metrics-file", "--fetch-metrics-format"
+    );
+
+    @SuppressWarnings("unused")
+    @Option(names = {"-h", "--help"}, usageHelp = true)
+    boolean help;
+
+    @Option(names = "--fail-fast", defaultValue = "${env:BATCH_FAIL_FAST:-false}",
+        description = "Stop running the remaining subcommands after one fails")
+    boolean failFast;
+
+    @Option(names = "--exit-codes-file", paramLabel = "FILE",
+        description = "When set, the line number and exit code of each subcommand that ran is written to this file,"
+            + " separated by a space")
+    Path exitCodesFile;
+
+    @ArgGroup(exclusive = false)
+    SharedFetchArgs sharedFetchArgs = new SharedFetchArgs();
+
+    @Parameters(arity = "0..1", paramLabel = "SCRIPT",
+        description = "File containing the subcommands to run, one per line. If absent or -, stdin is read,"
+            + " in which case subcommands that read stdin cannot be used.")
+    String script;
+
+    @Override
+    public Integer call() throws Exception {
+        final List<String> lines = readScript();
+
+        int result = ExitCode.OK;
+        // the connection pool is the most costly part of HTTP access to set up, so it is re-used
+        // by the shared fetch of each subcommand
+        final Disposable sharedConnections = Fetch.shareConnections(sharedFetchArgs.options());
+        try (PrintWriter exitCodesOut = exitCodesFile != null ?
+            new PrintWriter(Files.newBufferedWriter(exitCodesFile, StandardCharsets.UTF_8)) : null) {
+
+            for (int i = 0; i < lines.size(); i++) {
+                final int lineNumber = i + 1;
+                int exitCode;
+                try {
+                    final List<String> args = ScriptLineParser.parse(lines.get(i));
+                    if (args.isEmpty()) {
+                        continue;
+                    }
+
+                    exitCode = runLine(lineNumber, args);
+                } catch (InvalidParameterException e) {
+                    log.error("Line {} of batch is invalid: {}", lineNumber, e.getMessage());
+                    exitCode = ExitCode.USAGE;
+                }
+                if (exitCodesOut != null) {
+                    exitCodesOut.println(lineNumber + " " + exitCode);
+                    exitCodesOut.flush();
+                }
+
+                if (exitCode != ExitCode.OK) {
+                    log.debug("Line {} of batch exited with {}", lineNumber, exitCode);
+                    if (result == ExitCode.OK) {
+                        result = exitCode;
+                    }
+                    if (failFast) {
+                        log.warn("Stopping batch since line {} failed with exit code {}", lineNumber, exitCode);
+                        break;
+                    }
+                }
+            }
+        } finally {
+            sharedConnections.dispose();
+        }
+
+        return result;
+    }
+
+    private int runLine(int lineNumber, List<String> args) {
+        log.debug("Running line {} of batch: {}", lineNumber, args);
+
+        // a new root command per line so that no option values carry over from previous lines
+        final String[] argsArray = args.toArray(new String[0]);
+        final CommandLine commandLine = McImageHelper.newCommandLine(new McImageHelper(), argsArray)
+            .setExecutionStrategy(parseResult -> {
+                final List<CommandLine> commands = parseResult.asCommandLineList();
+                if (commands.get(commands.size() - 1).getCommand() instanceof BatchCommand) {
+                    throw new ParameterException(parseResult.commandSpec().commandLine(),
+                        "Line " + lineNumber + " of batch cannot be another batch"
+                    );
+                }
+                for (final String option : PROCESS_OPTIONS) {
+                    if (parseResult.hasMatchedOption(option)) {
+                        throw new ParameterException(parseResult.commandSpec().commandLine(),
+                            "Line " + lineNumber + " of batch cannot use " + option
+                                + " since it applies to the whole batch. Give it before the batch subcommand instead."
+                        );
+                    }
+                }
+                return McImageHelper.executeTraced(parseResult);
+            });
+        return commandLine.execute(argsArray);
+    }
+
+    private List<String> readScript() throws IOException {
+        if (script == null || script.equals("-")) {
+            // not closed since stdin belongs to the process
+            final BufferedReader reader = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+            return reader.lines().collect(Collectors.toList());
+        }
+        else {
+            final Path scriptFile = Paths.get(script);
+            if (!Files.exists(scriptFile)) {
+                throw new InvalidParameterException("The batch script " + script + " does not exist");
+            }
+            try {
+                return Files.readAllLines(scriptFile, StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                throw new GenericException("Failed to read batch script " + script, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package me.itzg.helpers.batch;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import me.itzg.helpers.errors.InvalidParameterException;
+
+/**
+ * Splits a line of a batch script into arguments similar to a POSIX shell, but without any expansion.
+ * Supports single quotes, double quotes where backslash escapes {@code "} and {@code \}, backslash escapes
+ * outside of quotes, and lines or trailing content starting with {@code #} as comments.
+ */
+class ScriptLineParser {
+
+    private ScriptLineParser() {
+    }
+
+    /**
+     * @return empty list if the line is blank or only a comment
+     */
+    static List<String> parse(String line) {
+        final List<String> args = new ArrayList<>();
+        final StringBuilder current = new StringBuilder();
+        boolean inArg = false;
+        char quote = 0;
+
+        for (int i = 0; i < line.length(); i++) {
+            final char c = line.charAt(i);
+
+            if (quote == '\'') {
+                if (c == '\'') {
+                    quote = 0;
+                }
+                else {
+                    current.append(c);
+                }
+            }
+            else if (quote == '"') {
+                if (c == '"') {
+                    quote = 0;
+                }
+                else if (c == '\\' && i + 1 < line.length()
+                    && (line.charAt(i + 1) == '"' || line.charAt(i + 1) == '\\')) {
+                    current.append(line.charAt(++i));
+                }
+                else {
+                    current.append(c);
+                }
+            }
+            else if (Character.isWhitespace(c)) {
+                if (inArg) {
+                    args.add(current.toString());
+                    current.setLength(0);
+                    inArg = false;
+                }
+            }
+            else if (c == '#' && !inArg) {
+                break;
+            }
+            else {
+                inArg = true;
+                if (c == '\'' || c == '"') {
+                    quote = c;
+                }
+                else if (c == '\\' && i + 1 < line.length()) {
+                    current.append(line.charAt(++i));
+                }
+                else {
+                    current.append(c);
+                }
+            }
+        }
+
+        if (quote != 0) {
+            throw new InvalidParameterException("Unterminated quote in: " + line);
+        }
+        if (inArg) {
+            args.add(current.toString());
+        }
+        return args.isEmpty() ? Collections.emptyList() : args;
+    }
+}
@@ -0,0 +1,29 @@
+package me.itzg.helpers.cache;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Caches the results of API lookups, keyed by an operation name and the keys passed to that operation.
+ */
+public interface ApiCaching extends AutoCloseable {
+
+    /**
+     * @param operation identifies the API operation, such as "getModInfo"
+     * @param resolver invoked when there is no cached value or the cached value has expired
+     * @param keys the parameters that identify the requested content of the operation
+     */
+    <R> Mono<R> cache(String operation, Class<R> returnType, Mono<R> resolver, Object... keys);
+
+    /**
+     * @return the cached value or empty if not present or expired
+     */
+    <R> Mono<R> lookup(String operation, Class<R> returnType, Object... keys);
+
+    /**
+     * @return the given value after it has been stored
+     */
+    <R> Mono<R> store(String operation, R value, Object... keys);
+
+    @Override
+    void close();
+}
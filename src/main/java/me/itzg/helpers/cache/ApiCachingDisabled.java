@@ -0,0 +1,26 @@
+package me.itzg.helpers.cache;
+
+import reactor.core.publisher.Mono;
+
+public class ApiCachingDisabled implements ApiCaching {
+
+    @Override
+    public <R> Mono<R> cache(String operation, Class<R> returnType, Mono<R> resolver, Object... keys) {
+        return resolver;
+    }
+
+    @Override
+    public <R> Mono<R> lookup(String operation, Class<R> returnType, Object... keys) {
+        return Mono.empty();
+    }
+
+    @Override
+    public <R> Mono<R> store(String operation, R value, Object... keys) {
+        return Mono.just(value);
+    }
+
+    @Override
+    public void close() {
+
+    }
+}
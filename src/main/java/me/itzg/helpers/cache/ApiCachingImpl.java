@@ -0,0 +1,143 @@
+package me.itzg.helpers.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+import me.itzg.helpers.json.ObjectMappers;
+import org.apache.commons.codec.digest.DigestUtils;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Stores each cached response as a JSON file named by the hash of its keys under a directory per operation.
+ */
+@Slf4j
+public class ApiCachingImpl implements ApiCaching {
+
+    private static final String SUFFIX = ".json";
+
+    private final Path cacheDir;
+    private final Duration ttl;
+    private final Set<String> immutableOperations = new HashSet<>();
+    private final ObjectMapper objectMapper = ObjectMappers.defaultMapper();
+
+    /**
+     * @param ttl how long the results of mutable operations are retained
+     */
+    public ApiCachingImpl(Path cacheDir, Duration ttl) {
+        this.cacheDir = cacheDir;
+        this.ttl = ttl;
+    }
+
+    /**
+     * Declares operations with results that never change once looked up, such as a file by ID
+     */
+    public ApiCachingImpl withImmutableOperations(String... operations) {
+        immutableOperations.addAll(Arrays.asList(operations));
+        return this;
+    }
+
+    @Override
+    public <R> Mono<R> cache(String operation, Class<R> returnType, Mono<R> resolver, Object... keys) {
+        return lookup(operation, returnType, keys)
+            .switchIfEmpty(Mono.defer(() ->
+                resolver
+                    .flatMap(value -> store(operation, value, keys))
+            ));
+    }
+
+    @Override
+    public <R> Mono<R> lookup(String operation, Class<R> returnType, Object... keys) {
+        return Mono.fromCallable(() -> load(operation, returnType, keys))
+            .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    @Override
+    public <R> Mono<R> store(String operation, R value, Object... keys) {
+        return Mono.fromCallable(() -> {
+                save(operation, value, keys);
+                return value;
+            })
+            .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private <R> R load(String operation, Class<R> returnType, Object[] keys) {
+        final Path entryPath = resolveEntryPath(operation, keys);
+        if (!Files.exists(entryPath)) {
+            log.trace("Cache miss for operation={} keys={}", operation, keys);
+            return null;
+        }
+
+        try {
+            final CacheEntry entry = objectMapper.readValue(entryPath.toFile(), CacheEntry.class);
+            if (entry.getExpiresAt() != null && entry.getExpiresAt().isBefore(Instant.now())) {
+                log.debug("Cached entry for operation={} keys={} expired at {}",
+                    operation, entry.getKeys(), entry.getExpiresAt());
+                return null;
+            }
+
+            log.debug("Using cached entry for operation={} keys={}", operation, entry.getKeys());
+            return objectMapper.treeToValue(entry.getContent(), returnType);
+        } catch (IOException e) {
+            log.warn("Unable to read cached entry from {}, so ignoring it", entryPath, e);
+            return null;
+        }
+    }
+
+    private void save(String operation, Object value, Object[] keys) {
+        final Path entryPath = resolveEntryPath(operation, keys);
+
+        final Instant now = Instant.now();
+        final CacheEntry entry = new CacheEntry()
+            .setOperation(operation)
+            .setKeys(joinKeys(keys))
+            .setCachedAt(now)
+            .setExpiresAt(immutableOperations.contains(operation) ? null : now.plus(ttl))
+            .setContent(objectMapper.valueToTree(value));
+
+        Path tempFile = null;
+        try {
+            Files.createDirectories(entryPath.getParent());
+            // write to a temp file and then move into place so concurrent readers never see a partial entry
+            tempFile = Files.createTempFile(entryPath.getParent(), "entry", ".tmp");
+            objectMapper.writeValue(tempFile.toFile(), entry);
+            Files.move(tempFile, entryPath, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            // caching is only an optimization, so the value is still used
+            log.warn("Unable to write cache entry to {}, so continuing without caching it", entryPath, e);
+            if (tempFile != null) {
+                try {
+                    Files.deleteIfExists(tempFile);
+                } catch (IOException ex) {
+                    log.debug("Unable to delete temporary cache file {}", tempFile, ex);
+                }
+            }
+        }
+    }
+
+    private Path resolveEntryPath(String operation, Object[] keys) {
+        return cacheDir
+            .resolve(operation)
+            .resolve(DigestUtils.sha1Hex(joinKeys(keys)) + SUFFIX);
+    }
+
+    private static String joinKeys(Object[] keys) {
+        return Arrays.stream(keys)
+            .map(String::valueOf)
+            .collect(Collectors.joining(","));
+    }
+
+    @Override
+    public void close() {
+
+    }
+}
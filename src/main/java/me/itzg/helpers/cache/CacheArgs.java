@@ -0,0 +1,54 @@
+package me.itzg.helpers.cache;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import lombok.Getter;
+import lombok.ToString;
+import picocli.CommandLine.Option;
+
+/**
+ * Usage:
+ * <pre>
+ * {@code
+ *     @ArgGroup(exclusive = false)
+ *     CacheArgs cacheArgs = new CacheArgs();
+ * }
+ * </pre>
+ */
+@Getter
+@ToString
+public class CacheArgs {
+
+    public static final Duration DEFAULT_TTL = Duration.ofDays(2);
+
+    @Option(names = "--disable-api-caching", defaultValue = "${env:API_CACHING_DISABLED:-false}",
+        description = "Disables the on-disk caching of API responses"
+    )
+    boolean disabled;
+
+    @Option(names = "--api-cache-dir", defaultValue = "${env:API_CACHE_DIR}", paramLabel = "DIR",
+        description = "Directory where API responses are cached. Default is .cache within the output directory"
+    )
+    Path cacheDir;
+
+    @Option(names = "--api-cache-ttl", defaultValue = "${env:API_CACHE_TTL:-P2D}",
+        description = "How long cached API responses that can change, such as searches, are retained."
+            + " Parsed from ISO-8601 format. Default: ${DEFAULT-VALUE}"
+    )
+    Duration ttl;
+
+    /**
+     * @param defaultParentDir the directory in which to place a ".cache" directory when {@link #cacheDir} not set
+     * @param immutableOperations operations with results that never change once looked up
+     */
+    public ApiCaching create(Path defaultParentDir, String namespace, String... immutableOperations) {
+        if (disabled) {
+            return new ApiCachingDisabled();
+        }
+        return new ApiCachingImpl(
+            (cacheDir != null ? cacheDir : defaultParentDir.resolve(".cache")).resolve(namespace),
+            ttl != null ? ttl : DEFAULT_TTL
+        )
+            .withImmutableOperations(immutableOperations);
+    }
+}
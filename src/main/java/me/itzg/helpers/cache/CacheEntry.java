@@ -0,0 +1,22 @@
+package me.itzg.helpers.cache;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import java.time.Instant;
+import lombok.Data;
+
+@Data
+public class CacheEntry {
+
+    private String operation;
+
+    private String keys;
+
+    private Instant cachedAt;
+
+    /**
+     * Null if the content never expires
+     */
+    private Instant expiresAt;
+
+    private JsonNode content;
+}
@@ -2,12 +2,16 @@ package me.itzg.helpers.curseforge;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
+import me.itzg.helpers.cache.ApiCaching;
 import me.itzg.helpers.curseforge.model.*;
 import me.itzg.helpers.errors.GenericException;
 import me.itzg.helpers.errors.InvalidParameterException;
+import me.itzg.helpers.files.DigestSink;
 import me.itzg.helpers.http.*;
 import me.itzg.helpers.json.ObjectMappers;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Schedulers;
 
@@ -15,26 +19,76 @@ import java.io.IOException;
 import java.net.URI;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Slf4j
 public class CurseForgeApiClient implements AutoCloseable {
     private static final String API_KEY_HEADER = "x-api-key";
+    /**
+     * Max number of IDs to include in each bulk lookup request
+     */
+    private static final int BULK_CHUNK_SIZE = 100;
+
+    static final String OP_GET_CATEGORIES = "getCategories";
+    static final String OP_SEARCH_MODS = "searchMods";
+    static final String OP_GET_MOD_INFO = "getModInfo";
+    static final String OP_GET_MOD_FILE_INFO = "getModFileInfo";
+    /**
+     * The content of files, looked up by ID, never changes
+     */
+    static final String[] IMMUTABLE_OPERATIONS = {OP_GET_MOD_FILE_INFO};
+    /**
+     * Where mod files are downloaded from
+     */
+    static final URI DOWNLOADS_ORIGIN = URI.create("https://edge.forgecdn.net");
 
     private final SharedFetch preparedFetch;
     private final UriBuilder uriBuilder;
+    private final String apiBaseUrl;
     private final String gameId;
+    private final ApiCaching apiCaching;
+    @Getter
+    private final int metadataConcurrency;
+    @Getter
+    private final int downloadConcurrency;
+    private final URI downloadsOrigin;
 
-    public CurseForgeApiClient(String apiBaseUrl, String apiKey, SharedFetch.Options sharedFetchOptions, String gameId
+    public CurseForgeApiClient(String apiBaseUrl, String apiKey, SharedFetch.Options sharedFetchOptions, String gameId,
+        ApiCaching apiCaching
     ) {
+        this(apiBaseUrl, apiKey, sharedFetchOptions, gameId, apiCaching, DOWNLOADS_ORIGIN);
+    }
+
+    CurseForgeApiClient(String apiBaseUrl, String apiKey, SharedFetch.Options sharedFetchOptions, String gameId,
+        ApiCaching apiCaching, URI downloadsOrigin
+    ) {
+        final SharedFetch.Options options =
+            sharedFetchOptions != null ? sharedFetchOptions : SharedFetch.Options.builder().build();
         this.preparedFetch = Fetch.sharedFetch("install-curseforge",
-            (sharedFetchOptions != null ? sharedFetchOptions : SharedFetch.Options.builder().build())
-                .withHeader(API_KEY_HEADER, apiKey)
+            options.withHeader(API_KEY_HEADER, apiKey)
         );
+        this.metadataConcurrency = Math.max(1, options.getMetadataConcurrency());
+        this.downloadConcurrency = Math.max(1, options.getDownloadConcurrency());
         this.uriBuilder = UriBuilder.withBaseUrl(apiBaseUrl);
+        this.apiBaseUrl = apiBaseUrl;
         this.gameId = gameId;
+        this.apiCaching = apiCaching;
+        this.downloadsOrigin = downloadsOrigin;
+    }
+
+    /**
+     * Opens connections to the API and download hosts in the background, when enabled by the shared fetch options
+     */
+    public void prewarmConnections() {
+        preparedFetch.prewarm(URI.create(apiBaseUrl), downloadsOrigin);
     }
 
     @Override
@@ -43,11 +97,14 @@ public class CurseForgeApiClient implements AutoCloseable {
     }
 
     public CategoryInfo loadCategoryInfo(Set<String> applicableClassIdSlugs, String categorySlug) {
-        return preparedFetch
-            // get only categories that are classes, like mc-mods
-            .fetch(uriBuilder.resolve("/categories?gameId={gameId}&classesOnly=true", gameId))
-            .toObject(GetCategoriesResponse.class)
-            .assemble()
+        return apiCaching.cache(OP_GET_CATEGORIES, GetCategoriesResponse.class,
+                preparedFetch
+                    // get only categories that are classes, like mc-mods
+                    .fetch(uriBuilder.resolve("/categories?gameId={gameId}&classesOnly=true", gameId))
+                    .toObject(GetCategoriesResponse.class)
+                    .assemble(),
+                gameId
+            )
             .map(resp -> {
                     final Map<Integer, Category> contentClassIds = new HashMap<>();
                     Integer modpackClassId = null;
@@ -72,13 +129,21 @@ public class CurseForgeApiClient implements AutoCloseable {
     }
 
     public CurseForgeMod searchMod(String slug, CategoryInfo categoryInfo) {
-        final ModsSearchResponse searchResponse = preparedFetch.fetch(
-                uriBuilder.resolve("/mods/search?gameId={gameId}&slug={slug}&classId={classId}",
-                    gameId, slug, categoryInfo.modpackClassId
-                )
+        final ModsSearchResponse searchResponse = apiCaching.cache(OP_SEARCH_MODS, ModsSearchResponse.class,
+                preparedFetch.fetch(
+                        uriBuilder.resolve("/mods/search?gameId={gameId}&slug={slug}&classId={classId}",
+                            gameId, slug, categoryInfo.modpackClassId
+                        )
+                    )
+                    .toObject(ModsSearchResponse.class)
+                    .assemble(),
+                gameId, slug, categoryInfo.modpackClassId
             )
-            .toObject(ModsSearchResponse.class)
-            .execute();
+            .block();
+
+        if (searchResponse == null) {
+            throw new GenericException("Search response was empty for slug=" + slug);
+        }
 
         if (searchResponse.getData() == null || searchResponse.getData().isEmpty()) {
             throw new GenericException("No mods found with slug={}" + slug);
@@ -122,12 +187,15 @@ public class CurseForgeApiClient implements AutoCloseable {
     public Mono<Integer> slugToId(CategoryInfo categoryInfo,
         String slug
     ) {
-        return preparedFetch
-            .fetch(
-                uriBuilder.resolve("/mods/search?gameId={gameId}&slug={slug}", gameId, slug)
+        return apiCaching.cache(OP_SEARCH_MODS, ModsSearchResponse.class,
+                preparedFetch
+                    .fetch(
+                        uriBuilder.resolve("/mods/search?gameId={gameId}&slug={slug}", gameId, slug)
+                    )
+                    .toObject(ModsSearchResponse.class)
+                    .assemble(),
+                gameId, slug
             )
-            .toObject(ModsSearchResponse.class)
-            .assemble()
             .map(resp ->
                 resp.getData().stream()
                     .filter(curseForgeMod -> categoryInfo.contentClassIds.containsKey(curseForgeMod.getClassId()))
@@ -142,12 +210,15 @@ public class CurseForgeApiClient implements AutoCloseable {
     ) {
         log.debug("Getting mod metadata for {}", projectID);
 
-        return preparedFetch.fetch(
-                uriBuilder.resolve("/mods/{modId}", projectID)
-            )
-            .toObject(GetModResponse.class)
-            .assemble()
-            .map(GetModResponse::getData);
+        return apiCaching.cache(OP_GET_MOD_INFO, CurseForgeMod.class,
+            preparedFetch.fetch(
+                    uriBuilder.resolve("/mods/{modId}", projectID)
+                )
+                .toObject(GetModResponse.class)
+                .assemble()
+                .map(GetModResponse::getData),
+            projectID
+        );
     }
 
     public Mono<CurseForgeFile> getModFileInfo(
@@ -155,32 +226,112 @@ public class CurseForgeApiClient implements AutoCloseable {
     ) {
         log.debug("Getting mod file metadata for {}:{}", projectID, fileID);
 
-        return preparedFetch.fetch(
-                uriBuilder.resolve("/mods/{modId}/files/{fileId}", projectID, fileID)
-            )
-            .toObject(GetModFileResponse.class)
-            .assemble()
-            .onErrorMap(FailedRequestException.class::isInstance, e -> {
-                final FailedRequestException fre = (FailedRequestException) e;
-                if (fre.getStatusCode() == 400) {
-                    if (isNotFoundResponse(fre.getBody())) {
-                        return new InvalidParameterException("Requested file not found for modpack", e);
+        // keyed only by file ID since that is unique and allows for sharing entries with bulk lookups
+        return apiCaching.cache(OP_GET_MOD_FILE_INFO, CurseForgeFile.class,
+            preparedFetch.fetch(
+                    uriBuilder.resolve("/mods/{modId}/files/{fileId}", projectID, fileID)
+                )
+                .toObject(GetModFileResponse.class)
+                .assemble()
+                .onErrorMap(FailedRequestException.class::isInstance, e -> {
+                    final FailedRequestException fre = (FailedRequestException) e;
+                    if (fre.getStatusCode() == 400) {
+                        if (isNotFoundResponse(fre.getBody())) {
+                            return new InvalidParameterException("Requested file not found for modpack", e);
+                        }
                     }
-                }
-                return e;
-            })
-            .map(GetModFileResponse::getData);
+                    return e;
+                })
+                .map(GetModFileResponse::getData),
+            fileID
+        );
+    }
+
+    /**
+     * Bulk retrieval of mod metadata via chunked requests. Cached entries are used where available.
+     * @return mods keyed by mod ID. Any IDs not known by the API will be absent.
+     */
+    public Mono<Map<Integer, CurseForgeMod>> getModsInfo(Collection<Integer> modIds) {
+        return bulkLookup(OP_GET_MOD_INFO, CurseForgeMod.class, modIds, CurseForgeMod::getId,
+            chunk -> {
+                log.debug("Getting mod metadata for {} mods", chunk.size());
+
+                return preparedFetch.fetch(
+                        uriBuilder.resolve("/mods")
+                    )
+                    .sendJson(new GetModsByIdsListRequestBody(chunk))
+                    .toObject(GetModsResponse.class)
+                    .assemble()
+                    .mapNotNull(GetModsResponse::getData);
+            }
+        );
+    }
+
+    /**
+     * Bulk retrieval of mod file metadata via chunked requests. Cached entries are used where available.
+     * @return files keyed by file ID. Any IDs not known by the API will be absent.
+     */
+    public Mono<Map<Integer, CurseForgeFile>> getModFilesInfo(Collection<Integer> fileIds) {
+        return bulkLookup(OP_GET_MOD_FILE_INFO, CurseForgeFile.class, fileIds, CurseForgeFile::getId,
+            chunk -> {
+                log.debug("Getting mod file metadata for {} files", chunk.size());
+
+                return preparedFetch.fetch(
+                        uriBuilder.resolve("/mods/files")
+                    )
+                    .sendJson(new GetModFilesRequestBody(chunk))
+                    .toObject(GetModFilesResponse.class)
+                    .assemble()
+                    .mapNotNull(GetModFilesResponse::getData);
+            }
+        );
+    }
+
+    private <T> Mono<Map<Integer, T>> bulkLookup(String operation, Class<T> type,
+        Collection<Integer> ids, Function<T, Integer> idGetter,
+        Function<List<Integer>, Mono<List<T>>> chunkFetcher
+    ) {
+        final Set<Integer> distinctIds = new LinkedHashSet<>(ids);
+
+        return Flux.fromIterable(distinctIds)
+            .flatMap(id -> apiCaching.lookup(operation, type, id), metadataConcurrency)
+            .collectMap(idGetter)
+            .flatMap(cached -> {
+                final List<Integer> missing = distinctIds.stream()
+                    .filter(id -> !cached.containsKey(id))
+                    .collect(Collectors.toList());
+                log.debug("Bulk lookup of {} found {} cached and {} to retrieve",
+                    operation, cached.size(), missing.size());
+
+                return Flux.fromIterable(chunk(missing))
+                    .flatMap(chunkFetcher, metadataConcurrency)
+                    .flatMapIterable(results -> results)
+                    .flatMap(result -> apiCaching.store(operation, result, idGetter.apply(result)))
+                    .collectMap(idGetter, result -> result, () -> new HashMap<>(cached));
+            });
+    }
+
+    private static List<List<Integer>> chunk(List<Integer> ids) {
+        final List<List<Integer>> chunks = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i += BULK_CHUNK_SIZE) {
+            chunks.add(ids.subList(i, Math.min(i + BULK_CHUNK_SIZE, ids.size())));
+        }
+        return chunks;
     }
 
     /**
-     * @param outputDir where the downloaded file should be placed, such as mods, plugins
+     * Unconditionally downloads the file, so the caller is expected to verify any existing file beforehand.
+     * @param outputFile where the downloaded file should be placed, such as within mods, plugins
+     * @param digestSink receives the content as it is downloaded, can be null
      */
-    public Mono<Path> download(CurseForgeFile cfFile, Path outputDir, FileDownloadStatusHandler handler) {
+    public Mono<Path> download(CurseForgeFile cfFile, Path outputFile, DigestSink digestSink,
+        FileDownloadStatusHandler handler
+    ) {
         return preparedFetch.fetch(
                 normalizeDownloadUrl(cfFile.getDownloadUrl())
             )
-            .toFile(outputDir.resolve(cfFile.getFileName()))
-            .skipExisting(true)
+            .toFile(outputFile)
+            .digestSink(digestSink)
             .handleStatus(handler)
             .assemble();
     }
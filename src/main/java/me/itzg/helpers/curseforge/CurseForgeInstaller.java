@@ -5,25 +5,34 @@ import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
+import me.itzg.helpers.cache.ApiCaching;
+import me.itzg.helpers.cache.ApiCachingDisabled;
+import me.itzg.helpers.cache.CacheArgs;
 import me.itzg.helpers.curseforge.ExcludeIncludesContent.ExcludeIncludes;
 import me.itzg.helpers.curseforge.model.*;
 import me.itzg.helpers.errors.GenericException;
 import me.itzg.helpers.errors.InvalidParameterException;
 import me.itzg.helpers.fabric.FabricLauncherInstaller;
+import me.itzg.helpers.files.DigestSink;
 import me.itzg.helpers.files.Manifests;
 import me.itzg.helpers.files.ResultsFileWriter;
 import me.itzg.helpers.forge.ForgeInstaller;
 import me.itzg.helpers.http.FailedRequestException;
+import me.itzg.helpers.http.FileDownloadStatus;
 import me.itzg.helpers.http.SharedFetch;
 import me.itzg.helpers.json.ObjectMappers;
+import me.itzg.helpers.trace.Tracer;
+import org.apache.commons.codec.binary.Hex;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
 import java.util.*;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -77,6 +86,12 @@ public class CurseForgeInstaller {
     @Getter @Setter
     private SharedFetch.Options sharedFetchOptions;
 
+    /**
+     * When null, API caching is disabled
+     */
+    @Getter @Setter
+    private CacheArgs cacheArgs;
+
     private final Set<String> applicableClassIdSlugs = new HashSet<>(Arrays.asList(
         "mc-mods",
         "bukkit-plugins",
@@ -120,9 +135,12 @@ public class CurseForgeInstaller {
         requireNonNull(slug);
         requireNonNull(entryPoint);
 
-        final CurseForgeManifest manifest = Manifests.load(outputDir, CURSEFORGE_ID, CurseForgeManifest.class);
-        // to adapt to previous copies of manifest
-        trimLevelsContent(manifest);
+        final CurseForgeManifest manifest;
+        try (Tracer.Span ignored = Tracer.span("manifest load")) {
+            manifest = Manifests.load(outputDir, CURSEFORGE_ID, CurseForgeManifest.class);
+            // to adapt to previous copies of manifest
+            trimLevelsContent(manifest);
+        }
 
         if (apiKey == null || apiKey.isEmpty()) {
             if (manifest != null) {
@@ -139,12 +157,21 @@ public class CurseForgeInstaller {
         }
 
         try (
+            ApiCaching apiCaching = cacheArgs != null ?
+                cacheArgs.create(outputDir, CURSEFORGE_ID, CurseForgeApiClient.IMMUTABLE_OPERATIONS)
+                : new ApiCachingDisabled();
             CurseForgeApiClient cfApi = new CurseForgeApiClient(
                 apiBaseUrl, apiKey, sharedFetchOptions,
-                MINECRAFT_GAME_ID
+                MINECRAFT_GAME_ID,
+                apiCaching
             )
         ) {
-            final CategoryInfo categoryInfo = cfApi.loadCategoryInfo(applicableClassIdSlugs, CATEGORY_SLUG_MODPACKS);
+            cfApi.prewarmConnections();
+
+            final CategoryInfo categoryInfo;
+            try (Tracer.Span ignored = Tracer.span("api resolution: categories")) {
+                categoryInfo = cfApi.loadCategoryInfo(applicableClassIdSlugs, CATEGORY_SLUG_MODPACKS);
+            }
 
             entryPoint.install(
                 new InstallContext(slug, cfApi, categoryInfo, manifest)
@@ -242,13 +269,15 @@ public class CurseForgeInstaller {
 
         final CurseForgeFile modFile;
 
-        if (fileId == null) {
-            modFile = context.cfApi.resolveModpackFile(mod, fileMatcher);
-        }
-        else {
-            modFile = context.cfApi.getModFileInfo(mod.getId(), fileId)
-                .switchIfEmpty(Mono.error(() -> new GenericException("Unable to resolve modpack's file")))
-                .block();
+        try (Tracer.Span ignored = Tracer.span("api resolution: modpack file")) {
+            if (fileId == null) {
+                modFile = context.cfApi.resolveModpackFile(mod, fileMatcher);
+            }
+            else {
+                modFile = context.cfApi.getModFileInfo(mod.getId(), fileId)
+                    .switchIfEmpty(Mono.error(() -> new GenericException("Unable to resolve modpack's file")))
+                    .block();
+            }
         }
 
         //noinspection DataFlowIssue handled by switchIfEmpty
@@ -280,12 +309,14 @@ public class CurseForgeInstaller {
 
         log.info("Processing modpack '{}' ({}) @ {}:{}", modFile.getDisplayName(),
             mod.getSlug(), modFile.getModId(), modFile.getId());
-        final Path modpackZip =
-            context.cfApi.downloadTemp(modFile, "zip",
+        final Path modpackZip;
+        try (Tracer.Span ignored = Tracer.span("modpack download")) {
+            modpackZip = context.cfApi.downloadTemp(modFile, "zip",
                     (status, uri, file) ->
                         log.debug("Modpack file retrieval: status={} uri={} file={}", status, uri, file)
                 )
                 .block();
+        }
 
         if (modpackZip == null) {
             throw new GenericException("Download of modpack zip was empty");
@@ -334,11 +365,14 @@ public class CurseForgeInstaller {
             .minecraftVersion(results.getMinecraftVersion())
             .modLoaderId(results.getModLoaderId())
             .levelName(results.getLevelName())
+            .verifiedFiles(results.getVerifiedFiles())
             .build();
 
-        Manifests.cleanup(outputDir, context.prevInstallManifest, newManifest, log);
+        try (Tracer.Span ignored = Tracer.span("manifest save")) {
+            Manifests.cleanup(outputDir, context.prevInstallManifest, newManifest, log);
 
-        Manifests.save(outputDir, CURSEFORGE_ID, newManifest);
+            Manifests.save(outputDir, CURSEFORGE_ID, newManifest);
+        }
 
         if (resultsFile != null) {
             try (ResultsFileWriter resultsFileWriter = new ResultsFileWriter(resultsFile, true)) {
@@ -396,27 +430,52 @@ public class CurseForgeInstaller {
         log.debug("Using {}", excludeIncludeIds);
 
         // Go through all the files listed in modpack (given project ID + file ID)
-        final List<PathWithInfo> modFiles = Flux.fromIterable(modpackManifest.getFiles())
+        final List<ManifestFileRef> fileRefs = modpackManifest.getFiles().stream()
             // ...does the modpack even say it's required?
             .filter(ManifestFileRef::isRequired)
             // ...is this mod file excluded because it is a client mod that didn't declare as such
             .filter(manifestFileRef -> !excludeIncludeIds.getExcludeIds().contains(manifestFileRef.getProjectID()))
+            .collect(Collectors.toList());
+
+        // ...resolve metadata of all mods and files up front with bulk lookups
+        final ModpackMetadata metadata;
+        try (Tracer.Span ignored = Tracer.span("api resolution: mod metadata")) {
+            metadata = resolveModpackMetadata(context, fileRefs);
+        }
+
+        final ModFileVerifier verifier = new ModFileVerifier(outputDir,
+            context.prevInstallManifest != null ? context.prevInstallManifest.getVerifiedFiles() : null
+        );
+
+        final Tracer.Span downloadsSpan = Tracer.span("mod downloads")
+            .arg("files", fileRefs.size());
+        final List<PathWithInfo> modFiles = Flux.fromIterable(fileRefs)
             // ...download and possibly unzip world file
             .flatMap(fileRef ->
-                downloadFileFromModpack(context, outputPaths,
-                    fileRef.getProjectID(), fileRef.getFileID(),
-                    excludeIncludeIds.getForceIncludeIds(),
-                    context.categoryInfo
-                )
+                    downloadFileFromModpack(context, outputPaths,
+                        fileRef.getProjectID(), fileRef.getFileID(),
+                        metadata,
+                        verifier,
+                        excludeIncludeIds.getForceIncludeIds(),
+                        context.categoryInfo
+                    ),
+                context.cfApi.getDownloadConcurrency()
             )
             .collectList()
+            .doFinally(signalType -> downloadsSpan.close())
             .block();
 
-        final OverridesResult overridesResult = overridesApplier.apply();
+        final OverridesResult overridesResult;
+        try (Tracer.Span ignored = Tracer.span("overrides extraction")) {
+            overridesResult = overridesApplier.apply();
+        }
 
-        prepareModLoader(modLoader.getId(), modpackManifest.getMinecraft().getVersion());
+        try (Tracer.Span ignored = Tracer.span("mod loader install")) {
+            prepareModLoader(modLoader.getId(), modpackManifest.getMinecraft().getVersion());
+        }
 
-        return buildResults(modpackManifest, modLoader, modFiles, overridesResult);
+        return buildResults(modpackManifest, modLoader, modFiles, overridesResult)
+            .setVerifiedFiles(verifier.getVerifiedFiles());
     }
 
     private ModPackResults buildResults(MinecraftModpackManifest modpackManifest, ModLoader modLoader, List<PathWithInfo> modFiles, OverridesResult overridesResult) {
@@ -490,13 +549,15 @@ public class CurseForgeInstaller {
                 )
             )
             .flatMap(s -> {
-                try {
-                    final int id = Integer.parseInt(s);
-                    return Mono.just(id);
-                } catch (NumberFormatException e) {
-                    return context.cfApi.slugToId(categoryInfo, s);
-                }
-            })
+                    try {
+                        final int id = Integer.parseInt(s);
+                        return Mono.just(id);
+                    } catch (NumberFormatException e) {
+                        return context.cfApi.slugToId(categoryInfo, s);
+                    }
+                },
+                context.cfApi.getMetadataConcurrency()
+            )
             .collect(Collectors.toSet());
     }
 
@@ -590,16 +651,41 @@ public class CurseForgeInstaller {
         return null;
     }
 
+    @AllArgsConstructor
+    static class ModpackMetadata {
+        Map<Integer, CurseForgeMod> mods;
+        Map<Integer, CurseForgeFile> files;
+    }
+
+    private ModpackMetadata resolveModpackMetadata(InstallContext context, List<ManifestFileRef> fileRefs) {
+        log.debug("Resolving metadata of {} mod files", fileRefs.size());
+
+        return Mono.zip(
+                context.cfApi.getModsInfo(
+                    fileRefs.stream().map(ManifestFileRef::getProjectID).collect(Collectors.toList())
+                ),
+                context.cfApi.getModFilesInfo(
+                    fileRefs.stream().map(ManifestFileRef::getFileID).collect(Collectors.toList())
+                )
+            )
+            .map(tuple -> new ModpackMetadata(tuple.getT1(), tuple.getT2()))
+            .block();
+    }
+
     /**
      * Downloads the referenced project-file into the appropriate subdirectory from outputPaths
+     * @param metadata pre-resolved mods and files, where individual lookups are used for any that are absent
      */
     private Mono<PathWithInfo> downloadFileFromModpack(
         InstallContext context, OutputPaths outputPaths,
         int projectID, int fileID,
+        ModpackMetadata metadata,
+        ModFileVerifier verifier,
         Set<Integer> forceIncludeIds,
         CategoryInfo categoryInfo
     ) {
-        return context.cfApi.getModInfo(projectID)
+        return Mono.justOrEmpty(metadata.mods.get(projectID))
+            .switchIfEmpty(Mono.defer(() -> context.cfApi.getModInfo(projectID)))
             .flatMap(modInfo -> {
                 final Category category = categoryInfo.contentClassIds.get(modInfo.getClassId());
                 // applicable category?
@@ -631,7 +717,8 @@ public class CurseForgeInstaller {
                     );
                 }
 
-                return context.cfApi.getModFileInfo(projectID, fileID)
+                return Mono.justOrEmpty(metadata.files.get(fileID))
+                    .switchIfEmpty(Mono.defer(() -> context.cfApi.getModFileInfo(projectID, fileID)))
                     .flatMap(cfFile -> {
                         if (!forceIncludeIds.contains(projectID) && !isServerMod(cfFile)) {
                             log.debug("Skipping {} since it is a client mod", cfFile.getFileName());
@@ -652,16 +739,7 @@ public class CurseForgeInstaller {
                         }
 
                         final Mono<Path> assembledDownload =
-                            context.cfApi.download(cfFile, baseDir, (status, uri, f) -> {
-                                switch (status) {
-                                    case SKIP_FILE_EXISTS:
-                                        log.info("Mod file {} already exists", outputDir.relativize(f));
-                                        break;
-                                    case DOWNLOADED:
-                                        log.info("Downloaded mod file {}", outputDir.relativize(f));
-                                        break;
-                                }
-                            });
+                            downloadVerified(context, cfFile, baseDir.resolve(cfFile.getFileName()), verifier);
 
                         return isWorld ?
                             assembledDownload
@@ -672,6 +750,40 @@ public class CurseForgeInstaller {
             });
     }
 
+    /**
+     * Downloads the file unless an existing file passes verification. The SHA-1 is computed while downloading
+     * so the downloaded file can be verified without reading it again.
+     */
+    private Mono<Path> downloadVerified(InstallContext context, CurseForgeFile cfFile, Path outFile,
+        ModFileVerifier verifier
+    ) {
+        return Mono.fromCallable(() -> verifier.verifyExisting(outFile, cfFile))
+            .subscribeOn(Schedulers.boundedElastic())
+            .flatMap(valid -> {
+                if (valid) {
+                    log.info("Mod file {} already exists", outputDir.relativize(outFile));
+                    return Mono.just(outFile);
+                }
+
+                final MessageDigest sha1 = ModFileVerifier.newSha1();
+                return context.cfApi.download(cfFile, outFile, DigestSink.of(sha1),
+                        (status, uri, f) -> {
+                            if (status == FileDownloadStatus.DOWNLOADED) {
+                                log.info("Downloaded mod file {}", outputDir.relativize(f));
+                            }
+                        }
+                    )
+                    .publishOn(Schedulers.boundedElastic())
+                    .flatMap(path -> {
+                        try {
+                            return Mono.just(verifier.verifyDownloaded(path, cfFile, Hex.encodeHexString(sha1.digest())));
+                        } catch (IOException e) {
+                            return Mono.error(e);
+                        }
+                    });
+            });
+    }
+
     private PathWithInfo extractWorldZip(CurseForgeMod modInfo, Path zipPath, Path worldsDir) {
         if (levelFrom != LevelFrom.WORLD_FILE) {
             return new PathWithInfo(zipPath);
@@ -761,11 +873,17 @@ public class CurseForgeInstaller {
 
     private void prepareFabric(String minecraftVersion, String loaderVersion) throws IOException {
         final FabricLauncherInstaller installer = new FabricLauncherInstaller(outputDir, resultsFile);
+        if (sharedFetchOptions != null) {
+            installer.setSharedFetchOptions(sharedFetchOptions);
+        }
         installer.installUsingVersions(minecraftVersion, loaderVersion, null);
     }
 
     private void prepareForge(String minecraftVersion, String forgeVersion) {
         final ForgeInstaller installer = new ForgeInstaller();
+        if (sharedFetchOptions != null) {
+            installer.setSharedFetchOptions(sharedFetchOptions);
+        }
         installer.install(minecraftVersion, forgeVersion, outputDir, resultsFile, false, null);
     }
 
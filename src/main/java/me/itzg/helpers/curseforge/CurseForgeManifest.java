@@ -1,5 +1,6 @@
 package me.itzg.helpers.curseforge;
 
+import java.util.Map;
 import lombok.Getter;
 import lombok.experimental.SuperBuilder;
 import lombok.extern.jackson.Jacksonized;
@@ -21,4 +22,9 @@ public class CurseForgeManifest extends BaseManifest {
     private String minecraftVersion;
     private String modLoaderId;
     private String levelName;
+
+    /**
+     * Mod files verified against the hashes reported by CurseForge, keyed by path relative to output directory
+     */
+    private Map<String, VerifiedFile> verifiedFiles;
 }
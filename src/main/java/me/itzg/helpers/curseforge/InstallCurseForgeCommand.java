@@ -10,6 +10,7 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import me.itzg.helpers.cache.CacheArgs;
 import me.itzg.helpers.files.ResultsFileWriter;
 import me.itzg.helpers.http.PathOrUri;
 import me.itzg.helpers.http.PathOrUriConverter;
@@ -124,6 +125,9 @@ public class InstallCurseForgeCommand implements Callable<Integer> {
     @ArgGroup(exclusive = false)
     SharedFetchArgs sharedFetchArgs = new SharedFetchArgs();
 
+    @ArgGroup(exclusive = false)
+    CacheArgs cacheArgs = new CacheArgs();
+
     private static final Pattern PAGE_URL_PATTERN = Pattern.compile(
         "https://(www|beta)\\.curseforge\\.com/minecraft/modpacks/(?<slug>.+?)(/files(/(?<fileId>\\d+)?)?)?");
 
@@ -166,6 +170,7 @@ public class InstallCurseForgeCommand implements Callable<Integer> {
             .setLevelFrom(levelFrom)
             .setOverridesSkipExisting(overridesSkipExisting)
             .setSharedFetchOptions(sharedFetchArgs.options())
+            .setCacheArgs(cacheArgs)
             .setApiKey(apiKey);
 
         if (apiBaseUrl != null) {
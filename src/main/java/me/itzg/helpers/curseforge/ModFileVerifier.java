@@ -0,0 +1,200 @@
+package me.itzg.helpers.curseforge;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.extern.slf4j.Slf4j;
+import me.itzg.helpers.curseforge.model.CurseForgeFile;
+import me.itzg.helpers.curseforge.model.FileHash;
+import me.itzg.helpers.curseforge.model.HashAlgo;
+import me.itzg.helpers.errors.GenericException;
+import me.itzg.helpers.files.Manifests;
+import org.apache.commons.codec.binary.Hex;
+
+/**
+ * Verifies mod files against the length, SHA-1 hash, or fingerprint reported by CurseForge.
+ * Files that were verified by a previous installation are trusted when their size and modified time
+ * are unchanged.
+ */
+@Slf4j
+class ModFileVerifier {
+
+    private final Path outputDir;
+    private final Map<String, VerifiedFile> previouslyVerified;
+    private final Map<String, VerifiedFile> verified = new ConcurrentHashMap<>();
+
+    /**
+     * @param previouslyVerified from the previous installation's manifest, can be null
+     */
+    ModFileVerifier(Path outputDir, Map<String, VerifiedFile> previouslyVerified) {
+        this.outputDir = outputDir;
+        this.previouslyVerified = previouslyVerified != null ? previouslyVerified : Collections.emptyMap();
+    }
+
+    static MessageDigest newSha1() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return true if the file exists and its content matches what is expected from the given file info
+     */
+    boolean verifyExisting(Path file, CurseForgeFile cfFile) throws IOException {
+        if (!Files.exists(file)) {
+            return false;
+        }
+
+        final BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        if (cfFile.getFileLength() > 0 && attributes.size() != cfFile.getFileLength()) {
+            log.warn("Existing mod file {} has size {} but expected {}, so it will be downloaded again",
+                file, attributes.size(), cfFile.getFileLength()
+            );
+            return false;
+        }
+
+        final String relPath = Manifests.relativize(outputDir, file);
+        final VerifiedFile previous = previouslyVerified.get(relPath);
+        if (previous != null
+            && previous.getSize() == attributes.size()
+            && previous.getLastModified() == attributes.lastModifiedTime().toMillis()
+            && matchesExpected(previous, cfFile)
+        ) {
+            log.debug("Existing mod file {} is unchanged since previously verified", file);
+            verified.put(relPath, previous);
+            return true;
+        }
+
+        final String expectedSha1 = expectedSha1(cfFile);
+        final String sha1;
+        if (expectedSha1 != null) {
+            sha1 = sha1Of(file);
+            if (!expectedSha1.equalsIgnoreCase(sha1)) {
+                log.warn("Existing mod file {} has SHA-1 {} but expected {}, so it will be downloaded again",
+                    file, sha1, expectedSha1
+                );
+                return false;
+            }
+        }
+        else {
+            sha1 = null;
+        }
+
+        final Long fingerprint = verifyFingerprintIfNeeded(file, cfFile, expectedSha1);
+        if (fingerprint != null && fingerprint != cfFile.getFileFingerprint()) {
+            log.warn("Existing mod file {} has fingerprint {} but expected {}, so it will be downloaded again",
+                file, fingerprint, cfFile.getFileFingerprint()
+            );
+            return false;
+        }
+
+        record(relPath, file, sha1, fingerprint);
+        return true;
+    }
+
+    /**
+     * @param sha1 hex encoded SHA-1 computed while downloading the file
+     * @return the given file, if verified
+     * @throws GenericException if the downloaded file does not match what was expected
+     */
+    Path verifyDownloaded(Path file, CurseForgeFile cfFile, String sha1) throws IOException {
+        final long size = Files.size(file);
+        if (cfFile.getFileLength() > 0 && size != cfFile.getFileLength()) {
+            Files.deleteIfExists(file);
+            throw new GenericException(String.format("Downloaded mod file %s has size %d but expected %d",
+                file, size, cfFile.getFileLength()
+            ));
+        }
+
+        final String expectedSha1 = expectedSha1(cfFile);
+        if (expectedSha1 != null && !expectedSha1.equalsIgnoreCase(sha1)) {
+            Files.deleteIfExists(file);
+            throw new GenericException(String.format("Downloaded mod file %s has SHA-1 %s but expected %s",
+                file, sha1, expectedSha1
+            ));
+        }
+
+        final Long fingerprint = verifyFingerprintIfNeeded(file, cfFile, expectedSha1);
+        if (fingerprint != null && fingerprint != cfFile.getFileFingerprint()) {
+            Files.deleteIfExists(file);
+            throw new GenericException(String.format("Downloaded mod file %s has fingerprint %d but expected %d",
+                file, fingerprint, cfFile.getFileFingerprint()
+            ));
+        }
+
+        record(Manifests.relativize(outputDir, file), file, sha1, fingerprint);
+        return file;
+    }
+
+    /**
+     * @return verified files keyed by path relative to the output directory
+     */
+    Map<String, VerifiedFile> getVerifiedFiles() {
+        return verified;
+    }
+
+    private void record(String relPath, Path file, String sha1, Long fingerprint) throws IOException {
+        final BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        verified.put(relPath, new VerifiedFile()
+            .setSize(attributes.size())
+            .setLastModified(attributes.lastModifiedTime().toMillis())
+            .setSha1(sha1)
+            .setFingerprint(fingerprint)
+        );
+    }
+
+    /**
+     * The fingerprint requires two reads of the file, so it is only used when there is no SHA-1 to verify.
+     * @return the computed fingerprint or null if not needed
+     */
+    private static Long verifyFingerprintIfNeeded(Path file, CurseForgeFile cfFile, String expectedSha1)
+        throws IOException {
+        if (expectedSha1 == null && cfFile.getFileFingerprint() != 0) {
+            return Murmur2Fingerprint.compute(file);
+        }
+        return null;
+    }
+
+    private static boolean matchesExpected(VerifiedFile previous, CurseForgeFile cfFile) {
+        final String expectedSha1 = expectedSha1(cfFile);
+        if (expectedSha1 != null) {
+            return expectedSha1.equalsIgnoreCase(previous.getSha1());
+        }
+        if (cfFile.getFileFingerprint() != 0) {
+            return previous.getFingerprint() != null && previous.getFingerprint() == cfFile.getFileFingerprint();
+        }
+        return true;
+    }
+
+    private static String expectedSha1(CurseForgeFile cfFile) {
+        if (cfFile.getHashes() == null) {
+            return null;
+        }
+        return cfFile.getHashes().stream()
+            .filter(fileHash -> fileHash.getAlgo() == HashAlgo.Sha1)
+            .map(FileHash::getValue)
+            .findFirst()
+            .orElse(null);
+    }
+
+    private static String sha1Of(Path file) throws IOException {
+        final MessageDigest md = newSha1();
+        try (InputStream in = Files.newInputStream(file)) {
+            final byte[] buf = new byte[8192];
+            int len;
+            while ((len = in.read(buf)) != -1) {
+                md.update(buf, 0, len);
+            }
+        }
+        return Hex.encodeHexString(md.digest());
+    }
+}
@@ -4,6 +4,7 @@ import lombok.Data;
 
 import java.nio.file.Path;
 import java.util.List;
+import java.util.Map;
 
 @Data
 public class ModPackResults {
@@ -13,4 +14,8 @@ public class ModPackResults {
     private String minecraftVersion;
     private String modLoaderId;
     private String levelName;
+    /**
+     * Keyed by path relative to output directory
+     */
+    private Map<String, VerifiedFile> verifiedFiles;
 }
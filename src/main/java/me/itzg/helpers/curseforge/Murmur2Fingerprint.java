@@ -0,0 +1,77 @@
+package me.itzg.helpers.curseforge;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Computes the murmur2 based fingerprint that CurseForge reports as {@code fileFingerprint}.
+ * <p>
+ * The content is normalized by skipping whitespace bytes and the normalized length seeds the hash,
+ * so the file is read twice.
+ * </p>
+ */
+public class Murmur2Fingerprint {
+
+    private static final int SEED = 1;
+    private static final int M = 0x5bd1e995;
+    private static final int R = 24;
+
+    public static long compute(Path file) throws IOException {
+        long normalizedLength = 0;
+        final byte[] buf = new byte[8192];
+        int len;
+        try (InputStream in = Files.newInputStream(file)) {
+            while ((len = in.read(buf)) != -1) {
+                for (int i = 0; i < len; i++) {
+                    if (!isWhitespace(buf[i])) {
+                        ++normalizedLength;
+                    }
+                }
+            }
+        }
+
+        int h = SEED ^ (int) normalizedLength;
+        int k = 0;
+        int shift = 0;
+        try (InputStream in = Files.newInputStream(file)) {
+            while ((len = in.read(buf)) != -1) {
+                for (int i = 0; i < len; i++) {
+                    final byte b = buf[i];
+                    if (isWhitespace(b)) {
+                        continue;
+                    }
+                    k |= (b & 0xff) << shift;
+                    shift += 8;
+                    if (shift == 32) {
+                        k *= M;
+                        k ^= k >>> R;
+                        k *= M;
+                        h *= M;
+                        h ^= k;
+                        k = 0;
+                        shift = 0;
+                    }
+                }
+            }
+        }
+
+        if (shift > 0) {
+            h ^= k;
+            h *= M;
+        }
+        h ^= h >>> 13;
+        h *= M;
+        h ^= h >>> 15;
+
+        return h & 0xFFFFFFFFL;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == 9 || b == 10 || b == 13 || b == 32;
+    }
+
+    private Murmur2Fingerprint() {
+    }
+}
@@ -0,0 +1,15 @@
+package me.itzg.helpers.curseforge;
+
+import lombok.Data;
+
+/**
+ * Tracks the attributes of a mod file at the time its content was verified, so that unchanged files
+ * can be trusted on subsequent runs without hashing them again.
+ */
+@Data
+public class VerifiedFile {
+    private long size;
+    private long lastModified;
+    private String sha1;
+    private Long fingerprint;
+}
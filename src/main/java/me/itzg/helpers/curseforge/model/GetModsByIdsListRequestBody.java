@@ -0,0 +1,13 @@
+package me.itzg.helpers.curseforge.model;
+
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GetModsByIdsListRequestBody {
+    private List<Integer> modIds;
+}
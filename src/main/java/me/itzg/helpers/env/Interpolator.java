@@ -4,14 +4,20 @@ import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.security.MessageDigest;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import me.itzg.helpers.CharsetDetector;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
 
 @Slf4j
 public class Interpolator {
@@ -33,19 +39,15 @@ public class Interpolator {
 
         int replacements = 0;
         final List<String> missingVariables = new ArrayList<>();
+        final Set<String> variables = new TreeSet<>();
 
         while (matcher.find()) {
             final String varName = matcher.group(1);
 
             String value = null;
             if (varName.startsWith(envPrefix)) {
-                value = environmentVariablesProvider.get(varName+FILE_SUFFIX);
-                if (value != null) {
-                    value = readValueFromFile(value);
-                }
-                else {
-                    value = environmentVariablesProvider.get(varName);
-                }
+                variables.add(varName);
+                value = resolve(varName);
                 if (value == null) {
                     missingVariables.add(varName);
                 }
@@ -71,7 +73,38 @@ public class Interpolator {
         }
         matcher.appendTail(sb);
 
-        return new Result<>(sb.toString(), replacements, missingVariables);
+        return new Result<>(sb.toString(), replacements, missingVariables, variables);
+    }
+
+    /**
+     * Computes a fingerprint of the current values of the given variables, such as those of
+     * {@link Result#getVariables()}, which changes when any of the values change.
+     */
+    public String fingerprint(Collection<String> variables) throws IOException {
+        final MessageDigest digest = DigestUtils.getSha256Digest();
+        for (final String varName : new TreeSet<>(variables)) {
+            final String value = resolve(varName);
+            digest.update(varName.getBytes(StandardCharsets.UTF_8));
+            // distinguishes missing from empty values
+            digest.update(value != null ? (byte) '=' : (byte) '!');
+            if (value != null) {
+                digest.update(value.getBytes(StandardCharsets.UTF_8));
+            }
+            digest.update((byte) 0);
+        }
+        return Hex.encodeHexString(digest.digest());
+    }
+
+    /**
+     * @return the value of the variable, where the file named by the variable suffixed with _FILE takes precedence,
+     * or null if not set
+     */
+    private String resolve(String varName) throws IOException {
+        final String filename = environmentVariablesProvider.get(varName + FILE_SUFFIX);
+        if (filename != null) {
+            return readValueFromFile(filename);
+        }
+        return environmentVariablesProvider.get(varName);
     }
 
     private String readValueFromFile(String filename) throws IOException {
@@ -86,7 +119,8 @@ public class Interpolator {
         return new Result<>(
                 result.getContent().getBytes(charsetResult.getCharset()),
                 result.getReplacementCount(),
-                result.getMissingVariables()
+                result.getMissingVariables(),
+                result.getVariables()
         );
     }
 
@@ -96,5 +130,9 @@ public class Interpolator {
         final T content;
         final int replacementCount;
         final List<String> missingVariables;
+        /**
+         * Names of the variables with the prefix that were referenced, whether set or not
+         */
+        final Set<String> variables;
     }
 }
@@ -27,6 +27,7 @@ import me.itzg.helpers.http.FailedRequestException;
 import me.itzg.helpers.http.SharedFetch;
 import me.itzg.helpers.http.SharedFetch.Options;
 import me.itzg.helpers.http.UriBuilder;
+import me.itzg.helpers.trace.Tracer;
 import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Schedulers;
 
@@ -45,6 +46,10 @@ public class FabricLauncherInstaller {
     @Setter
     private String fabricMetaBaseUrl = "https://meta.fabricmc.net";
 
+    @Getter
+    @Setter
+    private Options sharedFetchOptions = Options.builder().build();
+
     /**
      * @param minecraftVersion required
      * @param loaderVersion    optional
@@ -57,12 +62,17 @@ public class FabricLauncherInstaller {
 
         final UriBuilder uriBuilder = UriBuilder.withBaseUrl(fabricMetaBaseUrl);
 
-        try (SharedFetch sharedFetch = sharedFetch("fabric", Options.builder().build())) {
-            loaderVersion = resolveLoaderVersion(uriBuilder, sharedFetch, minecraftVersion, loaderVersion);
+        try (SharedFetch sharedFetch = sharedFetch("fabric", sharedFetchOptions)) {
+            try (Tracer.Span ignored = Tracer.span("version resolution")) {
+                loaderVersion = resolveLoaderVersion(uriBuilder, sharedFetch, minecraftVersion, loaderVersion);
 
-            installerVersion = resolveInstallerVersion(uriBuilder, sharedFetch, installerVersion);
+                installerVersion = resolveInstallerVersion(uriBuilder, sharedFetch, installerVersion);
+            }
 
-            final FabricManifest manifest = Manifests.load(outputDir, MANIFEST_ID, FabricManifest.class);
+            final FabricManifest manifest;
+            try (Tracer.Span ignored = Tracer.span("manifest load")) {
+                manifest = Manifests.load(outputDir, MANIFEST_ID, FabricManifest.class);
+            }
 
             final Versions versions = Versions.builder()
                 .game(minecraftVersion)
@@ -97,6 +107,7 @@ public class FabricLauncherInstaller {
             log.info("Installing Fabric {}", versions);
         }
 
+        final Tracer.Span downloadSpan = Tracer.span("launcher download");
         final Path launcherPath = sharedFetch.fetch(
                 uriBuilder.resolve(
                     "/v2/versions/loader/{game_version}/{loader_version}/{installer_version}/server/jar",
@@ -115,6 +126,7 @@ public class FabricLauncherInstaller {
                     );
                 }
             )
+            .doFinally(signalType -> downloadSpan.close())
             .block();
 
         if (launcherPath == null) {
@@ -136,9 +148,11 @@ public class FabricLauncherInstaller {
             .launcherPath(launcherPath.toString())
             .build();
 
-        Manifests.cleanup(outputDir, manifest, newManifest, log);
+        try (Tracer.Span ignored = Tracer.span("manifest save")) {
+            Manifests.cleanup(outputDir, manifest, newManifest, log);
 
-        Manifests.save(outputDir, MANIFEST_ID, newManifest);
+            Manifests.save(outputDir, MANIFEST_ID, newManifest);
+        }
 
         return launcherPath;
     }
@@ -172,7 +186,7 @@ public class FabricLauncherInstaller {
                     minecraftVersion, loaderVersion
                 );
 
-                try {
+                try (Tracer.Span ignored = Tracer.span("installer run")) {
                     final Process proc = new ProcessBuilder(
                         "java", "-jar", path.toString(),
                         "server",
@@ -6,6 +6,7 @@ import java.util.concurrent.Callable;
 import java.util.regex.Pattern;
 import lombok.extern.slf4j.Slf4j;
 import me.itzg.helpers.files.ResultsFileWriter;
+import me.itzg.helpers.http.SharedFetchArgs;
 import picocli.CommandLine.ArgGroup;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.ExitCode;
@@ -30,6 +31,9 @@ public class InstallFabricLoaderCommand implements Callable<Integer> {
     @ArgGroup(multiplicity = "1")
     OriginOptions originOptions;
 
+    @ArgGroup(exclusive = false)
+    SharedFetchArgs sharedFetchArgs = new SharedFetchArgs();
+
     static class OriginOptions {
         @ArgGroup(exclusive = false)
         VersionOptions versionOptions;
@@ -81,6 +85,7 @@ public class InstallFabricLoaderCommand implements Callable<Integer> {
     @Override
     public Integer call() throws Exception {
         final FabricLauncherInstaller installer = new FabricLauncherInstaller(outputDirectory, resultsFile);
+        installer.setSharedFetchOptions(sharedFetchArgs.options());
         final Path launcher;
         if (originOptions.versionOptions != null) {
             launcher = installer.installUsingVersions(
@@ -0,0 +1,55 @@
+package me.itzg.helpers.files;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+
+/**
+ * Receives file content as it is being transferred, such as to compute a checksum without a
+ * second read of the file.
+ */
+@FunctionalInterface
+public interface DigestSink {
+
+    void update(byte[] bytes, int offset, int length);
+
+    /**
+     * Consumes the remaining content of the given buffer
+     */
+    default void update(ByteBuffer buffer) {
+        if (buffer.hasArray()) {
+            update(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+            buffer.position(buffer.limit());
+        }
+        else {
+            final byte[] bytes = new byte[buffer.remaining()];
+            buffer.get(bytes);
+            update(bytes, 0, bytes.length);
+        }
+    }
+
+    /**
+     * Discards the content received so far, such as when a download is retried and the content will be
+     * received again from the beginning
+     */
+    default void reset() {
+    }
+
+    static DigestSink of(MessageDigest messageDigest) {
+        return new DigestSink() {
+            @Override
+            public void update(byte[] bytes, int offset, int length) {
+                messageDigest.update(bytes, offset, length);
+            }
+
+            @Override
+            public void reset() {
+                messageDigest.reset();
+            }
+
+            @Override
+            public void update(ByteBuffer buffer) {
+                messageDigest.update(buffer);
+            }
+        };
+    }
+}
@@ -0,0 +1,140 @@
+package me.itzg.helpers.files;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.CopyOption;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.util.Arrays;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Copies files like {@link Files#copy(Path, Path, CopyOption...)}, but large regular files are copied with
+ * {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)}. On Java 8, {@link Files#copy}
+ * reads and writes through user-space buffers, whereas transferTo lets the kernel copy the content directly,
+ * such as with sendfile on Linux.
+ * <p>
+ * Supports the {@link StandardCopyOption#REPLACE_EXISTING} and {@link StandardCopyOption#COPY_ATTRIBUTES} options,
+ * where the latter copies the last modified time and, if supported, POSIX permissions.
+ * If a channel transfer fails, the copy is retried with {@link Files#copy}.
+ * </p>
+ */
+@Slf4j
+public class FileCopier {
+
+    /**
+     * Smaller files are copied with {@link Files#copy} since the overhead of opening channels outweighs the gain
+     */
+    public static final long DEFAULT_TRANSFER_THRESHOLD = 1024 * 1024;
+
+    public static void copy(Path src, Path dest, CopyOption... options) throws IOException {
+        copy(src, dest, DEFAULT_TRANSFER_THRESHOLD, options);
+    }
+
+    /**
+     * @param transferThreshold files of at least this size are copied using channel transfers
+     */
+    public static void copy(Path src, Path dest, long transferThreshold, CopyOption... options) throws IOException {
+        final List<CopyOption> optionList = Arrays.asList(options);
+        final BasicFileAttributes srcAttrs = Files.readAttributes(src, BasicFileAttributes.class);
+        if (!srcAttrs.isRegularFile() || srcAttrs.size() < transferThreshold
+            || optionList.contains(LinkOption.NOFOLLOW_LINKS) || optionList.contains(StandardCopyOption.ATOMIC_MOVE)) {
+            Files.copy(src, dest, options);
+            return;
+        }
+
+        if (optionList.contains(StandardCopyOption.REPLACE_EXISTING)) {
+            // same as Files.copy, the existing file is replaced rather than truncated,
+            // which would also truncate the source if the destination is a link to it
+            Files.deleteIfExists(dest);
+        }
+
+        try {
+            transfer(src, dest, srcAttrs.size());
+        } catch (FileAlreadyExistsException e) {
+            throw e;
+        } catch (IOException e) {
+            log.debug("Channel transfer from {} to {} failed, so falling back to regular copy", src, dest, e);
+            Files.copy(src, dest, withReplaceExisting(options));
+            return;
+        }
+
+        if (optionList.contains(StandardCopyOption.COPY_ATTRIBUTES)) {
+            copyAttributes(src, srcAttrs, dest);
+        }
+    }
+
+    private static void transfer(Path src, Path dest, long size) throws IOException {
+        try (FileChannel in = FileChannel.open(src, StandardOpenOption.READ);
+            FileChannel out = FileChannel.open(dest, StandardOpenOption.WRITE, StandardOpenOption.CREATE_NEW)) {
+            long position = 0;
+            // transferTo may transfer fewer bytes than requested, such as 2GB at a time with sendfile
+            while (position < size) {
+                final long transferred = in.transferTo(position, size - position, out);
+                if (transferred <= 0) {
+                    break;
+                }
+                position += transferred;
+            }
+            if (position < size) {
+                // such as when the source was truncated during the copy
+                throw new IOException(String.format("Transferred only %d of %d bytes from %s", position, size, src));
+            }
+        }
+    }
+
+    /**
+     * Places the source file at the destination by linking or copying. When a link can't be created, such as
+     * a hard link across filesystems, the file is copied instead.
+     * @param options used when copying, where {@link StandardCopyOption#REPLACE_EXISTING} also applies to links
+     */
+    public static void place(Path src, Path dest, LinkMode linkMode, CopyOption... options) throws IOException {
+        if (linkMode != LinkMode.copy) {
+            if (Arrays.asList(options).contains(StandardCopyOption.REPLACE_EXISTING)) {
+                Files.deleteIfExists(dest);
+            }
+            try {
+                if (linkMode == LinkMode.hardlink) {
+                    Files.createLink(dest, src);
+                }
+                else {
+                    Files.createSymbolicLink(dest, src.toAbsolutePath());
+                }
+                return;
+            } catch (FileAlreadyExistsException e) {
+                throw e;
+            } catch (IOException | UnsupportedOperationException e) {
+                log.debug("Unable to {} {} to {}, so copying instead: {}", linkMode, dest, src, e.getMessage());
+            }
+        }
+
+        copy(src, dest, options);
+    }
+
+    private static CopyOption[] withReplaceExisting(CopyOption[] options) {
+        final CopyOption[] result = Arrays.copyOf(options, options.length + 1);
+        result[options.length] = StandardCopyOption.REPLACE_EXISTING;
+        return result;
+    }
+
+    private static void copyAttributes(Path src, BasicFileAttributes srcAttrs, Path dest) throws IOException {
+        final PosixFileAttributeView srcPosixView = Files.getFileAttributeView(src, PosixFileAttributeView.class);
+        final PosixFileAttributeView destPosixView = Files.getFileAttributeView(dest, PosixFileAttributeView.class);
+        if (srcPosixView != null && destPosixView != null) {
+            final PosixFileAttributes srcPosixAttrs = srcPosixView.readAttributes();
+            destPosixView.setPermissions(srcPosixAttrs.permissions());
+        }
+        Files.setLastModifiedTime(dest, srcAttrs.lastModifiedTime());
+    }
+
+    private FileCopier() {
+    }
+}
@@ -0,0 +1,16 @@
+package me.itzg.helpers.files;
+
+/**
+ * How a file is placed at its destination by {@link FileCopier#place}
+ */
+public enum LinkMode {
+    /**
+     * Creates a hard link to the source file, which requires the same filesystem
+     */
+    hardlink,
+    /**
+     * Creates a symbolic link to the absolute path of the source file
+     */
+    symlink,
+    copy
+}
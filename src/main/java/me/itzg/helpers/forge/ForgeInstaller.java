@@ -4,6 +4,8 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.Getter;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import me.itzg.helpers.errors.GenericException;
 import me.itzg.helpers.errors.InvalidParameterException;
@@ -12,8 +14,11 @@ import me.itzg.helpers.files.Manifests;
 import me.itzg.helpers.files.ResultsFileWriter;
 import me.itzg.helpers.forge.model.PromotionsSlim;
 import me.itzg.helpers.http.FailedRequestException;
+import me.itzg.helpers.http.SharedFetch;
+import me.itzg.helpers.http.SharedFetch.Options;
 import me.itzg.helpers.http.Uris;
 import me.itzg.helpers.json.ObjectMappers;
+import me.itzg.helpers.trace.Tracer;
 
 import java.io.BufferedReader;
 import java.io.IOException;
@@ -34,6 +39,7 @@ import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 import static me.itzg.helpers.http.Fetch.fetch;
+import static me.itzg.helpers.http.Fetch.sharedFetch;
 
 @Slf4j
 public class ForgeInstaller {
@@ -48,6 +54,10 @@ public class ForgeInstaller {
 
     private static final Pattern OLD_FORGE_ID_VERSION = Pattern.compile("forge(.+)", Pattern.CASE_INSENSITIVE);
 
+    @Getter
+    @Setter
+    private Options sharedFetchOptions = Options.builder().build();
+
     @AllArgsConstructor
     private static class VersionPair {
         String minecraft;
@@ -60,40 +70,18 @@ public class ForgeInstaller {
         Path forgeInstaller
     ) {
         final ForgeManifest prevManifest;
-        try {
+        try (Tracer.Span ignored = Tracer.span("manifest load")) {
             prevManifest = loadManifest(outputDir);
         } catch (IOException e) {
             throw new GenericException("Failed to load existing forge manifest", e);
         }
 
-        final PromotionsSlim promotionsSlim = loadPromotions();
-        if (promotionsSlim.getPromos().isEmpty()) {
-            throw new GenericException("No versions were available in Forge promotions");
-        }
-
-        final String resolvedMinecraftVersion;
-        final String resolvedForgeVersion;
-        if (forgeInstaller == null) {
-            resolvedMinecraftVersion = resolveMinecraftVersion(minecraftVersion, promotionsSlim);
-            try {
-                resolvedForgeVersion = resolveForgeVersion(resolvedMinecraftVersion, forgeVersion, promotionsSlim);
-            } catch (IOException e) {
-                throw new RuntimeException("Failed to resolve forge version", e);
-            }
-        }
-        else {
-            final VersionPair versions;
-            try {
-                versions = extractVersion(forgeInstaller);
-            } catch (IOException e) {
-                throw new GenericException("Failed to extract version from provided installer file", e);
-            }
-            if (versions == null) {
-                throw new GenericException("Failed to locate version from provided installer file");
-            }
-            resolvedMinecraftVersion = versions.minecraft;
-            resolvedForgeVersion = versions.forge;
+        final VersionPair resolved;
+        try (Tracer.Span ignored = Tracer.span("version resolution")) {
+            resolved = resolveVersions(minecraftVersion, forgeVersion, forgeInstaller);
         }
+        final String resolvedMinecraftVersion = resolved.minecraft;
+        final String resolvedForgeVersion = resolved.forge;
 
         final boolean needsInstall;
         if (forceReinstall) {
@@ -134,7 +122,9 @@ public class ForgeInstaller {
                 newManifest = installUsingExisting(resolvedMinecraftVersion, resolvedForgeVersion, outputDir, forgeInstaller);
             }
 
-            Manifests.save(outputDir, MANIFEST_ID, newManifest);
+            try (Tracer.Span ignored = Tracer.span("manifest save")) {
+                Manifests.save(outputDir, MANIFEST_ID, newManifest);
+            }
         }
         else {
             newManifest = null;
@@ -149,6 +139,36 @@ public class ForgeInstaller {
         }
     }
 
+    private VersionPair resolveVersions(String minecraftVersion, String forgeVersion, Path forgeInstaller) {
+        final PromotionsSlim promotionsSlim = loadPromotions();
+        if (promotionsSlim.getPromos().isEmpty()) {
+            throw new GenericException("No versions were available in Forge promotions");
+        }
+
+        if (forgeInstaller == null) {
+            final String resolvedMinecraftVersion = resolveMinecraftVersion(minecraftVersion, promotionsSlim);
+            try {
+                return new VersionPair(resolvedMinecraftVersion,
+                    resolveForgeVersion(resolvedMinecraftVersion, forgeVersion, promotionsSlim)
+                );
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to resolve forge version", e);
+            }
+        }
+        else {
+            final VersionPair versions;
+            try {
+                versions = extractVersion(forgeInstaller);
+            } catch (IOException e) {
+                throw new GenericException("Failed to extract version from provided installer file", e);
+            }
+            if (versions == null) {
+                throw new GenericException("Failed to locate version from provided installer file");
+            }
+            return versions;
+        }
+    }
+
     private VersionPair extractVersion(Path forgeInstaller) throws IOException {
 
         // Extract version from installer jar's version.json file
@@ -252,7 +272,10 @@ public class ForgeInstaller {
     }
 
     private ForgeManifest downloadAndInstall(String minecraftVersion, String forgeVersion, Path outputDir) {
-        final Path installerJar = downloadInstaller(outputDir, minecraftVersion, forgeVersion);
+        final Path installerJar;
+        try (Tracer.Span ignored = Tracer.span("installer download")) {
+            installerJar = downloadInstaller(outputDir, minecraftVersion, forgeVersion);
+        }
 
         try {
             final InstallResults results = install(installerJar, outputDir, minecraftVersion, forgeVersion);
@@ -284,7 +307,7 @@ public class ForgeInstaller {
     private InstallResults install(Path installerJar, Path outputDir, String minecraftVersion, String forgeVersion) {
         log.info("Running Forge installer. This might take a while...");
 
-        try {
+        try (Tracer.Span ignored = Tracer.span("installer run")) {
             final Process process = new ProcessBuilder(
                 "java", "-jar", installerJar.toAbsolutePath().toString(), "--installServer"
             )
@@ -439,11 +462,12 @@ public class ForgeInstaller {
         }
     }
 
-    private static PromotionsSlim loadPromotions() {
-        return fetch(URI.create("https://files.minecraftforge.net/maven/net/minecraftforge/forge/promotions_slim.json"))
-            .userAgentCommand("forge")
-            .toObject(PromotionsSlim.class)
-            .execute();
+    private PromotionsSlim loadPromotions() {
+        try (SharedFetch sharedFetch = sharedFetch("forge", sharedFetchOptions)) {
+            return sharedFetch.fetch(URI.create("https://files.minecraftforge.net/maven/net/minecraftforge/forge/promotions_slim.json"))
+                .toObject(PromotionsSlim.class)
+                .execute();
+        }
     }
 
     private String resolveMinecraftVersion(String minecraftVersion, PromotionsSlim promotionsSlim) {
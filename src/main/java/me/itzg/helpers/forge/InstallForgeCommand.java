@@ -5,6 +5,7 @@ import static me.itzg.helpers.McImageHelper.VERSION_REGEX;
 import java.nio.file.Path;
 import java.util.concurrent.Callable;
 import java.util.regex.Pattern;
+import me.itzg.helpers.http.SharedFetchArgs;
 import picocli.CommandLine;
 import picocli.CommandLine.ArgGroup;
 import picocli.CommandLine.Command;
@@ -78,9 +79,13 @@ public class InstallForgeCommand implements Callable<Integer> {
     @Option(names = "--force-reinstall")
     boolean forceReinstall;
 
+    @ArgGroup(exclusive = false)
+    SharedFetchArgs sharedFetchArgs = new SharedFetchArgs();
+
     @Override
     public Integer call() throws Exception {
         final ForgeInstaller installer = new ForgeInstaller();
+        installer.setSharedFetchOptions(sharedFetchArgs.options());
         installer.install(minecraftVersion, versionOrInstaller.version, outputDirectory, resultsFile, forceReinstall, versionOrInstaller.installer);
 
         return ExitCode.OK;
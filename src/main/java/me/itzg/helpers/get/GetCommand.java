@@ -1,8 +1,9 @@
 package me.itzg.helpers.get;
 
 import static me.itzg.helpers.McImageHelper.OPTION_SPLIT_COMMAS;
-import static me.itzg.helpers.http.Fetch.fetch;
 
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpResponseStatus;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.net.URI;
@@ -12,44 +13,34 @@ import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.PathMatcher;
-import java.nio.file.Paths;
-import java.nio.file.attribute.FileTime;
-import java.time.ZoneId;
-import java.time.format.DateTimeFormatter;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Base64;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import me.itzg.helpers.McImageHelper;
 import me.itzg.helpers.errors.InvalidParameterException;
-import me.itzg.helpers.http.DeriveFilenameHandler;
-import me.itzg.helpers.http.LatchingUrisInterceptor;
+import me.itzg.helpers.http.Fetch;
+import me.itzg.helpers.http.FetchBuilderBase;
 import me.itzg.helpers.http.LenientUriConverter;
-import me.itzg.helpers.http.NotModifiedHandler;
-import me.itzg.helpers.http.OutputResponseHandler;
-import me.itzg.helpers.http.OutputToDirectoryHandler;
-import org.apache.hc.client5.http.HttpResponseException;
-import org.apache.hc.client5.http.classic.methods.HttpGet;
-import org.apache.hc.client5.http.classic.methods.HttpHead;
-import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
-import org.apache.hc.client5.http.impl.classic.HttpClients;
-import org.apache.hc.core5.http.ContentType;
-import org.apache.hc.core5.http.HttpHeaders;
-import org.apache.hc.core5.http.HttpStatus;
+import me.itzg.helpers.http.SharedFetch;
+import me.itzg.helpers.http.SharedFetch.Options;
+import me.itzg.helpers.http.SharedFetchArgs;
 import picocli.CommandLine;
+import picocli.CommandLine.ArgGroup;
 import picocli.CommandLine.ExitCode;
 import picocli.CommandLine.Option;
 import picocli.CommandLine.ParameterException;
 import picocli.CommandLine.Parameters;
 import picocli.CommandLine.Spec;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 @CommandLine.Command(name = "get", description = "Download a file")
 @Slf4j
@@ -127,12 +118,23 @@ public class GetCommand implements Callable<Integer> {
     )
     Path urisFile;
 
+    @Option(names = "--concurrency", defaultValue = "1",
+        description = "When the output is a directory, the number of URIs to retrieve concurrently."
+            + " Default: ${DEFAULT-VALUE}"
+    )
+    int concurrency;
+
     @Option(names = "--retry-count", defaultValue = "5")
     int retryCount;
 
-    @Option(names = "--retry-delay", description = "in seconds", defaultValue = "2")
+    @Option(names = "--retry-delay", description = "Initial delay, in seconds, before retrying."
+        + " The delay backs off exponentially for each subsequent retry.",
+        defaultValue = "2")
     int retryDelay;
 
+    @ArgGroup(exclusive = false)
+    SharedFetchArgs sharedFetchArgs = new SharedFetchArgs();
+
     @Parameters(split = OPTION_SPLIT_COMMAS, paramLabel = "URI",
         description = "The URI of the resource to retrieve. When the output is a directory,"
             + " more than one URI can be requested.",
@@ -140,9 +142,6 @@ public class GetCommand implements Callable<Integer> {
     )
     List<URI> uris;
 
-    private final static DateTimeFormatter httpDateTimeFormatter =
-        DateTimeFormatter.RFC_1123_DATE_TIME.withZone(ZoneId.of("GMT"));
-
     @Override
     public Integer call() throws IOException {
         if (urisFile != null) {
@@ -158,25 +157,21 @@ public class GetCommand implements Callable<Integer> {
             throw new ParameterException(spec.commandLine(), "No URIs were given");
         }
 
-        final LatchingUrisInterceptor interceptor = new LatchingUrisInterceptor();
+        final Options options = sharedFetchArgs.options().toBuilder()
+            .maxRetries(retryCount)
+            .retryInitialBackoff(Duration.ofSeconds(retryDelay))
+            .build();
 
-        try (CloseableHttpClient client = HttpClients.custom()
-            .addExecInterceptorFirst("latchRequestUris", interceptor)
-            .useSystemProperties()
-            .setUserAgent("mc-image-helper/"+ McImageHelper.getVersion()+" (cmd=get)")
-            .setRetryStrategy(
-                new ExtendedRequestRetryStrategy(retryCount, retryDelay)
-            )
-            .build()) {
+        try (SharedFetch sharedFetch = Fetch.sharedFetch("get", options)) {
 
             final PrintWriter stdout = spec.commandLine().getOut();
 
             if (checkExists) {
-                return checkUrisExist(client);
+                return checkUrisExist(sharedFetch);
             } else if (jsonPath != null) {
                 validateSingleUri();
 
-                final String jsonMimeType = ContentType.APPLICATION_JSON.getMimeType();
+                final String jsonMimeType = "application/json";
                 if (acceptContentTypes == null) {
                     acceptContentTypes = Collections.singletonList(jsonMimeType);
                 } else if (!acceptContentTypes.contains(jsonMimeType)) {
@@ -184,18 +179,30 @@ public class GetCommand implements Callable<Integer> {
                     acceptContentTypes.add(jsonMimeType);
                 }
 
-                processSingleUri(uris.get(0), client,
-                    null, new JsonPathOutputHandler(
-                        stdout, jsonPath,
-                        jsonValueWhenMissing != null && !jsonValueWhenMissing.isEmpty() ?
-                            jsonValueWhenMissing : null
-                    ));
+                final String content = fetchFor(sharedFetch, uris.get(0))
+                    .asString()
+                    .assemble()
+                    .block();
+
+                new JsonPathOutputHandler(
+                    stdout, jsonPath,
+                    jsonValueWhenMissing != null && !jsonValueWhenMissing.isEmpty() ?
+                        jsonValueWhenMissing : null
+                )
+                    .write(content);
             } else if (outputFile == null) {
                 validateSingleUri();
-                processSingleUri(uris.get(0), client, null, new PrintWriterHandler(stdout));
+
+                final String content = fetchFor(sharedFetch, uris.get(0))
+                    .asString()
+                    .assemble()
+                    .block();
+                if (content != null) {
+                    stdout.print(content);
+                }
+                stdout.flush();
             } else if (Files.isDirectory(outputFile)) {
-                final Collection<Path> files = processUrisForDirectory(client,
-                    interceptor);
+                final Collection<Path> files = processUrisForDirectory(sharedFetch);
                 if (outputFilename) {
                     files.forEach(stdout::println);
                 }
@@ -208,10 +215,9 @@ public class GetCommand implements Callable<Integer> {
                         stdout.println(outputFile);
                     }
                 } else {
-                    final Path file = fetch(uris.get(0))
+                    final Path file = fetchFor(sharedFetch, uris.get(0))
                         .toFile(outputFile)
                         .skipUpToDate(skipUpToDate)
-                        .acceptContentTypes(acceptContentTypes)
                         .handleDownloaded((uri, f, contentSizeBytes) -> {
                             if (logProgressEach) {
                                 log.info("Downloaded {}", f);
@@ -230,37 +236,28 @@ public class GetCommand implements Callable<Integer> {
         return ExitCode.OK;
     }
 
-    private int checkUrisExist(CloseableHttpClient client) {
-        if (uris.stream()
-            .allMatch(uri -> {
-                log.debug("Checking {}", uri);
-                final HttpHead request = new HttpHead(uri);
-                if (acceptContentTypes != null) {
-                    for (String acceptContentType : acceptContentTypes) {
-                        request.addHeader(HttpHeaders.ACCEPT, acceptContentType);
-                    }
-                }
-                if (apikeyHeader != null) {
-                    request.addHeader("x-api-key", apikeyHeader);
-                }
-                try {
-                    final int statusCode = client.execute(request).getCode();
-                    if (statusCode == HttpStatus.SC_OK) {
-                        return true;
-                    } else {
-                        log.warn("{} cannot be retrieved: status={}", uri, statusCode);
-                        return false;
-                    }
-                } catch (IOException e) {
-                    throw new IllegalStateException(String.format("Failed to retrieve: %s", uri),
-                        e);
-                }
-            })
-        ) {
-            return ExitCode.OK;
-        } else {
-            return ExitCode.SOFTWARE;
+    private int checkUrisExist(SharedFetch sharedFetch) throws URISyntaxException {
+        final List<Mono<Boolean>> checks = new ArrayList<>(uris.size());
+        for (final URI uri : uris) {
+            checks.add(
+                fetchFor(sharedFetch, uri)
+                    .checkStatus()
+                    .assemble()
+                    .map(statusCode -> {
+                        if (statusCode == HttpResponseStatus.OK.code()) {
+                            return true;
+                        } else {
+                            log.warn("{} cannot be retrieved: status={}", uri, statusCode);
+                            return false;
+                        }
+                    })
+            );
         }
+
+        final Boolean allExist = Flux.concat(checks)
+            .all(exists -> exists)
+            .block();
+        return Boolean.TRUE.equals(allExist) ? ExitCode.OK : ExitCode.SOFTWARE;
     }
 
     private void readUris() throws IOException {
@@ -286,8 +283,7 @@ public class GetCommand implements Callable<Integer> {
             .forEach(uris::add);
     }
 
-    private Collection<Path> processUrisForDirectory(CloseableHttpClient client,
-        LatchingUrisInterceptor interceptor) throws URISyntaxException, IOException {
+    private Collection<Path> processUrisForDirectory(SharedFetch sharedFetch) throws URISyntaxException, IOException {
 
         if (usingPrune()) {
             if (pruneDepth <= 0) {
@@ -295,73 +291,84 @@ public class GetCommand implements Callable<Integer> {
                     "Prune depth must be 1 or greater");
             }
         }
+        if (concurrency <= 0) {
+            throw new ParameterException(spec.commandLine(), "Concurrency must be 1 or greater");
+        }
 
-        final Set<Path> processed = new HashSet<>();
-
-        for (URI uri : uris) {
-            NeedsDownloadResult result = needsDownload(client, interceptor, uri, processed);
-            if (result.needsDownload) {
-                processed.add(
-                    processSingleUri(uri, client,
-                        skipUpToDate ? result.resolvedFilename : null,
-                        new OutputToDirectoryHandler(outputFile, interceptor, logProgressEach))
-                );
-                interceptor.reset();
-            }
+        final List<Mono<Path>> downloads = new ArrayList<>(uris.size());
+        for (final URI uri : uris) {
+            downloads.add(
+                fetchFor(sharedFetch, uri)
+                    .toDirectory(outputFile)
+                    .skipExisting(skipExisting)
+                    .skipUpToDate(skipUpToDate)
+                    .handleStatus((status, u, file) -> {
+                        switch (status) {
+                            case SKIP_FILE_EXISTS:
+                                logProgress("Skipping {} since {} already exists", uri, file);
+                                break;
+                            case SKIP_FILE_UP_TO_DATE:
+                                logProgress("Skipping {} since it is already up to date", file);
+                                break;
+                            case DOWNLOADED:
+                                logProgress("Downloaded {}", file);
+                                break;
+                        }
+                    })
+                    .assemble()
+            );
         }
 
+        final List<Path> processed = Flux.fromIterable(downloads)
+            .flatMapSequential(download -> download, concurrency)
+            .collectList()
+            .block();
+
+        final Set<Path> processedSet = processed != null ? new LinkedHashSet<>(processed) : Collections.emptySet();
         if (usingPrune()) {
-            pruneOtherFiles(processed);
+            pruneOtherFiles(processedSet);
         }
 
-        return processed;
+        return processedSet;
     }
 
-    @RequiredArgsConstructor
-    static class NeedsDownloadResult {
-        final boolean needsDownload;
-        final Path resolvedFilename;
-    }
-    private NeedsDownloadResult needsDownload(CloseableHttpClient client, LatchingUrisInterceptor interceptor,
-        URI uri, Set<Path> processed) throws URISyntaxException, IOException {
-        if (skipExisting || skipUpToDate) {
-            final String filename = resolveExpectedFilename(client, interceptor, uri);
-            interceptor.reset();
-
-            final Path resolvedFilename = outputFile.resolve(filename);
-            if (skipExisting && Files.isRegularFile(resolvedFilename)) {
-                if (logProgressEach) {
-                    log.info("Skipping {} since {} already exists", uri, resolvedFilename);
-                } else {
-                    log.debug("Skipping {} since {} already exists", uri, resolvedFilename);
-                }
-                processed.add(resolvedFilename);
-                return new NeedsDownloadResult(false, null);
-            }
-            else {
-                return new NeedsDownloadResult(true, resolvedFilename);
-            }
+    private void logProgress(String format, Object... args) {
+        if (logProgressEach) {
+            log.info(format, args);
+        } else {
+            log.debug(format, args);
         }
-        return new NeedsDownloadResult(true, null);
     }
 
-    private static String resolveExpectedFilename(CloseableHttpClient client, LatchingUrisInterceptor interceptor, URI uri)
-        throws URISyntaxException, IOException {
-        final HttpHead headRequest = new HttpHead(uri.getPath().startsWith("//") ?
-            alterUriPath(uri, uri.getPath().substring(1)) : uri);
+    /**
+     * Prepares a fetch of the given URI including the headers given by options and by the URI's user info
+     */
+    private FetchBuilderBase<?> fetchFor(SharedFetch sharedFetch, URI uri) throws URISyntaxException {
+        URI requestUri = uri.getPath().startsWith("//") ?
+            alterUriPath(uri, uri.getPath().substring(1)) : uri;
 
-        log.debug("Sending HEAD request to uri={}", uri);
-        try {
-            return client.execute(headRequest,
-                new DeriveFilenameHandler(interceptor)
-            );
-        } catch (HttpResponseException e) {
-            if (e.getStatusCode() == HttpStatus.SC_METHOD_NOT_ALLOWED) {
-                log.warn("Endpoint at {} does not allow HEAD request, so deriving from URI's path", uri);
-                return Paths.get(uri.getPath()).getFileName().toString();
-            }
-            throw new RequestFailedException(uri, e);
+        final String authHeader;
+        if (requestUri.getUserInfo() != null) {
+            authHeader = "Basic " +
+                Base64.getEncoder().withoutPadding()
+                    .encodeToString(requestUri.getUserInfo().getBytes(StandardCharsets.UTF_8));
+            requestUri = removeUserInfo(requestUri);
+        }
+        else {
+            authHeader = null;
+        }
+
+        log.debug("Getting uri={}", requestUri);
+
+        final FetchBuilderBase<?> fetch = sharedFetch.fetch(requestUri)
+            .acceptContentTypes(acceptContentTypes);
+        if (authHeader != null) {
+            fetch.header(HttpHeaderNames.AUTHORIZATION.toString(), authHeader);
+        }
+        if (apikeyHeader != null) {
+            fetch.header("x-api-key", apikeyHeader);
         }
+        return fetch;
     }
 
     private boolean usingPrune() {
@@ -392,58 +399,6 @@ public class GetCommand implements Callable<Integer> {
         }
     }
 
-    private Path processSingleUri(URI uri, CloseableHttpClient client,
-        Path modifiedSinceFile, OutputResponseHandler handler) throws URISyntaxException, IOException {
-        URI requestUri = uri.getPath().startsWith("//") ?
-            alterUriPath(uri, uri.getPath().substring(1)) : uri;
-
-        final String authHeader;
-        if (requestUri.getUserInfo() != null) {
-            authHeader = "Basic " +
-                Base64.getEncoder().withoutPadding()
-                    .encodeToString(requestUri.getUserInfo().getBytes(StandardCharsets.UTF_8));
-            requestUri = removeUserInfo(requestUri);
-        }
-        else {
-            authHeader = null;
-        }
-
-        log.debug("Getting uri={}", requestUri);
-
-        final HttpGet request = new HttpGet(requestUri);
-        if (authHeader != null) {
-            request.addHeader(HttpHeaders.AUTHORIZATION, authHeader);
-        }
-        if (acceptContentTypes != null) {
-            for (String acceptContentType : acceptContentTypes) {
-                request.addHeader(HttpHeaders.ACCEPT, acceptContentType);
-            }
-            handler.setExpectedContentTypes(acceptContentTypes);
-        }
-        if (apikeyHeader != null) {
-            request.addHeader("x-api-key", apikeyHeader);
-        }
-        if (modifiedSinceFile != null && Files.exists(modifiedSinceFile)) {
-            final FileTime lastModifiedTime = Files.getLastModifiedTime(modifiedSinceFile);
-            request.addHeader(HttpHeaders.IF_MODIFIED_SINCE,
-                httpDateTimeFormatter.format(lastModifiedTime.toInstant())
-            );
-
-            // wrap the handler to intercept the NotModified response
-            handler = new NotModifiedHandler(modifiedSinceFile, handler, logProgressEach);
-        }
-
-        final Path file;
-        try {
-            log.debug("Executing {} with headers={}", request, request.getHeaders());
-            file = client.execute(request, handler);
-        } catch (HttpResponseException e) {
-            throw new RequestFailedException(uri, e);
-        }
-
-        return file;
-    }
-
     private void validateSingleUri() {
         if (uris.size() > 1) {
             log.debug("Too many URIs: {}", uris);
@@ -6,16 +6,14 @@ import com.jayway.jsonpath.JsonPath;
 import com.jayway.jsonpath.Option;
 import com.jayway.jsonpath.ParseContext;
 import com.jayway.jsonpath.PathNotFoundException;
-import java.io.IOException;
 import java.io.PrintWriter;
-import java.nio.file.Path;
 import java.util.List;
 import java.util.stream.Collectors;
-import me.itzg.helpers.http.LoggingResponseHandler;
-import me.itzg.helpers.http.OutputResponseHandler;
-import org.apache.hc.core5.http.HttpEntity;
 
-class JsonPathOutputHandler extends LoggingResponseHandler<Path> implements OutputResponseHandler {
+/**
+ * Outputs the value at a JsonPath within retrieved JSON content
+ */
+class JsonPathOutputHandler {
 
   private final PrintWriter writer;
   private final String jsonPath;
@@ -35,10 +33,9 @@ class JsonPathOutputHandler extends LoggingResponseHandler<Path> implements Outp
     );
   }
 
-  @Override
-  public Path handleEntity(HttpEntity entity) throws IOException {
+  public void write(String content) {
 
-    final DocumentContext doc = parseContext.parse(entity.getContent());
+    final DocumentContext doc = parseContext.parse(content);
 
     // first try as an atom converted to a string
     String result = doc.read(jsonPath, String.class);
@@ -62,9 +59,6 @@ class JsonPathOutputHandler extends LoggingResponseHandler<Path> implements Outp
     }
 
     writer.println(result);
-
-    // no filename to return
-    return null;
   }
 
 }
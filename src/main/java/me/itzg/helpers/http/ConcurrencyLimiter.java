@@ -0,0 +1,88 @@
+package me.itzg.helpers.http;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+/**
+ * Limits the number of in-flight requests per host without blocking any threads while waiting
+ * for a permit.
+ */
+class ConcurrencyLimiter {
+
+    private final int maxPerHost;
+    private final Map<String, Permits> hostPermits = new ConcurrentHashMap<>();
+
+    /**
+     * @param maxPerHost if zero or less, then no limit is applied
+     */
+    ConcurrencyLimiter(int maxPerHost) {
+        this.maxPerHost = maxPerHost;
+    }
+
+    /**
+     * @param host typically host and port of the request
+     * @return the result of the given mono, which is subscribed once a permit is available
+     */
+    <R> Mono<R> limit(String host, Mono<R> mono) {
+        if (maxPerHost <= 0) {
+            return mono;
+        }
+
+        final Permits permits = hostPermits.computeIfAbsent(host, key -> new Permits(maxPerHost));
+        return Mono.usingWhen(
+            permits.acquire(),
+            permit -> mono,
+            permit -> Mono.fromRunnable(permits::release)
+        );
+    }
+
+    private static class Permits {
+        private final int max;
+        private int inUse;
+        private final Deque<MonoSink<Boolean>> waiting = new ArrayDeque<>();
+
+        Permits(int max) {
+            this.max = max;
+        }
+
+        Mono<Boolean> acquire() {
+            return Mono.create(sink -> {
+                synchronized (this) {
+                    if (inUse < max) {
+                        ++inUse;
+                        sink.success(true);
+                        return;
+                    }
+                    waiting.add(sink);
+                }
+                sink.onCancel(() -> {
+                    final boolean removed;
+                    synchronized (this) {
+                        removed = waiting.remove(sink);
+                    }
+                    if (!removed) {
+                        // permit was concurrently handed over, but will never be used
+                        release();
+                    }
+                });
+            });
+        }
+
+        void release() {
+            final MonoSink<Boolean> next;
+            synchronized (this) {
+                next = waiting.poll();
+                if (next == null) {
+                    --inUse;
+                    return;
+                }
+            }
+            // hand the permit directly to the next waiting request
+            next.success(true);
+        }
+    }
+}
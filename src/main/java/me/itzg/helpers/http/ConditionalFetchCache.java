@@ -0,0 +1,181 @@
+package me.itzg.helpers.http;
+
+import static io.netty.handler.codec.http.HttpHeaderNames.ETAG;
+import static io.netty.handler.codec.http.HttpHeaderNames.IF_MODIFIED_SINCE;
+import static io.netty.handler.codec.http.HttpHeaderNames.IF_NONE_MATCH;
+import static io.netty.handler.codec.http.HttpHeaderNames.LAST_MODIFIED;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.netty.handler.codec.http.HttpHeaders;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import me.itzg.helpers.json.ObjectMappers;
+import org.apache.commons.codec.digest.DigestUtils;
+
+/**
+ * Records the ETag and Last-Modified validators of responses, keyed by URI, so that later requests can
+ * be made conditional with If-None-Match and If-Modified-Since. For in-memory responses the body is
+ * also retained so it can be served when the server responds with 304 Not Modified.
+ */
+@Slf4j
+public class ConditionalFetchCache {
+
+    private static final String VALIDATORS_SUFFIX = ".json";
+    private static final String BODY_SUFFIX = ".body";
+
+    private final Path cacheDir;
+    private final ObjectMapper objectMapper = ObjectMappers.defaultMapper();
+
+    @Data
+    static class Validators {
+        private String uri;
+        private String etag;
+        private String lastModified;
+        /**
+         * For file downloads, the file that was written from the response
+         */
+        private String file;
+        private Long fileSize;
+        private Long fileLastModified;
+    }
+
+    public ConditionalFetchCache(Path cacheDir) {
+        this.cacheDir = cacheDir;
+    }
+
+    /**
+     * @return validators of the previous response when its body is also still available, otherwise null
+     */
+    Validators lookupBody(URI uri) {
+        final String key = key(uri);
+        if (!Files.exists(cacheDir.resolve(key + BODY_SUFFIX))) {
+            return null;
+        }
+        return readValidators(key);
+    }
+
+    /**
+     * @return validators of the previous response when the given file is unchanged since it was written from
+     * that response, otherwise null
+     */
+    Validators lookupFile(URI uri, Path file) {
+        final Validators validators = readValidators(key(uri));
+        if (validators == null || validators.getFile() == null) {
+            return null;
+        }
+
+        try {
+            final BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            if (validators.getFile().equals(file.toAbsolutePath().toString())
+                && validators.getFileSize() != null && validators.getFileSize() == attributes.size()
+                && validators.getFileLastModified() != null
+                && validators.getFileLastModified() == attributes.lastModifiedTime().toMillis()
+            ) {
+                return validators;
+            }
+        } catch (IOException e) {
+            log.debug("Unable to read attributes of {}", file, e);
+        }
+        return null;
+    }
+
+    static void applyConditionalHeaders(HttpHeaders headers, Validators validators) {
+        if (validators == null) {
+            return;
+        }
+        if (validators.getEtag() != null) {
+            headers.set(IF_NONE_MATCH, validators.getEtag());
+        }
+        if (validators.getLastModified() != null) {
+            headers.set(IF_MODIFIED_SINCE, validators.getLastModified());
+        }
+    }
+
+    byte[] loadBody(URI uri) throws IOException {
+        return Files.readAllBytes(cacheDir.resolve(key(uri) + BODY_SUFFIX));
+    }
+
+    /**
+     * Retains the body of a successful response if it included any validators
+     */
+    void storeBody(URI uri, HttpHeaders responseHeaders, byte[] body) {
+        final Validators validators = buildValidators(uri, responseHeaders);
+        if (validators == null) {
+            return;
+        }
+
+        final String key = key(uri);
+        try {
+            Files.createDirectories(cacheDir);
+            final Path tempFile = Files.createTempFile(cacheDir, key, ".tmp");
+            Files.write(tempFile, body);
+            Files.move(tempFile, cacheDir.resolve(key + BODY_SUFFIX), StandardCopyOption.REPLACE_EXISTING);
+            writeValidators(key, validators);
+        } catch (IOException e) {
+            log.warn("Unable to cache response body of {}", uri, e);
+        }
+    }
+
+    /**
+     * Records the validators of a successful response that was written to the given file
+     */
+    void storeFile(URI uri, HttpHeaders responseHeaders, Path file) {
+        final Validators validators = buildValidators(uri, responseHeaders);
+        if (validators == null) {
+            return;
+        }
+
+        try {
+            final BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            validators
+                .setFile(file.toAbsolutePath().toString())
+                .setFileSize(attributes.size())
+                .setFileLastModified(attributes.lastModifiedTime().toMillis());
+            Files.createDirectories(cacheDir);
+            writeValidators(key(uri), validators);
+        } catch (IOException e) {
+            log.warn("Unable to record validators of {}", uri, e);
+        }
+    }
+
+    private static Validators buildValidators(URI uri, HttpHeaders responseHeaders) {
+        final String etag = responseHeaders.get(ETAG);
+        final String lastModified = responseHeaders.get(LAST_MODIFIED);
+        if (etag == null && lastModified == null) {
+            return null;
+        }
+        return new Validators()
+            .setUri(uri.toString())
+            .setEtag(etag)
+            .setLastModified(lastModified);
+    }
+
+    private Validators readValidators(String key) {
+        final Path validatorsFile = cacheDir.resolve(key + VALIDATORS_SUFFIX);
+        if (!Files.exists(validatorsFile)) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(validatorsFile.toFile(), Validators.class);
+        } catch (IOException e) {
+            log.debug("Unable to read cached validators from {}", validatorsFile, e);
+            return null;
+        }
+    }
+
+    private void writeValidators(String key, Validators validators) throws IOException {
+        final Path tempFile = Files.createTempFile(cacheDir, key, ".tmp");
+        objectMapper.writeValue(tempFile.toFile(), validators);
+        Files.move(tempFile, cacheDir.resolve(key + VALIDATORS_SUFFIX), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static String key(URI uri) {
+        return DigestUtils.sha1Hex(uri.toString());
+    }
+}
@@ -11,17 +11,26 @@ public class FailedRequestException extends RuntimeException {
     private final URI uri;
     private final int statusCode;
     private final String body;
+    /**
+     * Value of the Retry-After response header, if any
+     */
+    private final String retryAfter;
 
     /**
      * Reactor Netty flavor
      */
     public FailedRequestException(HttpResponseStatus status, URI uri, String body, String msg) {
+        this(status, uri, body, msg, null);
+    }
+
+    public FailedRequestException(HttpResponseStatus status, URI uri, String body, String msg, String retryAfter) {
         super(
             String.format("HTTP request of %s failed with %s: %s", uri, status, msg)
         );
         this.uri = uri;
         this.statusCode = status.code();
         this.body = body;
+        this.retryAfter = retryAfter;
     }
 
     @SuppressWarnings("unused")
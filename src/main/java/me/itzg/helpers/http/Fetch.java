@@ -2,9 +2,13 @@ package me.itzg.helpers.http;
 
 import java.net.URI;
 import me.itzg.helpers.http.SharedFetch.Options;
+import reactor.core.Disposable;
+import reactor.netty.resources.ConnectionProvider;
 
 public class Fetch {
 
+    private static volatile ConnectionProvider sharedConnectionProvider;
+
     /**
      * Perform a single fetch (web request) to the given URI/URL.
      */
@@ -20,6 +24,29 @@ public class Fetch {
         return new SharedFetch(forCommand, options);
     }
 
+    /**
+     * Shares one connection pool across all shared fetches created until the returned disposable is disposed,
+     * such as by commands run in sequence within the same JVM, so that connections to the same hosts are re-used.
+     * @param options only the connection pool options are used
+     * @return disposes the shared connection pool
+     */
+    public static Disposable shareConnections(Options options) {
+        final ConnectionProvider connectionProvider =
+            SharedFetch.createConnectionProvider(options, FetchMetrics.global());
+        sharedConnectionProvider = connectionProvider;
+        return () -> {
+            sharedConnectionProvider = null;
+            connectionProvider.dispose();
+        };
+    }
+
+    /**
+     * @return null when connections are not being shared
+     */
+    static ConnectionProvider sharedConnectionProvider() {
+        return sharedConnectionProvider;
+    }
+
     private Fetch() {
     }
 }
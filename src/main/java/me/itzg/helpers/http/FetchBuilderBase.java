@@ -1,15 +1,20 @@
 package me.itzg.helpers.http;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.netty.buffer.ByteBufHolder;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.handler.codec.http.HttpHeaders;
 import io.netty.handler.codec.http.HttpStatusClass;
 import io.netty.handler.codec.http.HttpUtil;
 import lombok.extern.slf4j.Slf4j;
 import me.itzg.helpers.errors.GenericException;
+import me.itzg.helpers.http.FetchMetrics.HostMetrics;
 import me.itzg.helpers.http.SharedFetch.Options;
 import me.itzg.helpers.json.ObjectMappers;
 import org.slf4j.Logger;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
 import reactor.netty.ByteBufMono;
 import reactor.netty.Connection;
 import reactor.netty.http.client.HttpClient;
@@ -19,7 +24,10 @@ import reactor.netty.http.client.HttpClientResponse;
 
 import java.net.URI;
 import java.nio.file.Path;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.regex.Matcher;
@@ -28,10 +36,16 @@ import java.util.stream.Collectors;
 
 import static io.netty.handler.codec.http.HttpHeaderNames.ACCEPT;
 import static io.netty.handler.codec.http.HttpHeaderNames.CONTENT_TYPE;
+import static io.netty.handler.codec.http.HttpHeaderNames.RETRY_AFTER;
 
 @Slf4j
 public class FetchBuilderBase<SELF extends FetchBuilderBase<SELF>> {
 
+    protected final static DateTimeFormatter httpDateTimeFormatter =
+        DateTimeFormatter.RFC_1123_DATE_TIME.withZone(ZoneId.of("GMT"));
+
+    private static final String BYTE_COUNTER_HANDLER = "fetchMetricsByteCounter";
+
     private static final Pattern HEADER_KEYS_TO_REDACT = Pattern.compile("authorization|api-key", Pattern.CASE_INSENSITIVE);
 
     static class State {
@@ -75,6 +89,13 @@ public class FetchBuilderBase<SELF extends FetchBuilderBase<SELF>> {
         return new StringFetchBuilder(this.state);
     }
 
+    /**
+     * Checks the status of the resource with a HEAD request
+     */
+    public StatusFetchBuilder checkStatus() {
+        return new StatusFetchBuilder(this.state);
+    }
+
     /**
      * NOTE: this will set expected content types to application/json
      */
@@ -104,6 +125,13 @@ public class FetchBuilderBase<SELF extends FetchBuilderBase<SELF>> {
         return new FormFetchBuilder(state, prepareForm);
     }
 
+    /**
+     * @param body an object that will be serialized as JSON and POST'ed
+     */
+    public JsonBodyFetchBuilder sendJson(Object body) {
+        return new JsonBodyFetchBuilder(state, body);
+    }
+
     protected URI uri() {
         return state.uri;
     }
@@ -142,17 +170,106 @@ public class FetchBuilderBase<SELF extends FetchBuilderBase<SELF>> {
         R use(HttpClient client);
     }
 
-    protected <R> R useReactiveClient(ReactiveClientUser<R> user) {
+    /**
+     * The given user is invoked once and the resulting request is re-subscribed when retried, so it
+     * must defer any per-attempt preparation.
+     */
+    protected <R> Mono<R> useReactiveClient(ReactiveClientUser<Mono<R>> user) {
         if (state.sharedFetch != null) {
-            return user.use(state.sharedFetch.getReactiveClient());
+            final HostMetrics hostMetrics = hostMetrics(state.sharedFetch);
+            return state.sharedFetch.applyRetries(state.uri,
+                state.sharedFetch.throttle(state.uri,
+                    state.sharedFetch.limitConcurrency(state.uri,
+                        instrument(state.sharedFetch, hostMetrics, user)
+                    )
+                ),
+                () -> state.sharedFetch.getMetrics().recordRetry(hostMetrics)
+            );
         }
         else {
             try (SharedFetch sharedFetch = new SharedFetch(state.userAgentCommand, Options.builder().build())) {
-                return user.use(sharedFetch.getReactiveClient());
+                final HostMetrics hostMetrics = hostMetrics(sharedFetch);
+                return sharedFetch.applyRetries(state.uri,
+                    instrument(sharedFetch, hostMetrics, user),
+                    () -> sharedFetch.getMetrics().recordRetry(hostMetrics)
+                );
             }
         }
     }
 
+    private HostMetrics hostMetrics(SharedFetch sharedFetch) {
+        return sharedFetch.getMetrics().forHost(state.uri.getHost(), getClass().getSimpleName());
+    }
+
+    /**
+     * Records the metrics of each attempt of the request
+     */
+    private <R> Mono<R> instrument(SharedFetch sharedFetch, HostMetrics hostMetrics, ReactiveClientUser<Mono<R>> user) {
+        final FetchMetrics metrics = sharedFetch.getMetrics();
+        // attempts are sequential, so they can share this
+        final Attempt attempt = new Attempt();
+
+        final Mono<R> request = user.use(
+            sharedFetch.getReactiveClient()
+                .doOnRequest((req, connection) ->
+                    connection.addHandlerFirst(BYTE_COUNTER_HANDLER, new ByteCountingHandler(attempt.bytes))
+                )
+                .doOnResponse((resp, connection) ->
+                    metrics.recordResponse(hostMetrics, resp.status().code(), System.nanoTime() - attempt.start)
+                )
+        );
+
+        return Mono.defer(() -> {
+                attempt.start = System.nanoTime();
+                attempt.bytes.reset();
+                metrics.recordRequest(hostMetrics);
+                return request;
+            })
+            .doFinally(signalType -> metrics.recordCompletion(hostMetrics,
+                System.nanoTime() - attempt.start, attempt.bytes.sum(), signalType == SignalType.ON_ERROR
+            ));
+    }
+
+    private static class Attempt {
+        volatile long start;
+        final LongAdder bytes = new LongAdder();
+    }
+
+    /**
+     * Counts the response content bytes received on a connection
+     */
+    private static class ByteCountingHandler extends ChannelInboundHandlerAdapter {
+        private final LongAdder bytes;
+
+        ByteCountingHandler(LongAdder bytes) {
+            this.bytes = bytes;
+        }
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            if (msg instanceof ByteBufHolder) {
+                bytes.add(((ByteBufHolder) msg).content().readableBytes());
+            }
+            ctx.fireChannelRead(msg);
+        }
+    }
+
+    /**
+     * Records that the response was served from a local cache after the server indicated it was unchanged
+     */
+    protected void recordCacheHit() {
+        if (state.sharedFetch != null) {
+            state.sharedFetch.getMetrics().recordCacheHit(hostMetrics(state.sharedFetch));
+        }
+    }
+
+    /**
+     * @return the conditional request cache of the shared fetch, if enabled, otherwise null
+     */
+    protected ConditionalFetchCache conditionalFetchCache() {
+        return state.sharedFetch != null ? state.sharedFetch.getConditionalFetchCache() : null;
+    }
+
     protected static BiConsumer<? super HttpClientRequest, ? super Connection> debugLogRequest(
         Logger log, String operation
     ) {
@@ -183,7 +300,9 @@ public class FetchBuilderBase<SELF extends FetchBuilderBase<SELF>> {
     protected  <R> Mono<R> failedRequestMono(HttpClientResponse resp, ByteBufMono bodyMono, String description) {
         return (bodyMono != null ? bodyMono.asString() : Mono.just(""))
             .defaultIfEmpty("")
-            .flatMap(body -> Mono.error(new FailedRequestException(resp.status(), uri(), body, description)));
+            .flatMap(body -> Mono.error(new FailedRequestException(resp.status(), uri(), body, description,
+                resp.responseHeaders().get(RETRY_AFTER)
+            )));
     }
 
     protected static boolean notSuccess(HttpClientResponse resp) {
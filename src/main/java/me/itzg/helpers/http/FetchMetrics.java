@@ -0,0 +1,438 @@
+package me.itzg.helpers.http;
+
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import me.itzg.helpers.json.ObjectMappers;
+import reactor.netty.resources.ConnectionPoolMetrics;
+import reactor.netty.resources.ConnectionProvider;
+
+/**
+ * Collects metrics of all requests made through {@link SharedFetch} in this process, keyed by host and
+ * fetch builder type, along with statistics of the connection pools. The collected metrics can be written
+ * at the end of a command as a JSON summary or as a Prometheus textfile.
+ */
+@Slf4j
+public class FetchMetrics {
+
+    public enum Format {
+        json,
+        prometheus
+    }
+
+    private static final FetchMetrics GLOBAL = new FetchMetrics();
+
+    private static final String PROMETHEUS_PREFIX = "mc_image_helper_fetch_";
+
+    /**
+     * Upper bounds, in seconds, of the latency histogram buckets
+     */
+    static final double[] LATENCY_BUCKETS = {
+        0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30, 60
+    };
+
+    private final Map<Key, HostMetrics> hostMetrics = new ConcurrentHashMap<>();
+    /**
+     * Each connection provider has its own pool per remote address, so there can be several pools to the same address
+     */
+    private final Queue<PoolMetrics> poolMetrics = new ConcurrentLinkedQueue<>();
+
+    public static FetchMetrics global() {
+        return GLOBAL;
+    }
+
+    @Data
+    static class Key {
+        final String host;
+        final String builder;
+    }
+
+    static class HostMetrics {
+        final LongAdder requests = new LongAdder();
+        final LongAdder bytes = new LongAdder();
+        final LongAdder notModified = new LongAdder();
+        final LongAdder retries = new LongAdder();
+        final LongAdder cacheHits = new LongAdder();
+        final LongAdder errors = new LongAdder();
+        final Map<Integer, LongAdder> statusCodes = new ConcurrentHashMap<>();
+        final LatencyHistogram timeToFirstByte = new LatencyHistogram();
+        final LatencyHistogram totalTime = new LatencyHistogram();
+    }
+
+    static class LatencyHistogram {
+        final LongAdder[] buckets = new LongAdder[LATENCY_BUCKETS.length];
+        final LongAdder count = new LongAdder();
+        final LongAdder sumNanos = new LongAdder();
+
+        LatencyHistogram() {
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        void record(long nanos) {
+            final double seconds = (double) nanos / TimeUnit.SECONDS.toNanos(1);
+            for (int i = 0; i < LATENCY_BUCKETS.length; i++) {
+                if (seconds <= LATENCY_BUCKETS[i]) {
+                    buckets[i].increment();
+                    break;
+                }
+            }
+            count.increment();
+            sumNanos.add(nanos);
+        }
+    }
+
+    static class PoolMetrics {
+        final String poolId;
+        final String remoteAddress;
+        final ConnectionPoolMetrics metrics;
+        final AtomicInteger maxAcquired = new AtomicInteger();
+        final AtomicInteger maxPending = new AtomicInteger();
+
+        PoolMetrics(String poolId, String remoteAddress, ConnectionPoolMetrics metrics) {
+            this.poolId = poolId;
+            this.remoteAddress = remoteAddress;
+            this.metrics = metrics;
+        }
+
+        void sample() {
+            maxAcquired.accumulateAndGet(metrics.acquiredSize(), Math::max);
+            maxPending.accumulateAndGet(metrics.pendingAcquireSize(), Math::max);
+        }
+    }
+
+    HostMetrics forHost(String host, String builder) {
+        return hostMetrics.computeIfAbsent(new Key(host != null ? host : "unknown", builder),
+            key -> new HostMetrics()
+        );
+    }
+
+    void recordRequest(HostMetrics metrics) {
+        metrics.requests.increment();
+        samplePools();
+    }
+
+    void recordResponse(HostMetrics metrics, int statusCode, long timeToFirstByteNanos) {
+        metrics.statusCodes.computeIfAbsent(statusCode, code -> new LongAdder()).increment();
+        if (statusCode == 304) {
+            metrics.notModified.increment();
+        }
+        metrics.timeToFirstByte.record(timeToFirstByteNanos);
+    }
+
+    void recordCompletion(HostMetrics metrics, long totalNanos, long bytes, boolean failed) {
+        metrics.totalTime.record(totalNanos);
+        metrics.bytes.add(bytes);
+        if (failed) {
+            metrics.errors.increment();
+        }
+        samplePools();
+    }
+
+    void recordRetry(HostMetrics metrics) {
+        metrics.retries.increment();
+    }
+
+    void recordCacheHit(HostMetrics metrics) {
+        metrics.cacheHits.increment();
+    }
+
+    /**
+     * @return a registrar that tracks the statistics of the pools of a {@link ConnectionProvider}
+     */
+    ConnectionProvider.MeterRegistrar poolRegistrar() {
+        return new ConnectionProvider.MeterRegistrar() {
+            @Override
+            public void registerMetrics(String poolName, String id, SocketAddress remoteAddress,
+                ConnectionPoolMetrics metrics
+            ) {
+                poolMetrics.add(new PoolMetrics(poolName + "-" + id, describe(remoteAddress), metrics));
+            }
+
+            @Override
+            public void deRegisterMetrics(String poolName, String id, SocketAddress remoteAddress) {
+                // retain the final statistics
+                final String poolId = poolName + "-" + id;
+                final String address = describe(remoteAddress);
+                for (final PoolMetrics pool : poolMetrics) {
+                    if (pool.poolId.equals(poolId) && pool.remoteAddress.equals(address)) {
+                        pool.sample();
+                    }
+                }
+            }
+        };
+    }
+
+    private void samplePools() {
+        for (final PoolMetrics pool : poolMetrics) {
+            pool.sample();
+        }
+    }
+
+    private static String describe(SocketAddress remoteAddress) {
+        if (remoteAddress instanceof InetSocketAddress) {
+            final InetSocketAddress address = (InetSocketAddress) remoteAddress;
+            return address.getHostString() + ":" + address.getPort();
+        }
+        return String.valueOf(remoteAddress);
+    }
+
+    public void write(Path file, Format format) throws IOException {
+        final Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        // write to temp file and move into place so a textfile collector never sees a partial file
+        final Path tempFile = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        try {
+            try (Writer writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+                if (format == Format.prometheus) {
+                    writePrometheus(writer);
+                }
+                else {
+                    ObjectMappers.defaultMapper()
+                        .writer(SerializationFeature.INDENT_OUTPUT)
+                        .writeValue(writer, summarize());
+                }
+            }
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    @Data
+    static class Summary {
+        List<HostSummary> hosts;
+        List<PoolSummary> pools;
+    }
+
+    @Data
+    static class HostSummary {
+        String host;
+        String builder;
+        long requests;
+        long bytes;
+        long notModified;
+        long retries;
+        long cacheHits;
+        long errors;
+        Map<String, Long> statusCodes;
+        HistogramSummary timeToFirstByte;
+        HistogramSummary totalTime;
+    }
+
+    @Data
+    static class HistogramSummary {
+        long count;
+        double sumSeconds;
+        /**
+         * Cumulative counts keyed by upper bound in seconds
+         */
+        Map<String, Long> buckets;
+    }
+
+    /**
+     * Statistics of all pools to a remote address, such as from separate connection providers, added together
+     */
+    @Data
+    static class PoolSummary {
+        String remoteAddress;
+        int pools;
+        int acquired;
+        int idle;
+        int pending;
+        int allocated;
+        int maxAcquired;
+        int maxPending;
+    }
+
+    Summary summarize() {
+        samplePools();
+
+        final List<HostSummary> hosts = new ArrayList<>();
+        hostMetrics.forEach((key, metrics) -> {
+            final Map<String, Long> statusCodes = new LinkedHashMap<>();
+            metrics.statusCodes.forEach((code, count) -> statusCodes.put(String.valueOf(code), count.sum()));
+
+            hosts.add(new HostSummary()
+                .setHost(key.getHost())
+                .setBuilder(key.getBuilder())
+                .setRequests(metrics.requests.sum())
+                .setBytes(metrics.bytes.sum())
+                .setNotModified(metrics.notModified.sum())
+                .setRetries(metrics.retries.sum())
+                .setCacheHits(metrics.cacheHits.sum())
+                .setErrors(metrics.errors.sum())
+                .setStatusCodes(statusCodes)
+                .setTimeToFirstByte(summarize(metrics.timeToFirstByte))
+                .setTotalTime(summarize(metrics.totalTime))
+            );
+        });
+
+        // one summary per address keeps the Prometheus series unique
+        final Map<String, PoolSummary> pools = new TreeMap<>();
+        for (final PoolMetrics pool : poolMetrics) {
+            final PoolSummary summary = pools.computeIfAbsent(pool.remoteAddress,
+                address -> new PoolSummary().setRemoteAddress(address)
+            );
+            summary
+                .setPools(summary.getPools() + 1)
+                .setAcquired(summary.getAcquired() + pool.metrics.acquiredSize())
+                .setIdle(summary.getIdle() + pool.metrics.idleSize())
+                .setPending(summary.getPending() + pool.metrics.pendingAcquireSize())
+                .setAllocated(summary.getAllocated() + pool.metrics.allocatedSize())
+                // the maximums of the pools may not have happened at the same time, so this is an upper bound
+                .setMaxAcquired(summary.getMaxAcquired() + pool.maxAcquired.get())
+                .setMaxPending(summary.getMaxPending() + pool.maxPending.get());
+        }
+
+        return new Summary()
+            .setHosts(hosts)
+            .setPools(new ArrayList<>(pools.values()));
+    }
+
+    private static HistogramSummary summarize(LatencyHistogram histogram) {
+        final Map<String, Long> buckets = new LinkedHashMap<>();
+        long cumulative = 0;
+        for (int i = 0; i < LATENCY_BUCKETS.length; i++) {
+            cumulative += histogram.buckets[i].sum();
+            buckets.put(formatBound(LATENCY_BUCKETS[i]), cumulative);
+        }
+        return new HistogramSummary()
+            .setCount(histogram.count.sum())
+            .setSumSeconds(toSeconds(histogram.sumNanos.sum()))
+            .setBuckets(buckets);
+    }
+
+    private void writePrometheus(Writer writer) {
+        final Summary summary = summarize();
+        final PrintWriter out = new PrintWriter(writer);
+
+        writeCounter(out, summary, "requests_total", "Requests sent, including retries", HostSummary::getRequests);
+        writeCounter(out, summary, "response_bytes_total", "Bytes of response content received", HostSummary::getBytes);
+        writeCounter(out, summary, "not_modified_total", "Responses with status 304", HostSummary::getNotModified);
+        writeCounter(out, summary, "retries_total", "Requests that were retried", HostSummary::getRetries);
+        writeCounter(out, summary, "cache_hits_total", "Responses served from the conditional request cache",
+            HostSummary::getCacheHits
+        );
+        writeCounter(out, summary, "errors_total", "Requests that failed", HostSummary::getErrors);
+
+        writeHeader(out, "responses_total", "Responses by status code", "counter");
+        for (final HostSummary host : summary.getHosts()) {
+            host.getStatusCodes().forEach((code, count) ->
+                out.printf("%sresponses_total{%s,status=\"%s\"} %d%n", PROMETHEUS_PREFIX, labels(host), code, count)
+            );
+        }
+
+        writeHistogram(out, summary, "time_to_first_byte_seconds", "Time until response headers were received",
+            HostSummary::getTimeToFirstByte
+        );
+        writeHistogram(out, summary, "total_time_seconds", "Time until the response was fully processed",
+            HostSummary::getTotalTime
+        );
+
+        writePoolGauge(out, summary, "pool_acquired_connections", "Connections currently in use", PoolSummary::getAcquired);
+        writePoolGauge(out, summary, "pool_idle_connections", "Connections currently idle", PoolSummary::getIdle);
+        writePoolGauge(out, summary, "pool_pending_acquires", "Requests currently waiting for a connection",
+            PoolSummary::getPending
+        );
+        writePoolGauge(out, summary, "pool_max_acquired_connections",
+            "Most connections in use at once by each pool, added together",
+            PoolSummary::getMaxAcquired
+        );
+        writePoolGauge(out, summary, "pool_max_pending_acquires",
+            "Most requests waiting for a connection at once in each pool, added together",
+            PoolSummary::getMaxPending
+        );
+
+        out.flush();
+    }
+
+    private interface HostValue {
+        long get(HostSummary host);
+    }
+
+    private interface PoolValue {
+        int get(PoolSummary pool);
+    }
+
+    private interface HistogramValue {
+        HistogramSummary get(HostSummary host);
+    }
+
+    private static void writeCounter(PrintWriter out, Summary summary, String name, String help, HostValue value) {
+        writeHeader(out, name, help, "counter");
+        for (final HostSummary host : summary.getHosts()) {
+            out.printf("%s%s{%s} %d%n", PROMETHEUS_PREFIX, name, labels(host), value.get(host));
+        }
+    }
+
+    private static void writeHistogram(PrintWriter out, Summary summary, String name, String help,
+        HistogramValue value
+    ) {
+        writeHeader(out, name, help, "histogram");
+        for (final HostSummary host : summary.getHosts()) {
+            final HistogramSummary histogram = value.get(host);
+            final String labels = labels(host);
+            histogram.getBuckets().forEach((bound, count) ->
+                out.printf("%s%s_bucket{%s,le=\"%s\"} %d%n", PROMETHEUS_PREFIX, name, labels, bound, count)
+            );
+            out.printf("%s%s_bucket{%s,le=\"+Inf\"} %d%n", PROMETHEUS_PREFIX, name, labels, histogram.getCount());
+            out.printf(Locale.ROOT, "%s%s_sum{%s} %f%n", PROMETHEUS_PREFIX, name, labels, histogram.getSumSeconds());
+            out.printf("%s%s_count{%s} %d%n", PROMETHEUS_PREFIX, name, labels, histogram.getCount());
+        }
+    }
+
+    private static void writePoolGauge(PrintWriter out, Summary summary, String name, String help, PoolValue value) {
+        writeHeader(out, name, help, "gauge");
+        for (final PoolSummary pool : summary.getPools()) {
+            out.printf("%s%s{remote_address=\"%s\"} %d%n", PROMETHEUS_PREFIX, name,
+                escapeLabel(pool.getRemoteAddress()), value.get(pool)
+            );
+        }
+    }
+
+    private static void writeHeader(PrintWriter out, String name, String help, String type) {
+        out.printf("# HELP %s%s %s%n", PROMETHEUS_PREFIX, name, help);
+        out.printf("# TYPE %s%s %s%n", PROMETHEUS_PREFIX, name, type);
+    }
+
+    private static String labels(HostSummary host) {
+        return String.format("host=\"%s\",builder=\"%s\"", escapeLabel(host.getHost()), escapeLabel(host.getBuilder()));
+    }
+
+    private static String escapeLabel(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static String formatBound(double bound) {
+        return bound == Math.rint(bound) ? String.valueOf((long) bound) : String.valueOf(bound);
+    }
+
+    private static double toSeconds(long nanos) {
+        return (double) nanos / TimeUnit.SECONDS.toNanos(1);
+    }
+}
@@ -1,12 +1,7 @@
 package me.itzg.helpers.http;
 
 import lombok.extern.slf4j.Slf4j;
-import org.apache.hc.client5.http.HttpResponseException;
-import org.apache.hc.core5.http.*;
-import org.apache.hc.core5.http.io.entity.EntityUtils;
 
-import java.io.IOException;
-import java.util.Objects;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -14,20 +9,16 @@ import java.util.regex.Pattern;
 public class FilenameExtractor {
     private static final Pattern RFC_2047_ENCODED = Pattern.compile("=\\?UTF-8\\?Q\\?(.+)\\?=");
 
-  private final LatchingUrisInterceptor interceptor;
-
-  public FilenameExtractor(LatchingUrisInterceptor interceptor) {
-    this.interceptor = Objects.requireNonNull(interceptor, "interceptor is required");
-  }
-
   static String filenameFromContentDisposition(String headerValue) {
       if (headerValue == null) {
           return null;
       }
 
-      final ContentType parsed = ContentType.parse(headerValue);
       log.debug("Response has contentDisposition={}", headerValue);
-      final String filename = parsed.getParameter("filename");
+      final String filename = parameter(headerValue, "filename");
+      if (filename == null) {
+          return null;
+      }
       final Matcher m = RFC_2047_ENCODED.matcher(filename);
       if (m.matches()) {
           return m.group(1);
@@ -35,27 +26,50 @@ public class FilenameExtractor {
       return filename;
   }
 
-  public String extract(ClassicHttpResponse response) throws IOException, ProtocolException {
-    // Same as AbstractHttpClientResponseHandler
-    if (response.getCode() >= HttpStatus.SC_REDIRECTION) {
-      EntityUtils.consume(response.getEntity());
-      throw new HttpResponseException(response.getCode(), response.getReasonPhrase());
-    }
+    /**
+     * @param headerValue such as {@code attachment; filename="file.jar"}
+     * @return the value of the named parameter, unquoted, or null if not present
+     */
+    static String parameter(String headerValue, String name) {
+        final int length = headerValue.length();
+        int pos = headerValue.indexOf(';');
+        while (pos >= 0) {
+            final int nameStart = pos + 1;
+            final int equals = headerValue.indexOf('=', nameStart);
+            final int nextSemicolon = headerValue.indexOf(';', nameStart);
+            if (equals < 0 || (nextSemicolon >= 0 && nextSemicolon < equals)) {
+                // parameter without a value
+                pos = nextSemicolon;
+                continue;
+            }
 
-    final Header contentDisposition = response
-        .getHeader("content-disposition");
+            final String paramName = headerValue.substring(nameStart, equals).trim();
+            int i = equals + 1;
+            while (i < length && Character.isWhitespace(headerValue.charAt(i))) {
+                ++i;
+            }
 
-    String filename = null;
-    if (contentDisposition != null) {
-      filename = filenameFromContentDisposition(contentDisposition.getValue());
-    }
-    if (filename == null) {
-      final String path = interceptor.getLastRequestedUri().getPath();
-      log.debug("Deriving filename from response path={}", path);
-      final int pos = path.lastIndexOf('/');
-      filename = path.substring(pos >= 0 ? pos + 1 : 0);
-    }
+            final String value;
+            if (i < length && headerValue.charAt(i) == '"') {
+                final StringBuilder sb = new StringBuilder();
+                for (++i; i < length && headerValue.charAt(i) != '"'; ++i) {
+                    if (headerValue.charAt(i) == '\\' && i + 1 < length) {
+                        ++i;
+                    }
+                    sb.append(headerValue.charAt(i));
+                }
+                value = sb.toString();
+                pos = headerValue.indexOf(';', i);
+            }
+            else {
+                pos = headerValue.indexOf(';', i);
+                value = headerValue.substring(i, pos >= 0 ? pos : length).trim();
+            }
 
-    return filename;
-  }
+            if (paramName.equalsIgnoreCase(name)) {
+                return value;
+            }
+        }
+        return null;
+    }
 }
@@ -0,0 +1,245 @@
+package me.itzg.helpers.http;
+
+import static io.netty.handler.codec.http.HttpResponseStatus.SERVICE_UNAVAILABLE;
+import static io.netty.handler.codec.http.HttpResponseStatus.TOO_MANY_REQUESTS;
+
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaders;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+/**
+ * Paces requests per host using a token bucket whose rate adapts to feedback from the server:
+ * <ul>
+ *     <li>a 429 response halves the rate and a {@code Retry-After} pauses the host</li>
+ *     <li>{@code X-Ratelimit-Remaining} and {@code X-Ratelimit-Reset}, such as sent by Modrinth, spread
+ *     the remaining requests of the window evenly or pause the host when none remain</li>
+ *     <li>other responses gradually raise the rate again</li>
+ * </ul>
+ * Until a host gives any such feedback, its requests are only limited by the configured rate, if any.
+ */
+@Slf4j
+class HostRateLimiter {
+
+    static final String HEADER_RATELIMIT_LIMIT = "X-Ratelimit-Limit";
+    static final String HEADER_RATELIMIT_REMAINING = "X-Ratelimit-Remaining";
+    static final String HEADER_RATELIMIT_RESET = "X-Ratelimit-Reset";
+
+    /**
+     * Requests per second applied to an unlimited host once it starts responding with 429
+     */
+    static final double THROTTLED_INITIAL_RATE = 5;
+    static final double MIN_RATE = 0.2;
+    /**
+     * Requests per second added to a throttled rate for each response that gave no pushback
+     */
+    static final double RATE_INCREASE = 0.1;
+    /**
+     * When no rate is configured, a throttled host that recovers to this rate is no longer limited
+     */
+    static final double UNTHROTTLED_RATE = 50;
+
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final double maxRate;
+    private final Duration maxPause;
+    private final LongSupplier nanoTime;
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+
+    /**
+     * @param maxRate requests per second allowed to any one host, where zero or less is unlimited until the
+     *                host responds with rate limiting feedback
+     * @param maxPause upper limit of any pause requested by the server
+     */
+    HostRateLimiter(double maxRate, Duration maxPause) {
+        this(maxRate, maxPause, System::nanoTime);
+    }
+
+    HostRateLimiter(double maxRate, Duration maxPause, LongSupplier nanoTime) {
+        this.maxRate = maxRate;
+        this.maxPause = maxPause;
+        this.nanoTime = nanoTime;
+    }
+
+    /**
+     * @return the given mono, which is subscribed once the host's rate allows another request
+     */
+    <R> Mono<R> throttle(String host, Mono<R> mono) {
+        return Mono.defer(() -> {
+            final long delay = reserve(host);
+            if (delay <= 0) {
+                return mono;
+            }
+            log.debug("Delaying request to {} by {}ms due to rate limiting", host, TimeUnit.NANOSECONDS.toMillis(delay));
+            return Mono.delay(Duration.ofNanos(delay))
+                .then(mono);
+        });
+    }
+
+    /**
+     * @return nanoseconds to wait before the reserved request can be sent
+     */
+    long reserve(String host) {
+        return bucket(host).reserve(nanoTime.getAsLong());
+    }
+
+    void observe(String host, int statusCode, HttpHeaders headers) {
+        final Bucket bucket = bucket(host);
+        final long now = nanoTime.getAsLong();
+
+        if (statusCode == TOO_MANY_REQUESTS.code() || statusCode == SERVICE_UNAVAILABLE.code()) {
+            final Duration retryAfter = RetryPolicy.parseRetryAfter(headers.get(HttpHeaderNames.RETRY_AFTER));
+            if (retryAfter != null) {
+                bucket.pause(now, capped(retryAfter));
+            }
+        }
+        if (statusCode == TOO_MANY_REQUESTS.code()) {
+            log.debug("Reducing request rate to {} after receiving 429", host);
+            bucket.decrease(now);
+            return;
+        }
+
+        final Long remaining = parseLong(headers.get(HEADER_RATELIMIT_REMAINING));
+        final Long reset = parseLong(headers.get(HEADER_RATELIMIT_RESET));
+        if (remaining != null && reset != null) {
+            final Long limit = parseLong(headers.get(HEADER_RATELIMIT_LIMIT));
+            if (remaining <= 0) {
+                log.debug("Pausing requests to {} for {}s since its rate limit is exhausted", host, reset);
+                bucket.pause(now, capped(Duration.ofSeconds(reset)));
+                return;
+            }
+            if (limit == null || remaining * 2 < limit) {
+                // spread what remains of the window across the rest of it
+                bucket.adjust(now, (double) remaining / Math.max(reset, 1));
+                return;
+            }
+        }
+
+        bucket.increase(now);
+    }
+
+    private Duration capped(Duration pause) {
+        return pause.compareTo(maxPause) > 0 ? maxPause : pause;
+    }
+
+    private Bucket bucket(String host) {
+        return buckets.computeIfAbsent(host.toLowerCase(Locale.ROOT), key -> new Bucket(maxRate));
+    }
+
+    private static Long parseLong(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static class Bucket {
+
+        private final double maxRate;
+        /**
+         * Requests per second, where zero or less is unlimited
+         */
+        private double rate;
+        /**
+         * Can go negative when requests are reserved ahead of available tokens
+         */
+        private double tokens;
+        private long lastRefill;
+        private boolean refilled;
+        private long lastDecrease;
+        private boolean decreased;
+        private long pausedUntil;
+        private boolean paused;
+
+        Bucket(double maxRate) {
+            this.maxRate = maxRate;
+            this.rate = maxRate;
+            this.tokens = capacity();
+        }
+
+        synchronized long reserve(long now) {
+            long pauseRemaining = paused ? pausedUntil - now : 0;
+            if (pauseRemaining <= 0) {
+                paused = false;
+                pauseRemaining = 0;
+            }
+            if (rate <= 0) {
+                return pauseRemaining;
+            }
+
+            refill(now);
+            tokens -= 1;
+            // requests waiting out a pause are still paced relative to each other once it ends
+            final long deficitDelay = tokens < 0 ? (long) (-tokens / rate * NANOS_PER_SECOND) : 0;
+            return pauseRemaining + deficitDelay;
+        }
+
+        synchronized void pause(long now, Duration pause) {
+            final long until = now + pause.toNanos();
+            if (!paused || until > pausedUntil) {
+                pausedUntil = until;
+                paused = true;
+                refill(now);
+                // no burst is available once the pause ends
+                tokens = Math.min(tokens, 0);
+            }
+        }
+
+        synchronized void decrease(long now) {
+            // responses to requests that were already in flight shouldn't compound the decrease
+            if (decreased && now - lastDecrease < NANOS_PER_SECOND) {
+                return;
+            }
+            decreased = true;
+            lastDecrease = now;
+            refill(now);
+            setRate(rate <= 0 ? THROTTLED_INITIAL_RATE : rate / 2);
+        }
+
+        synchronized void adjust(long now, double newRate) {
+            refill(now);
+            setRate(newRate);
+        }
+
+        synchronized void increase(long now) {
+            if (rate <= 0 || rate >= maxRate && maxRate > 0) {
+                return;
+            }
+            refill(now);
+            if (maxRate <= 0 && rate + RATE_INCREASE >= UNTHROTTLED_RATE) {
+                rate = 0;
+            }
+            else {
+                setRate(rate + RATE_INCREASE);
+            }
+        }
+
+        private void setRate(double newRate) {
+            rate = Math.max(MIN_RATE, maxRate > 0 ? Math.min(newRate, maxRate) : newRate);
+            tokens = Math.min(tokens, capacity());
+        }
+
+        private double capacity() {
+            // allow a burst of up to a second's worth of requests
+            return Math.max(1, rate);
+        }
+
+        private void refill(long now) {
+            if (refilled && rate > 0) {
+                tokens = Math.min(capacity(), tokens + (double) (now - lastRefill) * rate / NANOS_PER_SECOND);
+            }
+            lastRefill = now;
+            refilled = true;
+        }
+    }
+}
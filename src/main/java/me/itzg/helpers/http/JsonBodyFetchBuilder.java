@@ -0,0 +1,44 @@
+package me.itzg.helpers.http;
+
+import static io.netty.handler.codec.http.HttpHeaderNames.CONTENT_TYPE;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import lombok.extern.slf4j.Slf4j;
+import me.itzg.helpers.errors.GenericException;
+import me.itzg.helpers.json.ObjectMappers;
+import reactor.core.publisher.Mono;
+import reactor.netty.ByteBufFlux;
+
+/**
+ * Sends the given body serialized as JSON via a POST request
+ */
+@Slf4j
+public class JsonBodyFetchBuilder extends FetchBuilderBase<JsonBodyFetchBuilder> {
+    private final Object body;
+
+    protected JsonBodyFetchBuilder(State state, Object body) {
+        super(state);
+        this.body = body;
+    }
+
+    public <T> ObjectFetchBuilder<T> toObject(Class<T> type) {
+        final String content;
+        try {
+            content = ObjectMappers.defaultMapper().writeValueAsString(body);
+        } catch (JsonProcessingException e) {
+            throw new GenericException("Failed to serialize request body", e);
+        }
+
+        return super.toObject(type, client -> client
+                .headers(headers -> {
+                    applyHeaders(headers);
+                    headers.set(CONTENT_TYPE, "application/json");
+                })
+                .followRedirect(true)
+                .doOnRequest(debugLogRequest(log, "json post"))
+                .post()
+                .uri(uri())
+                .send(ByteBufFlux.fromString(Mono.just(content)))
+        );
+    }
+}
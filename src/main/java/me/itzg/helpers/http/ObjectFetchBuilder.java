@@ -1,5 +1,7 @@
 package me.itzg.helpers.http;
 
+import static io.netty.handler.codec.http.HttpResponseStatus.NOT_MODIFIED;
+
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectReader;
 import lombok.extern.slf4j.Slf4j;
@@ -22,6 +24,10 @@ public class ObjectFetchBuilder<T> extends FetchBuilderBase<ObjectFetchBuilder<T
     private final boolean listOf;
     private final ObjectReader reader;
     private final RequestAssembler requestAssembler;
+    /**
+     * Only plain GET requests are eligible for conditional requests
+     */
+    private final boolean conditionalEligible;
 
     protected ObjectFetchBuilder(State state, Class<T> type, boolean listOf, ObjectMapper objectMapper) {
         this(state, type, listOf, objectMapper, null);
@@ -38,6 +44,7 @@ public class ObjectFetchBuilder<T> extends FetchBuilderBase<ObjectFetchBuilder<T
             reader = objectMapper.readerFor(type);
         }
         this.requestAssembler = requestAssembler != null ? requestAssembler : this::assembleRequest;
+        this.conditionalEligible = requestAssembler == null;
     }
 
     public T execute() {
@@ -54,10 +61,21 @@ public class ObjectFetchBuilder<T> extends FetchBuilderBase<ObjectFetchBuilder<T
     }
 
     private <R> Mono<R> assembleCommon() {
-        return useReactiveClient(client ->
-            requestAssembler.assembleRequest(client)
-                .responseSingle(this::handleResponse)
-        );
+        final ConditionalFetchCache cache = conditionalEligible ? conditionalFetchCache() : null;
+        if (cache == null) {
+            return useReactiveClient(client ->
+                requestAssembler.assembleRequest(client)
+                    .responseSingle(this::handleResponse)
+            );
+        }
+
+        return useReactiveClient(client -> Mono.defer(() -> {
+            final ConditionalFetchCache.Validators validators = cache.lookupBody(uri());
+            return requestAssembler.assembleRequest(
+                    client.headers(headers -> ConditionalFetchCache.applyConditionalHeaders(headers, validators))
+                )
+                .responseSingle((resp, bodyMono) -> handleConditionalResponse(resp, bodyMono, cache, validators));
+        }));
     }
 
     private HttpClient.ResponseReceiver<?> assembleRequest(HttpClient client) {
@@ -69,6 +87,43 @@ public class ObjectFetchBuilder<T> extends FetchBuilderBase<ObjectFetchBuilder<T
                 .uri(uri());
     }
 
+    private <R> Mono<R> handleConditionalResponse(HttpClientResponse resp, ByteBufMono bodyMono,
+        ConditionalFetchCache cache, ConditionalFetchCache.Validators validators
+    ) {
+        if (validators != null && resp.status() == NOT_MODIFIED) {
+            log.debug("Using cached content of {} since not modified", uri());
+            recordCacheHit();
+            return Mono.fromCallable(() -> cache.loadBody(uri()))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(this::parse);
+        }
+        if (notSuccess(resp)) {
+            return failedRequestMono(resp, bodyMono, "Fetching object content");
+        }
+        if (notExpectedContentType(resp)) {
+            return failedContentTypeMono(resp);
+        }
+
+        return bodyMono.asByteArray()
+            .publishOn(Schedulers.boundedElastic())
+            .flatMap(content -> {
+                cache.storeBody(uri(), resp.responseHeaders(), content);
+                return parse(content);
+            });
+    }
+
+    private <R> Mono<R> parse(byte[] content) {
+        try {
+            return Mono.just(reader.readValue(content));
+        } catch (IOException e) {
+            return Mono.error(new GenericException(
+                "Failed to parse response body into " +
+                    (listOf ? "list of " + type : type),
+                e
+            ));
+        }
+    }
+
     private <R> Mono<R> handleResponse(HttpClientResponse resp, ByteBufMono bodyMono) {
         if (notSuccess(resp)) {
             return failedRequestMono(resp, bodyMono, "Fetching object content");
@@ -1,15 +1,19 @@
 package me.itzg.helpers.http;
 
+import static io.netty.handler.codec.http.HttpHeaderNames.IF_MODIFIED_SINCE;
+import static io.netty.handler.codec.http.HttpResponseStatus.METHOD_NOT_ALLOWED;
+import static io.netty.handler.codec.http.HttpResponseStatus.NOT_MODIFIED;
+import static io.netty.handler.codec.http.HttpResponseStatus.REQUESTED_RANGE_NOT_SATISFIABLE;
 import static java.util.Objects.requireNonNull;
 
 import io.netty.handler.codec.http.HttpHeaderNames;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardCopyOption;
 import lombok.Setter;
 import lombok.experimental.Accessors;
 import lombok.extern.slf4j.Slf4j;
+import me.itzg.helpers.errors.GenericException;
 import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Schedulers;
 import reactor.netty.http.client.HttpClient;
@@ -22,6 +26,11 @@ public class OutputToDirectoryFetchBuilder extends FetchBuilderBase<OutputToDire
     private final Path outputDirectory;
     @Setter
     private boolean skipExisting;
+    /**
+     * When the file already exists, it is only downloaded again if modified since the file's last modified time
+     */
+    @Setter
+    private boolean skipUpToDate;
     private FileDownloadStatusHandler statusHandler = (status, uri, file) -> {};
     private FileDownloadedHandler downloadedHandler = (uri, file, contentSizeBytes) -> {};
 
@@ -53,17 +62,31 @@ public class OutputToDirectoryFetchBuilder extends FetchBuilderBase<OutputToDire
             .block();
     }
 
+    /**
+     * When {@link #skipExisting} or {@link #skipUpToDate} is set, a HEAD request is used to determine
+     * the filename before downloading; otherwise, the content is retrieved with a single request and
+     * the filename is determined from that response.
+     */
     public Mono<Path> assemble() {
+        if (!skipExisting && !skipUpToDate) {
+            return useReactiveClient(this::assembleSingleRequest);
+        }
+
         return useReactiveClient(client ->
             client
+                .headers(this::applyHeaders)
                 .followRedirect(true)
                 .doOnRequest(debugLogRequest(log, "file head fetch"))
                 .head()
                 .uri(uri())
-                .responseSingle((resp, bodyMono) ->
-                    notSuccess(resp) ? failedRequestMono(resp, bodyMono, "Extracting filename")
-                        : Mono.just(outputDirectory.resolve(extractFilename(resp)))
-                )
+                .responseSingle((resp, bodyMono) -> {
+                    if (resp.status() == METHOD_NOT_ALLOWED) {
+                        log.warn("Endpoint at {} does not allow HEAD request, so deriving from URI's path", uri());
+                        return Mono.just(outputDirectory.resolve(filenameFromPath(uri().getPath())));
+                    }
+                    return notSuccess(resp) ? failedRequestMono(resp, bodyMono, "Extracting filename")
+                        : Mono.just(outputDirectory.resolve(extractFilename(resp)));
+                })
                 .flatMap(outputFile ->
                     assembleFileDownload(client, outputFile)
                 )
@@ -77,31 +100,103 @@ public class OutputToDirectoryFetchBuilder extends FetchBuilderBase<OutputToDire
             return Mono.just(outputFile);
         }
 
+        return Mono.defer(() -> {
+            final PartialDownload partial = PartialDownload.prepare(outputFile);
+            final boolean useIfModifiedSince = skipUpToDate && Files.exists(outputFile);
+
+            return client
+                .doOnRequest((httpClientRequest, connection) -> statusHandler.call(FileDownloadStatus.DOWNLOADING, uri(), null))
+                .headers(headers -> {
+                    if (useIfModifiedSince) {
+                        try {
+                            headers.set(IF_MODIFIED_SINCE,
+                                httpDateTimeFormatter.format(Files.getLastModifiedTime(outputFile).toInstant())
+                            );
+                        } catch (IOException e) {
+                            throw new GenericException("Unable to get last modified time of " + outputFile, e);
+                        }
+                    }
+                    applyHeaders(headers);
+                    partial.applyHeaders(headers);
+                })
+                .followRedirect(true)
+                .doOnRequest(debugLogRequest(log, "file fetch"))
+                .get()
+                .uri(uri())
+                .response((resp, bodyFlux) -> {
+                    if (useIfModifiedSince && resp.status() == NOT_MODIFIED) {
+                        log.debug("File {} is already up to date", outputFile);
+                        recordCacheHit();
+                        statusHandler.call(FileDownloadStatus.SKIP_FILE_UP_TO_DATE, uri(), outputFile);
+                        return Mono.just(outputFile);
+                    }
+                    if (notSuccess(resp)) {
+                        if (resp.status() == REQUESTED_RANGE_NOT_SATISFIABLE) {
+                            // start over on next attempt
+                            partial.discard();
+                        }
+                        return failedRequestMono(resp, bodyFlux.aggregate(), "Downloading file");
+                    }
+                    if (notExpectedContentType(resp)) {
+                        return failedContentTypeMono(resp);
+                    }
+
+                    return partial.write(resp, bodyFlux, null)
+                        .map(size -> {
+                            statusHandler.call(FileDownloadStatus.DOWNLOADED, uri(), outputFile);
+                            downloadedHandler.call(uri(), outputFile, size);
+                            return outputFile;
+                        });
+                })
+                .next();
+        });
+    }
+
+    private Mono<Path> assembleSingleRequest(HttpClient client) {
         return client
             .doOnRequest((httpClientRequest, connection) -> statusHandler.call(FileDownloadStatus.DOWNLOADING, uri(), null))
+            .headers(this::applyHeaders)
             .followRedirect(true)
             .doOnRequest(debugLogRequest(log, "file fetch"))
             .get()
             .uri(uri())
-            .responseSingle((resp, bodyMono) -> {
+            .response((resp, bodyFlux) -> {
                 if (notSuccess(resp)) {
-                    return failedRequestMono(resp, bodyMono, "Downloading file");
+                    return failedRequestMono(resp, bodyFlux.aggregate(), "Downloading file");
+                }
+                if (notExpectedContentType(resp)) {
+                    return failedContentTypeMono(resp);
                 }
 
-                return bodyMono.asInputStream()
-                    .publishOn(Schedulers.boundedElastic())
-                    .flatMap(inputStream -> {
-                        try {
-                            @SuppressWarnings("BlockingMethodInNonBlockingContext") // false warning, see above
-                            final long size = Files.copy(inputStream, outputFile, StandardCopyOption.REPLACE_EXISTING);
-                            statusHandler.call(FileDownloadStatus.DOWNLOADED, uri(), outputFile);
-                            downloadedHandler.call(uri(), outputFile, size);
-                            return Mono.just(outputFile);
-                        } catch (IOException e) {
-                            return Mono.error(e);
-                        }
-                    });
-            });
+                final Path outputFile = outputDirectory.resolve(extractFilename(resp));
+                return Mono.fromCallable(() -> Files.createTempFile(outputDirectory, ".download-", ".tmp"))
+                    .subscribeOn(Schedulers.boundedElastic())
+                    .flatMap(tempFile ->
+                        StreamingFileWriter.write(bodyFlux, tempFile, false, null)
+                            .publishOn(Schedulers.boundedElastic())
+                            .map(size -> {
+                                try {
+                                    StreamingFileWriter.moveIntoPlace(tempFile, outputFile);
+                                } catch (IOException e) {
+                                    throw new GenericException("Unable to move completed download into place at " + outputFile, e);
+                                }
+                                statusHandler.call(FileDownloadStatus.DOWNLOADED, uri(), outputFile);
+                                downloadedHandler.call(uri(), outputFile, size);
+                                return outputFile;
+                            })
+                            .doOnError(throwable -> deleteTempFile(tempFile))
+                            .doOnCancel(() -> deleteTempFile(tempFile))
+                    );
+            })
+            .next();
+    }
+
+    private static void deleteTempFile(Path tempFile) {
+        try {
+            Files.deleteIfExists(tempFile);
+        } catch (IOException e) {
+            log.warn("Unable to delete incomplete download {}", tempFile, e);
+        }
     }
 
     private String extractFilename(HttpClientResponse resp) {
@@ -110,13 +205,13 @@ public class OutputToDirectoryFetchBuilder extends FetchBuilderBase<OutputToDire
         if (dispositionFilename != null) {
             return dispositionFilename;
         }
-        if (resp.redirectedFrom().length > 0) {
-            final String lastUrl = resp.redirectedFrom()[resp.redirectedFrom().length - 1];
-            final int pos = lastUrl.lastIndexOf('/');
-            return lastUrl.substring(pos + 1);
-        }
-        final int pos = resp.path().lastIndexOf('/');
-        return resp.path().substring(pos + 1);
+        // the response is for the final request of any redirects
+        return filenameFromPath(resp.path());
+    }
+
+    private static String filenameFromPath(String path) {
+        final int pos = path.lastIndexOf('/');
+        return path.substring(pos + 1);
     }
 
 }
@@ -0,0 +1,179 @@
+package me.itzg.helpers.http;
+
+import static io.netty.handler.codec.http.HttpHeaderNames.CONTENT_RANGE;
+import static io.netty.handler.codec.http.HttpHeaderNames.ETAG;
+import static io.netty.handler.codec.http.HttpHeaderNames.IF_RANGE;
+import static io.netty.handler.codec.http.HttpHeaderNames.LAST_MODIFIED;
+import static io.netty.handler.codec.http.HttpHeaderNames.RANGE;
+import static io.netty.handler.codec.http.HttpResponseStatus.PARTIAL_CONTENT;
+
+import io.netty.handler.codec.http.HttpHeaders;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import lombok.extern.slf4j.Slf4j;
+import me.itzg.helpers.errors.GenericException;
+import me.itzg.helpers.files.DigestSink;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.netty.ByteBufFlux;
+import reactor.netty.http.client.HttpClientResponse;
+
+/**
+ * Downloads into a {@code .part} file next to the target file and atomically moves it into place
+ * once complete. If a previous attempt left a partial file along with a validator (ETag or Last-Modified)
+ * of the response, then the download is resumed with a {@code Range} request conditioned by {@code If-Range}.
+ */
+@Slf4j
+class PartialDownload {
+
+    static final String PART_SUFFIX = ".part";
+    static final String VALIDATOR_SUFFIX = ".part-validator";
+
+    private final Path target;
+    private final Path partFile;
+    private final Path validatorFile;
+    private final long resumeFrom;
+    private final String validator;
+
+    private PartialDownload(Path target, Path partFile, Path validatorFile, long resumeFrom, String validator) {
+        this.target = target;
+        this.partFile = partFile;
+        this.validatorFile = validatorFile;
+        this.resumeFrom = resumeFrom;
+        this.validator = validator;
+    }
+
+    /**
+     * Determines if a previous partial download can be resumed. This performs blocking file access.
+     */
+    static PartialDownload prepare(Path target) {
+        final Path partFile = target.resolveSibling(target.getFileName() + PART_SUFFIX);
+        final Path validatorFile = target.resolveSibling(target.getFileName() + VALIDATOR_SUFFIX);
+
+        try {
+            if (Files.exists(partFile) && Files.exists(validatorFile)) {
+                final long size = Files.size(partFile);
+                final String validator = new String(Files.readAllBytes(validatorFile), StandardCharsets.UTF_8).trim();
+                if (size > 0 && !validator.isEmpty()) {
+                    log.debug("Will try to resume download of {} from {} bytes", target, size);
+                    return new PartialDownload(target, partFile, validatorFile, size, validator);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Unable to inspect partial download {}, so starting over", partFile, e);
+        }
+        return new PartialDownload(target, partFile, validatorFile, 0, null);
+    }
+
+    Path getTarget() {
+        return target;
+    }
+
+    void applyHeaders(HttpHeaders headers) {
+        if (resumeFrom > 0) {
+            headers.set(RANGE, "bytes=" + resumeFrom + "-");
+            headers.set(IF_RANGE, validator);
+        }
+    }
+
+    /**
+     * Writes the response body into the partial file and moves it into place once complete.
+     * A partial content response that does not continue from the partial file fails with
+     * {@link UnexpectedRangeException} after discarding the partial file, so that a retry starts over.
+     * @param digestSink is reset and then receives the entire content, including any previously downloaded part,
+     *                   can be null
+     * @return the total size of the file
+     */
+    Mono<Long> write(HttpClientResponse resp, ByteBufFlux body, DigestSink digestSink) {
+        final boolean resuming = isResumedResponse(resp);
+        if (!resuming && resp.status().equals(PARTIAL_CONTENT)) {
+            // writing the partial content as the whole file would install a truncated or corrupted download
+            final String contentRange = resp.responseHeaders().get(CONTENT_RANGE);
+            return Mono.<Long>fromRunnable(this::discard)
+                .subscribeOn(Schedulers.boundedElastic())
+                .then(Mono.error(new UnexpectedRangeException(String.format(
+                    "Response for %s has range '%s' rather than from %d", target, contentRange, resumeFrom
+                ))));
+        }
+        if (resumeFrom > 0) {
+            log.debug("Download of {} {}", target, resuming ? "resumed from " + resumeFrom : "restarted from beginning");
+        }
+
+        return Mono.fromCallable(() -> {
+                if (digestSink != null) {
+                    // a retried attempt must not add to the content observed by a previous attempt
+                    digestSink.reset();
+                }
+                if (resuming) {
+                    if (digestSink != null) {
+                        feedExisting(digestSink);
+                    }
+                }
+                else {
+                    saveValidator(resp.responseHeaders());
+                }
+                return resuming;
+            })
+            .subscribeOn(Schedulers.boundedElastic())
+            .flatMap(append -> StreamingFileWriter.write(body, partFile, append, digestSink))
+            .publishOn(Schedulers.boundedElastic())
+            .map(written -> {
+                complete();
+                return resuming ? resumeFrom + written : written;
+            });
+    }
+
+    /**
+     * Removes any partial content, such as when the server indicates the requested range is not satisfiable
+     */
+    void discard() {
+        try {
+            Files.deleteIfExists(partFile);
+            Files.deleteIfExists(validatorFile);
+        } catch (IOException e) {
+            log.warn("Unable to remove partial download {}", partFile, e);
+        }
+    }
+
+    private boolean isResumedResponse(HttpClientResponse resp) {
+        if (resumeFrom <= 0 || !resp.status().equals(PARTIAL_CONTENT)) {
+            return false;
+        }
+        final String contentRange = resp.responseHeaders().get(CONTENT_RANGE);
+        return contentRange != null && contentRange.startsWith("bytes " + resumeFrom + "-");
+    }
+
+    private void feedExisting(DigestSink digestSink) throws IOException {
+        try (InputStream in = Files.newInputStream(partFile)) {
+            final byte[] buf = new byte[8192];
+            int len;
+            while ((len = in.read(buf)) != -1) {
+                digestSink.update(buf, 0, len);
+            }
+        }
+    }
+
+    private void saveValidator(HttpHeaders headers) throws IOException {
+        final String etag = headers.get(ETAG);
+        // weak validators are not allowed with If-Range
+        final String newValidator = etag != null && !etag.startsWith("W/") ? etag : headers.get(LAST_MODIFIED);
+        if (newValidator != null) {
+            Files.write(validatorFile, newValidator.getBytes(StandardCharsets.UTF_8));
+        }
+        else {
+            Files.deleteIfExists(validatorFile);
+        }
+    }
+
+    private void complete() {
+        try {
+            StreamingFileWriter.moveIntoPlace(partFile, target);
+            Files.deleteIfExists(validatorFile);
+        } catch (IOException e) {
+            throw new GenericException("Unable to move completed download into place at " + target, e);
+        }
+    }
+}
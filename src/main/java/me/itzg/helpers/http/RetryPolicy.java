@@ -0,0 +1,175 @@
+package me.itzg.helpers.http;
+
+import static io.netty.handler.codec.http.HttpResponseStatus.FORBIDDEN;
+import static io.netty.handler.codec.http.HttpResponseStatus.SERVICE_UNAVAILABLE;
+import static io.netty.handler.codec.http.HttpResponseStatus.TOO_MANY_REQUESTS;
+
+import io.netty.handler.ssl.SslHandshakeTimeoutException;
+import io.netty.handler.timeout.TimeoutException;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLHandshakeException;
+import javax.net.ssl.SSLPeerUnverifiedException;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.PrematureCloseException;
+import reactor.util.retry.Retry;
+
+/**
+ * Retries requests that failed with a status indicating the server is temporarily unable or unwilling
+ * to respond, or that failed to connect or complete due to a transient network failure. The delay
+ * given by a {@code Retry-After} response header is honored, otherwise the delay
+ * backs off exponentially with jitter.
+ */
+@Slf4j
+class RetryPolicy {
+
+    private static final Set<Integer> RETRIABLE_STATUS_CODES = new HashSet<>(Arrays.asList(
+        TOO_MANY_REQUESTS.code(),
+        SERVICE_UNAVAILABLE.code(),
+        // some APIs, such as CurseForge, are intermittently responding 403
+        FORBIDDEN.code()
+    ));
+
+    private final int maxRetries;
+    private final Duration initialBackoff;
+    private final Duration maxDelay;
+
+    /**
+     * @param maxRetries if zero or less, then requests are not retried
+     * @param maxDelay upper limit of any one delay, including one requested by {@code Retry-After}
+     */
+    RetryPolicy(int maxRetries, Duration initialBackoff, Duration maxDelay) {
+        this.maxRetries = maxRetries;
+        this.initialBackoff = initialBackoff;
+        this.maxDelay = maxDelay;
+    }
+
+    /**
+     * @param request must be re-subscribable where each subscription performs a new request
+     * @param onRetry invoked before each retry is scheduled
+     */
+    <R> Mono<R> apply(URI uri, Mono<R> request, Runnable onRetry) {
+        if (maxRetries <= 0) {
+            return request;
+        }
+
+        return request.retryWhen(Retry.from(signals -> signals.concatMap(signal -> {
+            final Throwable failure = signal.failure();
+            if (signal.totalRetries() >= maxRetries || !isRetriable(failure)) {
+                return Mono.error(failure);
+            }
+
+            final Duration delay = delayFor(signal.totalRetries(), failure);
+            log.debug("Retrying request of {} in {}ms after failure: {}", uri, delay.toMillis(), failure.getMessage());
+            onRetry.run();
+            return Mono.delay(delay);
+        })));
+    }
+
+    static boolean isRetriableStatus(int statusCode) {
+        return RETRIABLE_STATUS_CODES.contains(statusCode);
+    }
+
+    static boolean isRetriable(Throwable failure) {
+        if (failure instanceof FailedRequestException) {
+            return isRetriableStatus(((FailedRequestException) failure).getStatusCode());
+        }
+        // transport failures may be wrapped, such as SSL failures within a decoder exception
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (isCertificateOrTrustFailure(cause)) {
+                return false;
+            }
+            if (isRetriableFailure(cause)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Transport failures are the same as the retry strategy previously used with the Apache client,
+     * where Netty's connect and no-route exceptions extend the JDK ones
+     */
+    private static boolean isRetriableFailure(Throwable failure) {
+        return failure instanceof PrematureCloseException
+            // the partial download was discarded, so a retry starts over
+            || failure instanceof UnexpectedRangeException
+            || failure instanceof ConnectException
+            || failure instanceof UnknownHostException
+            || failure instanceof NoRouteToHostException
+            || failure instanceof InterruptedIOException
+            // such as ReadTimeoutException from the response timeout
+            || failure instanceof TimeoutException
+            // such as the connection being reset during TLS I/O
+            || failure instanceof SSLException;
+    }
+
+    /**
+     * Handshake failures other than timeouts, such as an untrusted or expired certificate,
+     * would fail the same way when retried
+     */
+    private static boolean isCertificateOrTrustFailure(Throwable failure) {
+        return failure instanceof SSLPeerUnverifiedException
+            || (failure instanceof SSLHandshakeException && !(failure instanceof SslHandshakeTimeoutException));
+    }
+
+    Duration delayFor(long retry, Throwable failure) {
+        if (failure instanceof FailedRequestException) {
+            final Duration retryAfter = parseRetryAfter(((FailedRequestException) failure).getRetryAfter());
+            if (retryAfter != null) {
+                return retryAfter.compareTo(maxDelay) > 0 ? maxDelay : retryAfter;
+            }
+        }
+
+        final long backoff = Math.min(
+            initialBackoff.toMillis() << Math.min(retry, 20),
+            maxDelay.toMillis()
+        );
+        // keep at least half of the backoff, but spread out the rest
+        final long half = backoff / 2;
+        return Duration.ofMillis(half + ThreadLocalRandom.current().nextLong(half + 1));
+    }
+
+    /**
+     * @param value either delay-seconds or an HTTP-date
+     * @return the parsed delay or null if absent or not parseable
+     */
+    static Duration parseRetryAfter(String value) {
+        if (value == null) {
+            return null;
+        }
+        final String trimmed = value.trim();
+        if (trimmed.isEmpty()) {
+            return null;
+        }
+
+        try {
+            return Duration.ofSeconds(Math.max(0, Long.parseLong(trimmed)));
+        } catch (NumberFormatException e) {
+            // try as a date instead
+        }
+
+        try {
+            final Instant retryAt = ZonedDateTime.parse(trimmed, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+            final Duration delay = Duration.between(Instant.now(), retryAt);
+            return delay.isNegative() ? Duration.ZERO : delay;
+        } catch (DateTimeParseException e) {
+            log.debug("Unable to parse Retry-After value '{}'", value);
+            return null;
+        }
+    }
+}
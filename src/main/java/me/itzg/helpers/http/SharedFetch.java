@@ -1,17 +1,26 @@
 package me.itzg.helpers.http;
 
 import io.netty.handler.codec.http.HttpHeaderNames;
+import lombok.AccessLevel;
 import lombok.Builder;
 import lombok.Builder.Default;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import me.itzg.helpers.McImageHelper;
 import me.itzg.helpers.errors.GenericException;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import reactor.netty.http.Http11SslContextSpec;
+import reactor.netty.http.Http2SslContextSpec;
+import reactor.netty.http.HttpProtocol;
 import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.client.HttpClientResponse;
 import reactor.netty.resources.ConnectionProvider;
 
 import java.net.URI;
+import java.nio.file.Path;
 import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
@@ -30,12 +39,31 @@ public class SharedFetch implements AutoCloseable {
 
     @Getter
     private final Map<String, String> headers = new HashMap<>();
-    @Getter
-    final LatchingUrisInterceptor latchingUrisInterceptor = new LatchingUrisInterceptor();
 
     @Getter
     private final HttpClient reactiveClient;
 
+    @Getter
+    private final Options options;
+
+    private final ConcurrencyLimiter concurrencyLimiter;
+
+    private final RetryPolicy retryPolicy;
+
+    @Getter(AccessLevel.PACKAGE)
+    private final HostRateLimiter rateLimiter;
+
+    @Getter(AccessLevel.PACKAGE)
+    private final FetchMetrics metrics = FetchMetrics.global();
+
+    /**
+     * Null when conditional requests are not enabled
+     */
+    @Getter
+    private final ConditionalFetchCache conditionalFetchCache;
+
+    private final Disposable.Composite prewarming = Disposables.composite();
+
     public SharedFetch(String forCommand, Options options) {
         final String userAgent = String.format("%s/%s (cmd=%s)",
             "mc-image-helper",
@@ -43,19 +71,22 @@ public class SharedFetch implements AutoCloseable {
             forCommand != null ? forCommand : "unspecified"
         );
 
-        final String fetchSessionId = UUID.randomUUID().toString();
+        this.options = options;
+        this.concurrencyLimiter = new ConcurrencyLimiter(options.getMaxConcurrentPerHost());
+        this.retryPolicy = new RetryPolicy(options.getMaxRetries(),
+            options.getRetryInitialBackoff(), options.getRetryMaxDelay()
+        );
+        this.rateLimiter = new HostRateLimiter(options.getMaxRequestsPerSecondPerHost(), options.getRetryMaxDelay());
+        this.conditionalFetchCache = options.getConditionalCacheDir() != null ?
+            new ConditionalFetchCache(options.getConditionalCacheDir()) : null;
 
-        final ConnectionProvider.Builder connectionProviderBuilder = ConnectionProvider.create("custom")
-            .mutate();
-        if (connectionProviderBuilder == null) {
-            throw new GenericException("Unable to mutate default connection provider");
-        }
+        final String fetchSessionId = UUID.randomUUID().toString();
 
-        final ConnectionProvider connectionProvider = connectionProviderBuilder
-            .maxIdleTime(options.getMaxIdleTimeout())
-            .build();
+        final ConnectionProvider sharedConnectionProvider = Fetch.sharedConnectionProvider();
+        final ConnectionProvider connectionProvider = sharedConnectionProvider != null ?
+            sharedConnectionProvider : createConnectionProvider(options, metrics);
 
-        reactiveClient = HttpClient.create(connectionProvider)
+        final HttpClient baseClient = HttpClient.create(connectionProvider)
             .headers(headers -> {
                     headers
                         .set(HttpHeaderNames.USER_AGENT.toString(), userAgent)
@@ -67,19 +98,127 @@ public class SharedFetch implements AutoCloseable {
             )
             // Reference https://projectreactor.io/docs/netty/release/reference/index.html#response-timeout
             .responseTimeout(options.getResponseTimeout())
-            // Reference https://projectreactor.io/docs/netty/release/reference/index.html#ssl-tls-timeout
-            .secure(spec ->
-                spec.sslContext(Http11SslContextSpec.forClient())
-                .handshakeTimeout(options.getTlsHandshakeTimeout())
-            );
+            .doOnResponse((resp, connection) -> observeResponse(resp));
+
+        // Reference https://projectreactor.io/docs/netty/release/reference/index.html#ssl-tls-timeout
+        if (options.isHttp2()) {
+            // Reference https://projectreactor.io/docs/netty/release/reference/index.html#http2
+            reactiveClient = baseClient
+                // h2 is negotiated via ALPN for TLS and h2c is attempted via upgrade for plaintext,
+                // otherwise HTTP/1.1 is used
+                .protocol(HttpProtocol.HTTP11, HttpProtocol.H2, HttpProtocol.H2C)
+                .secure(spec ->
+                    spec.sslContext(Http2SslContextSpec.forClient())
+                        .handshakeTimeout(options.getTlsHandshakeTimeout())
+                );
+        }
+        else {
+            reactiveClient = baseClient
+                .secure(spec ->
+                    spec.sslContext(Http11SslContextSpec.forClient())
+                        .handshakeTimeout(options.getTlsHandshakeTimeout())
+                );
+        }
 
         headers.put("x-fetch-session", fetchSessionId);
     }
 
+    static ConnectionProvider createConnectionProvider(Options options, FetchMetrics metrics) {
+        final ConnectionProvider.Builder connectionProviderBuilder = ConnectionProvider.create("custom")
+            .mutate();
+        if (connectionProviderBuilder == null) {
+            throw new GenericException("Unable to mutate default connection provider");
+        }
+
+        // Reference https://projectreactor.io/docs/netty/release/reference/index.html#_connection_pool_2
+        connectionProviderBuilder
+            .metrics(true, metrics::poolRegistrar)
+            .maxIdleTime(options.getMaxIdleTimeout())
+            .maxConnections(options.getMaxConnections())
+            .pendingAcquireTimeout(options.getPendingAcquireTimeout());
+        if (options.getPendingAcquireMaxCount() != null) {
+            connectionProviderBuilder.pendingAcquireMaxCount(options.getPendingAcquireMaxCount());
+        }
+        if (options.getEvictionInterval() != null) {
+            connectionProviderBuilder.evictInBackground(options.getEvictionInterval());
+        }
+        return connectionProviderBuilder.build();
+    }
+
     public FetchBuilderBase<?> fetch(URI uri) {
         return new FetchBuilderBase<>(uri, this);
     }
 
+    /**
+     * Applies the per-host limit of in-flight requests
+     */
+    <R> Mono<R> limitConcurrency(URI uri, Mono<R> request) {
+        return concurrencyLimiter.limit(uri.getHost() + ":" + uri.getPort(), request);
+    }
+
+    /**
+     * Paces the given request according to the adaptive rate limit of its host
+     */
+    <R> Mono<R> throttle(URI uri, Mono<R> request) {
+        return rateLimiter.throttle(uri.getHost(), request);
+    }
+
+    private void observeResponse(HttpClientResponse resp) {
+        // keyed by the host of the original request, same as throttle, since the requests that are
+        // redirected to another host, such as a CDN, are only paced by that bucket
+        final String[] redirectedFrom = resp.redirectedFrom();
+        final String requestUrl = redirectedFrom.length > 0 ? redirectedFrom[0] : resp.resourceUrl();
+        final String host;
+        try {
+            host = URI.create(requestUrl).getHost();
+        } catch (IllegalArgumentException e) {
+            return;
+        }
+        if (host != null) {
+            rateLimiter.observe(host, resp.status().code(), resp.responseHeaders());
+        }
+    }
+
+    /**
+     * Retries the given request when it fails with a retriable status
+     * @param onRetry invoked before each retry is scheduled
+     */
+    <R> Mono<R> applyRetries(URI uri, Mono<R> request, Runnable onRetry) {
+        return retryPolicy.apply(uri, request, onRetry);
+    }
+
+    /**
+     * Opens {@link Options#getPrewarmConnections()} connections to each of the given origins in the background,
+     * so that subsequent requests can use already established connections. This is a no-op when pre-warming
+     * is not enabled.
+     * @param origins only the scheme, host, and port are used
+     */
+    public void prewarm(URI... origins) {
+        final int count = options.getPrewarmConnections();
+        if (count <= 0) {
+            return;
+        }
+
+        prewarming.add(
+            Flux.fromArray(origins)
+                .flatMap(origin ->
+                    Flux.range(0, count)
+                        .flatMap(i ->
+                            reactiveClient
+                                .head()
+                                .uri(origin.resolve("/"))
+                                .response()
+                                .doOnNext(resp -> log.debug("Pre-warmed connection to {}", origin))
+                                .onErrorResume(throwable -> {
+                                    log.debug("Failed to pre-warm connection to {}", origin, throwable);
+                                    return Mono.empty();
+                                })
+                        )
+                )
+                .subscribe()
+        );
+    }
+
     @SuppressWarnings("unused")
     public SharedFetch addHeader(String name, String value) {
         headers.put(name, value);
@@ -88,13 +227,23 @@ public class SharedFetch implements AutoCloseable {
 
     @Override
     public void close() {
+        prewarming.dispose();
     }
 
-    @Builder
+    @Builder(toBuilder = true)
     @Getter
     public static class Options {
 
         public static final Duration DEFAULT_MAX_IDLE_TIMEOUT = Duration.ofSeconds(30);
+        public static final int DEFAULT_MAX_CONNECTIONS = ConnectionProvider.DEFAULT_POOL_MAX_CONNECTIONS;
+        public static final Duration DEFAULT_PENDING_ACQUIRE_TIMEOUT =
+            Duration.ofMillis(ConnectionProvider.DEFAULT_POOL_ACQUIRE_TIMEOUT);
+        public static final int DEFAULT_MAX_CONCURRENT_PER_HOST = 16;
+        public static final int DEFAULT_METADATA_CONCURRENCY = 8;
+        public static final int DEFAULT_DOWNLOAD_CONCURRENCY = 16;
+        public static final int DEFAULT_MAX_RETRIES = 3;
+        public static final Duration DEFAULT_RETRY_INITIAL_BACKOFF = Duration.ofSeconds(1);
+        public static final Duration DEFAULT_RETRY_MAX_DELAY = Duration.ofSeconds(30);
 
         @Default
         private final Duration responseTimeout
@@ -110,6 +259,93 @@ public class SharedFetch implements AutoCloseable {
         private final Duration maxIdleTimeout
             = DEFAULT_MAX_IDLE_TIMEOUT;
 
+        /**
+         * Maximum number of connections in the pool of each remote host
+         */
+        @Default
+        private final int maxConnections = DEFAULT_MAX_CONNECTIONS;
+
+        /**
+         * Maximum number of requests waiting for a pooled connection, where -1 is unlimited.
+         * When null, twice {@link #maxConnections} is used.
+         */
+        private final Integer pendingAcquireMaxCount;
+
+        /**
+         * How long a request waits for a pooled connection before failing
+         */
+        @Default
+        private final Duration pendingAcquireTimeout = DEFAULT_PENDING_ACQUIRE_TIMEOUT;
+
+        /**
+         * When set, idle and expired connections are evicted from the pool in the background at this interval
+         */
+        private final Duration evictionInterval;
+
+        /**
+         * Number of connections opened to each host given to {@link SharedFetch#prewarm(URI...)},
+         * where zero disables pre-warming
+         */
+        @Default
+        private final int prewarmConnections = 0;
+
+        /**
+         * Maximum number of in-flight requests to any one host, where zero or less is unlimited
+         */
+        @Default
+        private final int maxConcurrentPerHost = DEFAULT_MAX_CONCURRENT_PER_HOST;
+
+        /**
+         * Used by callers that fan out API/metadata lookups
+         */
+        @Default
+        private final int metadataConcurrency = DEFAULT_METADATA_CONCURRENCY;
+
+        /**
+         * Used by callers that fan out file downloads
+         */
+        @Default
+        private final int downloadConcurrency = DEFAULT_DOWNLOAD_CONCURRENCY;
+
+        /**
+         * When enabled, HTTP/2 is negotiated with servers that support it so that concurrent requests
+         * to the same host are multiplexed over fewer connections
+         */
+        @Default
+        private final boolean http2 = false;
+
+        /**
+         * Requests per second sent to any one host, where zero or less is unlimited. Regardless, the rate
+         * adapts to 429 responses, Retry-After, and X-Ratelimit-* headers.
+         */
+        @Default
+        private final double maxRequestsPerSecondPerHost = 0;
+
+        /**
+         * Number of times a request is retried after failing with 429, 503, or 403 or a transient network failure,
+         * where zero disables retries
+         */
+        @Default
+        private final int maxRetries = DEFAULT_MAX_RETRIES;
+
+        /**
+         * Delay before the first retry, which doubles for each subsequent retry
+         */
+        @Default
+        private final Duration retryInitialBackoff = DEFAULT_RETRY_INITIAL_BACKOFF;
+
+        /**
+         * Upper limit of any one retry delay, including one requested by a Retry-After response header
+         */
+        @Default
+        private final Duration retryMaxDelay = DEFAULT_RETRY_MAX_DELAY;
+
+        /**
+         * When set, the ETag and Last-Modified of responses are recorded in this directory so that
+         * later requests for the same URI can be made conditional
+         */
+        private final Path conditionalCacheDir;
+
         private final Map<String,String> extraHeaders;
 
         public Options withHeader(String key, String value) {
@@ -117,10 +353,9 @@ public class SharedFetch implements AutoCloseable {
                 new HashMap<>(extraHeaders) : new HashMap<>();
             newHeaders.put(key, value);
 
-            return new Options(
-                responseTimeout, tlsHandshakeTimeout, maxIdleTimeout,
-                newHeaders
-            );
+            return toBuilder()
+                .extraHeaders(newHeaders)
+                .build();
         }
     }
 }
@@ -3,6 +3,7 @@ package me.itzg.helpers.http;
 import me.itzg.helpers.http.SharedFetch.Options;
 import picocli.CommandLine.Option;
 
+import java.nio.file.Path;
 import java.time.Duration;
 
 /**
@@ -38,6 +39,118 @@ public class SharedFetchArgs {
         optionsBuilder.maxIdleTimeout(timeout);
     }
 
+    @Option(names = "--connection-pool-max-connections",
+        defaultValue = "${env:FETCH_CONNECTION_POOL_MAX_CONNECTIONS}",
+        description = "Maximum number of pooled connections to each remote host."
+            + " Default is twice the number of processors, but at least 16"
+    )
+    public void setConnectionPoolMaxConnections(int maxConnections) {
+        optionsBuilder.maxConnections(maxConnections);
+    }
+
+    @Option(names = "--connection-pool-pending-acquire-max-count",
+        defaultValue = "${env:FETCH_CONNECTION_POOL_PENDING_ACQUIRE_MAX_COUNT}",
+        description = "Maximum number of requests waiting for a pooled connection, where -1 is unlimited."
+            + " Default is twice the max connections"
+    )
+    public void setConnectionPoolPendingAcquireMaxCount(Integer pendingAcquireMaxCount) {
+        optionsBuilder.pendingAcquireMaxCount(pendingAcquireMaxCount);
+    }
+
+    @Option(names = "--connection-pool-pending-acquire-timeout",
+        defaultValue = "${env:FETCH_CONNECTION_POOL_PENDING_ACQUIRE_TIMEOUT:-PT45S}",
+        description = "How long a request waits for a pooled connection. Default: ${DEFAULT-VALUE}"
+    )
+    public void setConnectionPoolPendingAcquireTimeout(Duration timeout) {
+        optionsBuilder.pendingAcquireTimeout(timeout);
+    }
+
+    @Option(names = "--connection-pool-eviction-interval",
+        defaultValue = "${env:FETCH_CONNECTION_POOL_EVICTION_INTERVAL}",
+        description = "When set, idle connections are evicted from the pool in the background at this interval"
+    )
+    public void setConnectionPoolEvictionInterval(Duration interval) {
+        optionsBuilder.evictionInterval(interval);
+    }
+
+    @Option(names = "--connection-prewarm", defaultValue = "${env:FETCH_CONNECTION_PREWARM:-0}",
+        description = "Number of connections to open ahead of time to each well-known API and download host,"
+            + " where zero disables. Default: ${DEFAULT-VALUE}"
+    )
+    public void setConnectionPrewarm(int prewarmConnections) {
+        optionsBuilder.prewarmConnections(prewarmConnections);
+    }
+
+    @Option(names = "--max-concurrent-per-host", defaultValue = "${env:FETCH_MAX_CONCURRENT_PER_HOST:-16}",
+        description = "Maximum number of in-flight requests to any one host. Default: ${DEFAULT-VALUE}"
+    )
+    public void setMaxConcurrentPerHost(int maxConcurrentPerHost) {
+        optionsBuilder.maxConcurrentPerHost(maxConcurrentPerHost);
+    }
+
+    @Option(names = "--metadata-concurrency", defaultValue = "${env:FETCH_METADATA_CONCURRENCY:-8}",
+        description = "Maximum number of concurrent API/metadata lookups. Default: ${DEFAULT-VALUE}"
+    )
+    public void setMetadataConcurrency(int metadataConcurrency) {
+        optionsBuilder.metadataConcurrency(metadataConcurrency);
+    }
+
+    @Option(names = "--download-concurrency", defaultValue = "${env:FETCH_DOWNLOAD_CONCURRENCY:-16}",
+        description = "Maximum number of concurrent file downloads. Default: ${DEFAULT-VALUE}"
+    )
+    public void setDownloadConcurrency(int downloadConcurrency) {
+        optionsBuilder.downloadConcurrency(downloadConcurrency);
+    }
+
+    @Option(names = "--max-requests-per-second-per-host", defaultValue = "${env:FETCH_MAX_REQUESTS_PER_SECOND_PER_HOST:-0}",
+        description = "Maximum rate of requests to any one host, where zero is unlimited."
+            + " Regardless, the rate adapts to rate limiting responses from the host. Default: ${DEFAULT-VALUE}"
+    )
+    public void setMaxRequestsPerSecondPerHost(double rate) {
+        optionsBuilder.maxRequestsPerSecondPerHost(rate);
+    }
+
+    @Option(names = "--http2", defaultValue = "${env:FETCH_HTTP2:-false}",
+        description = "Negotiate HTTP/2 with servers that support it, which multiplexes concurrent requests"
+            + " over fewer connections. Default: ${DEFAULT-VALUE}"
+    )
+    public void setHttp2(boolean http2) {
+        optionsBuilder.http2(http2);
+    }
+
+    @Option(names = "--http-max-retries", defaultValue = "${env:FETCH_MAX_RETRIES:-3}",
+        description = "Number of times a request is retried after failing with 429, 503, or 403"
+            + " or with a connection, timeout, or transient TLS failure."
+            + " Default: ${DEFAULT-VALUE}"
+    )
+    public void setMaxRetries(int maxRetries) {
+        optionsBuilder.maxRetries(maxRetries);
+    }
+
+    @Option(names = "--http-retry-initial-backoff", defaultValue = "${env:FETCH_RETRY_INITIAL_BACKOFF:-PT1S}",
+        description = "Delay before the first retry, which doubles for each subsequent retry."
+            + " Default: ${DEFAULT-VALUE}"
+    )
+    public void setRetryInitialBackoff(Duration backoff) {
+        optionsBuilder.retryInitialBackoff(backoff);
+    }
+
+    @Option(names = "--http-retry-max-delay", defaultValue = "${env:FETCH_RETRY_MAX_DELAY:-PT30S}",
+        description = "Upper limit of any one retry delay, including one requested by Retry-After."
+            + " Default: ${DEFAULT-VALUE}"
+    )
+    public void setRetryMaxDelay(Duration maxDelay) {
+        optionsBuilder.retryMaxDelay(maxDelay);
+    }
+
+    @Option(names = "--http-cache-dir", defaultValue = "${env:FETCH_HTTP_CACHE_DIR}",
+        description = "When set, ETag and Last-Modified of responses are kept in this directory"
+            + " and used to make later requests conditional"
+    )
+    public void setConditionalCacheDir(Path dir) {
+        optionsBuilder.conditionalCacheDir(dir);
+    }
+
     public Options options() {
         return optionsBuilder.build();
     }
@@ -2,6 +2,7 @@ package me.itzg.helpers.http;
 
 import static io.netty.handler.codec.http.HttpHeaderNames.IF_MODIFIED_SINCE;
 import static io.netty.handler.codec.http.HttpResponseStatus.NOT_MODIFIED;
+import static io.netty.handler.codec.http.HttpResponseStatus.REQUESTED_RANGE_NOT_SATISFIABLE;
 import static java.lang.System.currentTimeMillis;
 import static java.util.Objects.requireNonNull;
 
@@ -10,23 +11,18 @@ import java.io.IOException;
 import java.net.URI;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardCopyOption;
 import java.nio.file.attribute.FileTime;
-import java.time.ZoneId;
-import java.time.format.DateTimeFormatter;
 import lombok.Setter;
 import lombok.experimental.Accessors;
 import lombok.extern.slf4j.Slf4j;
 import me.itzg.helpers.errors.GenericException;
+import me.itzg.helpers.files.DigestSink;
 import reactor.core.publisher.Mono;
-import reactor.core.scheduler.Schedulers;
 
 @Slf4j
 @Accessors(fluent = true)
 public class SpecificFileFetchBuilder extends FetchBuilderBase<SpecificFileFetchBuilder> {
 
-    private final static DateTimeFormatter httpDateTimeFormatter =
-        DateTimeFormatter.RFC_1123_DATE_TIME.withZone(ZoneId.of("GMT"));
     private FileDownloadStatusHandler statusHandler = (status, uri, p) -> {
     };
     private FileDownloadedHandler downloadedHandler = (uri, p, contentSizeBytes) -> {
@@ -38,6 +34,11 @@ public class SpecificFileFetchBuilder extends FetchBuilderBase<SpecificFileFetch
     private boolean skipUpToDate;
     @Setter
     private boolean skipExisting;
+    /**
+     * Optionally receives the content as it is written to the file
+     */
+    @Setter
+    private DigestSink digestSink;
 
     public SpecificFileFetchBuilder(State state, Path file) {
         super(state);
@@ -71,9 +72,15 @@ public class SpecificFileFetchBuilder extends FetchBuilderBase<SpecificFileFetch
         }
 
         final boolean useIfModifiedSince = skipUpToDate && Files.exists(file);
+        // a 304 would provide no content for the digest sink to observe
+        final ConditionalFetchCache cache = digestSink == null ? conditionalFetchCache() : null;
+
+        return useReactiveClient(client -> Mono.defer(() -> {
+            final PartialDownload partial = PartialDownload.prepare(file);
+            final ConditionalFetchCache.Validators validators = cache != null && Files.exists(file) ?
+                cache.lookupFile(uri, file) : null;
 
-        return useReactiveClient(client ->
-            client
+            return client
                 .doOnRequest((httpClientRequest, connection) ->
                     statusHandler.call(FileDownloadStatus.DOWNLOADING, uri, file)
                 )
@@ -93,45 +100,48 @@ public class SpecificFileFetchBuilder extends FetchBuilderBase<SpecificFileFetch
                     }
 
                     applyHeaders(headers);
+                    ConditionalFetchCache.applyConditionalHeaders(headers, validators);
+                    partial.applyHeaders(headers);
                 })
                 .followRedirect(true)
                 .doOnRequest(debugLogRequest(log, "file fetch"))
                 .get()
                 .uri(uri)
-                .responseSingle((resp, bodyMono) -> {
+                .response((resp, bodyFlux) -> {
                     final HttpResponseStatus status = resp.status();
 
                     if (useIfModifiedSince && status == NOT_MODIFIED) {
+                        recordCacheHit();
+                        return Mono.just(file);
+                    }
+                    if (validators != null && status == NOT_MODIFIED) {
+                        log.debug("Keeping file={} since not modified", file);
+                        recordCacheHit();
+                        statusHandler.call(FileDownloadStatus.SKIP_FILE_UP_TO_DATE, uri, file);
                         return Mono.just(file);
                     }
 
                     if (notSuccess(resp)) {
-                        return failedRequestMono(resp, bodyMono, "Trying to retrieve file");
+                        if (status == REQUESTED_RANGE_NOT_SATISFIABLE) {
+                            // start over on next attempt
+                            partial.discard();
+                        }
+                        return failedRequestMono(resp, bodyFlux.aggregate(), "Trying to retrieve file");
                     }
 
                     if (notExpectedContentType(resp)) {
                         return failedContentTypeMono(resp);
                     }
 
-                    return bodyMono.asInputStream()
-                        .publishOn(Schedulers.boundedElastic())
-                        .flatMap(inputStream -> {
-                            final long size;
-                            try {
-                                //noinspection BlockingMethodInNonBlockingContext
-                                size = Files.copy(inputStream, file, StandardCopyOption.REPLACE_EXISTING);
-                                statusHandler.call(FileDownloadStatus.DOWNLOADED, uri, file);
-                                downloadedHandler.call(uri, file, size);
-                            } catch (IOException e) {
-                                return Mono.error(e);
-                            } finally {
-                                try {
-                                    //noinspection BlockingMethodInNonBlockingContext
-                                    inputStream.close();
-                                } catch (IOException e) {
-                                    log.warn("Unable to close body input stream", e);
-                                }
+                    return partial.write(resp, bodyFlux, digestSink)
+                        .doOnNext(size -> {
+                            if (cache != null) {
+                                cache.storeFile(uri, resp.responseHeaders(), file);
                             }
+                        })
+                        .flatMap(size -> {
+                            statusHandler.call(FileDownloadStatus.DOWNLOADED, uri, file);
+                            downloadedHandler.call(uri, file, size);
                             return Mono
                                 .deferContextual(contextView -> {
                                     if (log.isDebugEnabled()) {
@@ -143,8 +153,9 @@ public class SpecificFileFetchBuilder extends FetchBuilderBase<SpecificFileFetch
                                 });
                         });
                 })
-                .contextWrite(context -> context.put("downloadStart", currentTimeMillis()))
-        );
+                .next()
+                .contextWrite(context -> context.put("downloadStart", currentTimeMillis()));
+        }));
     }
 
 }
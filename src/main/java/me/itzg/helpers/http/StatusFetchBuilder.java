@@ -0,0 +1,41 @@
+package me.itzg.helpers.http;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+/**
+ * Retrieves only the status code of the resource by using a HEAD request
+ */
+@Slf4j
+public class StatusFetchBuilder extends FetchBuilderBase<StatusFetchBuilder> {
+
+    protected StatusFetchBuilder(State state) {
+        super(state);
+    }
+
+    public int execute() {
+        final Integer status = assemble().block();
+        return status != null ? status : 0;
+    }
+
+    /**
+     * @return the status code of the response, after any retries
+     */
+    public Mono<Integer> assemble() {
+        return useReactiveClient(client ->
+            client
+                .headers(this::applyHeaders)
+                .followRedirect(true)
+                .doOnRequest(debugLogRequest(log, "status fetch"))
+                .head()
+                .uri(uri())
+                .responseSingle((resp, bodyMono) ->
+                    // fail only when retriable so that the shared retry policy applies
+                    RetryPolicy.isRetriableStatus(resp.status().code()) ?
+                        failedRequestMono(resp, bodyMono, "Checking status")
+                        : Mono.just(resp.status().code())
+                )
+        )
+            .onErrorResume(FailedRequestException.class, e -> Mono.just(e.getStatusCode()));
+    }
+}
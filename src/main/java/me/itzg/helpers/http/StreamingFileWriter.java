@@ -0,0 +1,88 @@
+package me.itzg.helpers.http;
+
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import io.netty.buffer.ByteBuf;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import me.itzg.helpers.files.DigestSink;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.netty.ByteBufFlux;
+
+/**
+ * Writes response content to a file as each chunk arrives rather than aggregating the whole body in memory.
+ */
+class StreamingFileWriter {
+
+    /**
+     * @param append when true, content is appended to an existing file rather than replacing it
+     * @param digestSink optionally receives the content in the same pass as writing it, can be null
+     * @return the number of bytes written
+     */
+    static Mono<Long> write(ByteBufFlux body, Path file, boolean append, DigestSink digestSink) {
+        return Mono.using(
+            () -> append ? FileChannel.open(file, CREATE, WRITE, APPEND)
+                : FileChannel.open(file, CREATE, WRITE, TRUNCATE_EXISTING),
+            channel -> body
+                // retain since the chunks are handed off to a blocking-friendly thread
+                .retain()
+                .publishOn(Schedulers.boundedElastic())
+                .<Long>handle((buf, sink) -> {
+                    try {
+                        sink.next(writeChunk(channel, buf, digestSink));
+                    } catch (IOException e) {
+                        sink.error(e);
+                    } finally {
+                        buf.release();
+                    }
+                })
+                .doOnDiscard(ByteBuf.class, ByteBuf::release)
+                .reduce(0L, Long::sum),
+            StreamingFileWriter::closeChannel
+        );
+    }
+
+    /**
+     * Moves a completely written file into place, atomically when the file system supports it
+     */
+    static void moveIntoPlace(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static long writeChunk(FileChannel channel, ByteBuf buf, DigestSink digestSink) throws IOException {
+        long written = 0;
+        for (final ByteBuffer nioBuffer : buf.nioBuffers()) {
+            if (digestSink != null) {
+                digestSink.update(nioBuffer.duplicate());
+            }
+            while (nioBuffer.hasRemaining()) {
+                written += channel.write(nioBuffer);
+            }
+        }
+        return written;
+    }
+
+    private static void closeChannel(FileChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to close file channel", e);
+        }
+    }
+
+    private StreamingFileWriter() {
+    }
+}
@@ -1,7 +1,11 @@
 package me.itzg.helpers.http;
 
+import static io.netty.handler.codec.http.HttpResponseStatus.NOT_MODIFIED;
+
+import java.nio.charset.StandardCharsets;
 import lombok.extern.slf4j.Slf4j;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 import reactor.netty.ByteBufMono;
 import reactor.netty.http.client.HttpClientResponse;
 
@@ -12,18 +16,53 @@ public class StringFetchBuilder extends FetchBuilderBase<StringFetchBuilder> {
     }
 
     public Mono<String> assemble() {
-        return useReactiveClient(client ->
-            client
-                .headers(this::applyHeaders)
+        final ConditionalFetchCache cache = conditionalFetchCache();
+        if (cache == null) {
+            return useReactiveClient(client ->
+                client
+                    .headers(this::applyHeaders)
+                    .followRedirect(true)
+                    .doOnRequest(debugLogRequest(log, "json fetch"))
+                    .get()
+                    .uri(uri())
+                    .responseSingle(this::handleResponse)
+            );
+        }
+
+        return useReactiveClient(client -> Mono.defer(() -> {
+            final ConditionalFetchCache.Validators validators = cache.lookupBody(uri());
+            return client
+                .headers(headers -> {
+                    applyHeaders(headers);
+                    ConditionalFetchCache.applyConditionalHeaders(headers, validators);
+                })
                 .followRedirect(true)
-                .doOnRequest(debugLogRequest(log, "json fetch"))
+                .doOnRequest(debugLogRequest(log, "string fetch"))
                 .get()
                 .uri(uri())
-                .responseSingle(this::handleResponse)
-        );
+                .responseSingle((resp, byteBufMono) -> {
+                    if (validators != null && resp.status() == NOT_MODIFIED) {
+                        log.debug("Using cached content of {} since not modified", uri());
+                        recordCacheHit();
+                        return Mono.fromCallable(() -> new String(cache.loadBody(uri()), StandardCharsets.UTF_8))
+                            .subscribeOn(Schedulers.boundedElastic());
+                    }
+                    return handleResponse(resp, byteBufMono)
+                        .publishOn(Schedulers.boundedElastic())
+                        .doOnNext(content ->
+                            cache.storeBody(uri(), resp.responseHeaders(), content.getBytes(StandardCharsets.UTF_8))
+                        );
+                });
+        }));
     }
 
     private Mono<String> handleResponse(HttpClientResponse resp, ByteBufMono byteBufMono) {
+        if (notSuccess(resp)) {
+            return failedRequestMono(resp, byteBufMono, "Fetching string content");
+        }
+        if (notExpectedContentType(resp)) {
+            return failedContentTypeMono(resp);
+        }
         return byteBufMono.asString();
     }
 }
@@ -0,0 +1,13 @@
+package me.itzg.helpers.http;
+
+import me.itzg.helpers.errors.GenericException;
+
+/**
+ * Indicates a partial content response that does not continue a partial download
+ */
+public class UnexpectedRangeException extends GenericException {
+
+    public UnexpectedRangeException(String message) {
+        super(message);
+    }
+}
@@ -2,6 +2,7 @@ package me.itzg.helpers.http;
 
 import java.io.UnsupportedEncodingException;
 import java.net.URI;
+import java.net.URISyntaxException;
 import java.net.URLEncoder;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -39,6 +40,20 @@ public final class Uris {
     return URI.create(populate(url, values));
   }
 
+  /**
+   * @param path slash separated segments, which are encoded as needed, to append to the path of {@code base}
+   */
+  public static URI appendPath(URI base, String path) {
+    final String basePath = base.getPath() != null ? base.getPath() : "";
+    final String joined = (basePath.endsWith("/") ? basePath : basePath + "/")
+        + (path.startsWith("/") ? path.substring(1) : path);
+    try {
+      return new URI(base.getScheme(), base.getAuthority(), joined, base.getQuery(), base.getFragment());
+    } catch (URISyntaxException e) {
+      throw new IllegalArgumentException("Unable to append path to " + base, e);
+    }
+  }
+
   public static boolean isUri(String value) {
     final Matcher m = URI_DETECT.matcher(value);
     return m.lookingAt();
@@ -4,10 +4,15 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
 import me.itzg.helpers.errors.GenericException;
 import me.itzg.helpers.files.Manifests;
+import me.itzg.helpers.http.Fetch;
+import me.itzg.helpers.http.SharedFetch;
+import me.itzg.helpers.http.SharedFetchArgs;
 import me.itzg.helpers.http.Uris;
 import me.itzg.helpers.json.ObjectMappers;
 import me.itzg.helpers.modrinth.model.*;
+import me.itzg.helpers.trace.Tracer;
 import org.apache.commons.lang3.EnumUtils;
+import picocli.CommandLine.ArgGroup;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.ExitCode;
 import picocli.CommandLine.Option;
@@ -24,12 +29,16 @@ import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
 import static me.itzg.helpers.McImageHelper.OPTION_SPLIT_COMMAS;
-import static me.itzg.helpers.http.Fetch.fetch;
 
 @Command(name = "modrinth", description = "Automates downloading of modrinth resources")
 @Slf4j
 public class ModrinthCommand implements Callable<Integer> {
 
+    /**
+     * Where project files are downloaded from
+     */
+    private static final URI DOWNLOADS_ORIGIN = URI.create("https://cdn.modrinth.com");
+
     private final String baseUrl;
 
     @Option(names = "--projects", description = "Project ID or Slug", required = true, split = OPTION_SPLIT_COMMAS, paramLabel = "id|slug")
@@ -50,8 +59,13 @@ public class ModrinthCommand implements Callable<Integer> {
     @Option(names = "--allowed-version-type", defaultValue = "release", description = "Valid values: ${COMPLETION-CANDIDATES}")
     VersionType defaultVersionType;
 
+    @ArgGroup(exclusive = false)
+    SharedFetchArgs sharedFetchArgs = new SharedFetchArgs();
+
     final Set<String/*projectId*/> projectsProcessed = Collections.synchronizedSet(new HashSet<>());
 
+    private SharedFetch sharedFetch;
+
     @SuppressWarnings("unused")
     public ModrinthCommand() {
         this("https://api.modrinth.com/v2");
@@ -65,20 +79,34 @@ public class ModrinthCommand implements Callable<Integer> {
     public Integer call() throws Exception {
         Files.createDirectories(outputDirectory);
 
-        final ModrinthManifest prevManifest = loadManifest();
+        final List<Path> outputFiles;
+        final ModrinthManifest prevManifest;
+        try (SharedFetch sharedFetch = Fetch.sharedFetch("modrinth", sharedFetchArgs.options())) {
+            this.sharedFetch = sharedFetch;
+            sharedFetch.prewarm(URI.create(baseUrl), DOWNLOADS_ORIGIN);
 
-        final List<Path> outputFiles = projects.stream()
-            .flatMap(this::processProject)
-            .collect(Collectors.toList());
+            try (Tracer.Span ignored = Tracer.span("manifest load")) {
+                prevManifest = loadManifest();
+            }
+
+            try (Tracer.Span span = Tracer.span("api resolution and downloads")) {
+                outputFiles = projects.stream()
+                    .flatMap(this::processProject)
+                    .collect(Collectors.toList());
+                span.arg("files", outputFiles.size());
+            }
+        }
 
         final ModrinthManifest newManifest = ModrinthManifest.builder()
             .files(Manifests.relativizeAll(outputDirectory, outputFiles))
             .projects(projects)
             .build();
 
-        Manifests.cleanup(outputDirectory, prevManifest, newManifest, log);
+        try (Tracer.Span ignored = Tracer.span("manifest save")) {
+            Manifests.cleanup(outputDirectory, prevManifest, newManifest, log);
 
-        Manifests.save(outputDirectory, ModrinthManifest.ID, newManifest);
+            Manifests.save(outputDirectory, ModrinthManifest.ID, newManifest);
+        }
 
         return ExitCode.OK;
     }
@@ -143,10 +171,9 @@ public class ModrinthCommand implements Callable<Integer> {
     }
 
     private Version getVersion(String versionId) throws IOException {
-        return fetch(Uris.populateToUri(
+        return sharedFetch.fetch(Uris.populateToUri(
             baseUrl + "/version/{id}", versionId
         ))
-            .userAgentCommand("modrinth")
             .toObject(Version.class)
             .execute();
     }
@@ -183,8 +210,7 @@ public class ModrinthCommand implements Callable<Integer> {
         }
 
         try {
-            return fetch(URI.create(versionFile.getUrl()))
-                .userAgentCommand("modrinth")
+            return sharedFetch.fetch(URI.create(versionFile.getUrl()))
                 .toFile(outPath)
                 .skipExisting(true)
                 .execute();
@@ -207,22 +233,20 @@ public class ModrinthCommand implements Callable<Integer> {
     }
 
     private Project getProject(String projectIdOrSlug) {
-        return fetch(Uris.populateToUri(
+        return sharedFetch.fetch(Uris.populateToUri(
             baseUrl + "/project/{id|slug}",
                 projectIdOrSlug
         ))
-            .userAgentCommand("modrinth")
             .toObject(Project.class)
             .execute();
     }
 
     private List<Version> getVersionsForProject(String project) {
         try {
-            return fetch(Uris.populateToUri(
+            return sharedFetch.fetch(Uris.populateToUri(
                 baseUrl + "/project/{id|slug}/version?loaders={loader}&game_versions={gameVersion}",
                 project, arrayOfQuoted(loader.toString()), arrayOfQuoted(gameVersion)
             ))
-                .userAgentCommand("modrinth")
                 .toObjectList(Version.class)
                 .execute();
         } catch (IOException e) {
@@ -231,11 +255,10 @@ public class ModrinthCommand implements Callable<Integer> {
     }
 
     private Version getVersionFromId(String versionId) {
-        return fetch(Uris.populateToUri(
+        return sharedFetch.fetch(Uris.populateToUri(
                 baseUrl + "/version/{id}",
                 versionId
         ))
-                .userAgentCommand("modrinth")
                 .toObject(Version.class)
                 .execute();
     }
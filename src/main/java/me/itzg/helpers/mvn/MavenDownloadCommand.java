@@ -1,15 +1,17 @@
 package me.itzg.helpers.mvn;
 
-import static me.itzg.helpers.http.Fetch.fetch;
+import static me.itzg.helpers.http.Fetch.sharedFetch;
 
 import com.fasterxml.jackson.dataformat.xml.XmlMapper;
 import java.io.IOException;
 import java.net.URI;
-import java.net.URISyntaxException;
 import java.nio.file.Path;
 import java.util.concurrent.Callable;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.hc.core5.net.URIBuilder;
+import me.itzg.helpers.http.SharedFetch;
+import me.itzg.helpers.http.SharedFetchArgs;
+import me.itzg.helpers.http.Uris;
+import picocli.CommandLine.ArgGroup;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.ExitCode;
 import picocli.CommandLine.Option;
@@ -51,13 +53,19 @@ public class MavenDownloadCommand implements Callable<Integer> {
     @Option(names = "--skip-existing", defaultValue = "false")
     boolean skipExisting;
 
+    @ArgGroup(exclusive = false)
+    SharedFetchArgs sharedFetchArgs = new SharedFetchArgs();
+
     @Override
     public Integer call() throws Exception {
-        final MavenMetadata mavenMetadata = getMavenMetadata();
+        final Path result;
+        try (SharedFetch sharedFetch = sharedFetch("maven-download", sharedFetchArgs.options())) {
+            final MavenMetadata mavenMetadata = getMavenMetadata(sharedFetch);
 
-        final String resolvedVersion = resolveVersion(mavenMetadata);
+            final String resolvedVersion = resolveVersion(mavenMetadata);
 
-        final Path result = download(resolvedVersion);
+            result = download(sharedFetch, resolvedVersion);
+        }
         log.debug("Downloaded artifact to {}", result);
         if (printFilename) {
             System.out.println(result);
@@ -66,23 +74,20 @@ public class MavenDownloadCommand implements Callable<Integer> {
         return ExitCode.OK;
     }
 
-    private Path download(String resolvedVersion) throws URISyntaxException, IOException {
+    private Path download(SharedFetch sharedFetch, String resolvedVersion) throws IOException {
         final String groupPath = group.replace('.', '/');
 
         final String filename = String.format("%s-%s%s.%s",
                 artifact, resolvedVersion, classifier != null ? "-" + classifier : "", packaging);
-        final URI uri = new URIBuilder(mavenRepo)
-            .appendPath(String.join("/",
-                groupPath,
-                artifact,
-                resolvedVersion,
-                filename
-            ))
-            .build();
+        final URI uri = Uris.appendPath(mavenRepo, String.join("/",
+            groupPath,
+            artifact,
+            resolvedVersion,
+            filename
+        ));
 
         log.debug("Downloading from {}", uri);
-        return fetch(uri)
-            .userAgentCommand("maven-download")
+        return sharedFetch.fetch(uri)
             .toFile(outputDirectory.resolve(filename))
             .skipUpToDate(skipUpToDate)
             .skipExisting(skipExisting)
@@ -112,15 +117,12 @@ public class MavenDownloadCommand implements Callable<Integer> {
         }
     }
 
-    private MavenMetadata getMavenMetadata() throws URISyntaxException {
+    private MavenMetadata getMavenMetadata(SharedFetch sharedFetch) {
         final String groupPath = group.replace('.', '/');
-        final URI metadataUri = new URIBuilder(mavenRepo)
-            .appendPath(String.join("/", groupPath, artifact, "maven-metadata.xml"))
-            .build();
+        final URI metadataUri = Uris.appendPath(mavenRepo, String.join("/", groupPath, artifact, "maven-metadata.xml"));
 
         log.debug("Fetching metadata from {}", metadataUri);
-        return fetch(metadataUri)
-            .userAgentCommand("maven-download")
+        return sharedFetch.fetch(metadataUri)
             .toObject(MavenMetadata.class, new XmlMapper())
             .execute();
     }
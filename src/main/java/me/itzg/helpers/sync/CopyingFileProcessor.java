@@ -1,9 +1,10 @@
 package me.itzg.helpers.sync;
 
 import lombok.extern.slf4j.Slf4j;
+import me.itzg.helpers.files.FileCopier;
+import me.itzg.helpers.files.LinkMode;
 
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
 
 import static java.nio.file.StandardCopyOption.COPY_ATTRIBUTES;
@@ -11,10 +12,33 @@ import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
 
 @Slf4j
 public class CopyingFileProcessor implements FileProcessor {
+    private final LinkMode linkMode;
+
+    public CopyingFileProcessor() {
+        this(LinkMode.copy);
+    }
+
+    /**
+     * @param linkMode files are linked rather than copied when possible
+     */
+    public CopyingFileProcessor(LinkMode linkMode) {
+        this.linkMode = linkMode;
+    }
+
     @Override
     public void processFile(Path srcFile, Path destFile) throws IOException {
-        log.info("Copying {} -> {}", srcFile, destFile);
+        if (linkMode == LinkMode.copy) {
+            log.info("Copying {} -> {}", srcFile, destFile);
+        }
+        else {
+            log.info("Linking ({}) {} -> {}", linkMode, srcFile, destFile);
+        }
+
+        FileCopier.place(srcFile, destFile, linkMode, COPY_ATTRIBUTES, REPLACE_EXISTING);
+    }
 
-        Files.copy(srcFile, destFile, COPY_ATTRIBUTES, REPLACE_EXISTING);
+    @Override
+    public String describeConfiguration() {
+        return "copying(linkMode=" + linkMode + ")";
     }
 }
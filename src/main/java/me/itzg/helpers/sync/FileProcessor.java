@@ -2,8 +2,32 @@ package me.itzg.helpers.sync;
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.Set;
 
 @FunctionalInterface
 public interface FileProcessor {
     void processFile(Path srcFile, Path destFile) throws IOException;
+
+    /**
+     * @return names of the variables that the most recent processing of the destination file used,
+     * or null if its content only depends on the source file
+     */
+    default Set<String> variablesUsedBy(Path destFile) {
+        return null;
+    }
+
+    /**
+     * @return fingerprint of the current values of the given variables
+     */
+    default String fingerprint(Set<String> variables) throws IOException {
+        return null;
+    }
+
+    /**
+     * @return describes the options that affect how files are processed, so that recorded sync state
+     * is not re-used after those options change
+     */
+    default String describeConfiguration() {
+        return getClass().getSimpleName();
+    }
 }
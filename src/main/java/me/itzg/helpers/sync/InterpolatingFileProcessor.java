@@ -4,6 +4,9 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import lombok.extern.slf4j.Slf4j;
 import me.itzg.helpers.env.Interpolator;
 
@@ -12,6 +15,7 @@ class InterpolatingFileProcessor implements FileProcessor {
     private final ReplaceEnvOptions replaceEnv;
     private final Interpolator interpolator;
     private final FileProcessor fallbackProcessor;
+    private final Map<Path, Set<String>> variablesByDestFile = new ConcurrentHashMap<>();
 
     public InterpolatingFileProcessor(ReplaceEnvOptions replaceEnv, Interpolator interpolator, FileProcessor fallbackProcessor) {
         this.replaceEnv = replaceEnv;
@@ -32,19 +36,42 @@ class InterpolatingFileProcessor implements FileProcessor {
             } catch (Exception e) {
                 log.warn("Failed to interpolate {}, using copy instead: {}", srcFile, e.getMessage());
                 log.debug("Details", e);
+                variablesByDestFile.remove(destFile);
                 fallbackProcessor.processFile(srcFile, destFile);
                 return;
             }
             if (result.getReplacementCount() > 0) {
                 log.debug("Replaced {} variable(s) in {}", result.getReplacementCount(), destFile);
             }
+            // the destination may be a link to the source, such as from a sync with a link mode,
+            // so it's replaced rather than written through
+            if (Files.isSymbolicLink(destFile) || (Files.exists(destFile) && Files.isSameFile(srcFile, destFile))) {
+                Files.delete(destFile);
+            }
             try (OutputStream out = Files.newOutputStream(destFile)) {
                 out.write(result.getContent());
             }
             Files.setLastModifiedTime(destFile, Files.getLastModifiedTime(srcFile));
+            variablesByDestFile.put(destFile, result.getVariables());
 
         } else {
+            variablesByDestFile.remove(destFile);
             fallbackProcessor.processFile(srcFile, destFile);
         }
     }
+
+    @Override
+    public Set<String> variablesUsedBy(Path destFile) {
+        return variablesByDestFile.get(destFile);
+    }
+
+    @Override
+    public String fingerprint(Set<String> variables) throws IOException {
+        return interpolator.fingerprint(variables);
+    }
+
+    @Override
+    public String describeConfiguration() {
+        return "interpolating(" + replaceEnv + ", fallback=" + fallbackProcessor.describeConfiguration() + ")";
+    }
 }
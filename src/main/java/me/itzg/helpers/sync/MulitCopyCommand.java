@@ -3,6 +3,8 @@ package me.itzg.helpers.sync;
 import lombok.extern.slf4j.Slf4j;
 import me.itzg.helpers.errors.GenericException;
 import me.itzg.helpers.errors.InvalidParameterException;
+import me.itzg.helpers.files.FileCopier;
+import me.itzg.helpers.files.LinkMode;
 import me.itzg.helpers.files.Manifests;
 import me.itzg.helpers.http.Fetch;
 import me.itzg.helpers.http.SharedFetch;
@@ -47,6 +49,14 @@ public class MulitCopyCommand implements Callable<Integer> {
     )
     boolean fileIsListingOption;
 
+    @Option(names = "--link-mode", defaultValue = "copy",
+        description = "When hardlink or symlink, local source files are linked rather than copied,"
+            + " which avoids copying read-only content that is on the same filesystem."
+            + " Files are copied when linking is not possible, such as hard links across filesystems."
+            + "%nValid values: ${COMPLETION-CANDIDATES}%nDefault: ${DEFAULT-VALUE}"
+    )
+    LinkMode linkMode;
+
     @Parameters(split = ",", arity = "1..*")
     List<String> sources;
 
@@ -146,7 +156,7 @@ public class MulitCopyCommand implements Callable<Integer> {
                             destFile, source
                         );
 
-                        Files.copy(source, destFile, StandardCopyOption.REPLACE_EXISTING);
+                        FileCopier.place(source, destFile, linkMode, StandardCopyOption.REPLACE_EXISTING);
                     } else {
                         log.debug("Skipping existing={} since it is newer than source={}",
                             destFile, source
@@ -164,7 +174,7 @@ public class MulitCopyCommand implements Callable<Integer> {
             try {
                 log.debug("Copying new file from={} to={}", source, destFile);
 
-                Files.copy(source, destFile);
+                FileCopier.place(source, destFile, linkMode);
             } catch (IOException e) {
                 throw new GenericException("Failed to copy new file", e);
             }
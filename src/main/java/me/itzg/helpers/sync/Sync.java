@@ -2,15 +2,18 @@ package me.itzg.helpers.sync;
 
 import lombok.ToString;
 import lombok.extern.slf4j.Slf4j;
+import me.itzg.helpers.files.LinkMode;
+import me.itzg.helpers.files.Manifests;
 import picocli.CommandLine;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.Option;
 import picocli.CommandLine.Parameters;
 
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.Callable;
 
 @Command(name = "sync",
@@ -27,6 +30,42 @@ public class Sync implements Callable<Integer> {
             description = "Skip any files that exist in the destination and have a newer modification time than the source.")
     boolean skipNewerInDestination;
 
+    @Option(names = "--link-mode", defaultValue = "copy",
+            description = "When hardlink or symlink, files are linked to the source rather than copied,"
+                    + " which avoids copying read-only content that is on the same filesystem."
+                    + " Files are copied when linking is not possible, such as hard links across filesystems."
+                    + "%nValid values: ${COMPLETION-CANDIDATES}%nDefault: ${DEFAULT-VALUE}")
+    LinkMode linkMode;
+
+    @Option(names = "--threads", paramLabel = "N", defaultValue = "${env:SYNC_THREADS:-1}",
+            description = "When greater than one, files are compared and processed concurrently"
+                    + " with this many threads, which can help with large trees on network volumes."
+                    + " Default: ${DEFAULT-VALUE}")
+    int threads;
+
+    @Option(names = "--state-file", paramLabel = "FILE",
+            description = "When set, the size and modification time of synchronized files are recorded in this file."
+                    + " Files whose source is unchanged since then are skipped without accessing the destination,"
+                    + " so destination files modified or removed by other means are not restored while it is used."
+                    + " All files are processed again when the other options change.")
+    Path stateFile;
+
+    @Option(names = "--state-file-inodes",
+            description = "Also record and compare the inode, or equivalent file key, of source files in the state file")
+    boolean stateFileInodes;
+
+    @Option(names = "--delete-extraneous",
+            description = "Removes files from the destination that were synchronized previously, but are no longer"
+                    + " in the source. Only files tracked by the manifest of a previous sync are removed,"
+                    + " and none are removed when part of the source could not be accessed.")
+    boolean deleteExtraneous;
+
+    @Option(names = "--manifest-id", defaultValue = "sync",
+            description = "When deleting extraneous files, this is the identifier used for qualifying the manifest"
+                    + " filename in the destination, such as when more than one source is synchronized into it."
+                    + " Default: ${DEFAULT-VALUE}")
+    String manifestId;
+
     /**
      * Allows for this to be command-line "compatible" with sync-and-interpolate subcommand.
      */
@@ -44,8 +83,24 @@ public class Sync implements Callable<Integer> {
     public Integer call() throws Exception {
         log.debug("Configured with {}", this);
 
+        final SyncState syncState = stateFile != null ? SyncState.load(stateFile, stateFileInodes) : null;
+        final SynchronizingFileVisitor visitor =
+                new SynchronizingFileVisitor(src, dest, skipNewerInDestination, new CopyingFileProcessor(linkMode), syncState);
         try {
-            Files.walkFileTree(src, new SynchronizingFileVisitor(src, dest, skipNewerInDestination, new CopyingFileProcessor()));
+            ParallelFileTreeWalker.walkFileTree(src, visitor, threads);
+            if (syncState != null) {
+                syncState.save();
+            }
+            if (deleteExtraneous) {
+                if (visitor.getFailedPaths().isEmpty()) {
+                    cleanupAndSaveManifest(visitor.getVisitedFiles());
+                }
+                else {
+                    // files that could not be visited would otherwise look like they were removed from the source
+                    log.warn("Not removing extraneous files from {} since some of the source could not be accessed: {}",
+                            dest, new TreeSet<>(visitor.getFailedPaths()));
+                }
+            }
         } catch (IOException e) {
             log.error("Failed to sync {} into {} : {}", src, dest, e.getMessage());
             log.debug("Details", e);
@@ -54,4 +109,27 @@ public class Sync implements Callable<Integer> {
 
         return 0;
     }
+
+    /**
+     * Rather than walking the destination, the files to remove are those in the previous manifest
+     * that were not visited in the source this time.
+     */
+    private void cleanupAndSaveManifest(Set<String> syncedFiles) throws IOException {
+        final String source = src.toAbsolutePath().normalize().toString();
+        final SyncManifest prevManifest = Manifests.load(dest, manifestId, SyncManifest.class);
+        final SyncManifest newManifest = SyncManifest.builder()
+                .source(source)
+                .files(new TreeSet<>(syncedFiles))
+                .build();
+
+        if (prevManifest != null && !source.equals(prevManifest.getSource())) {
+            log.warn("Not removing extraneous files since the previous sync into {} was from {}, rather than {}",
+                    dest, prevManifest.getSource(), source);
+        }
+        else {
+            Manifests.cleanup(dest, prevManifest, newManifest, s -> log.info("Removing extraneous file {}", s));
+        }
+
+        Manifests.save(dest, manifestId, newManifest);
+    }
 }
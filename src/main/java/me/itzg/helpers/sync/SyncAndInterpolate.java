@@ -4,13 +4,13 @@ import lombok.ToString;
 import lombok.extern.slf4j.Slf4j;
 import me.itzg.helpers.env.Interpolator;
 import me.itzg.helpers.env.StandardEnvironmentVariablesProvider;
+import me.itzg.helpers.files.LinkMode;
 import picocli.CommandLine.ArgGroup;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.Option;
 import picocli.CommandLine.Parameters;
 
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.concurrent.Callable;
 
@@ -28,6 +28,31 @@ public class SyncAndInterpolate implements Callable<Integer> {
             description = "Skip any files that exist in the destination and have a newer modification time than the source.")
     boolean skipNewerInDestination;
 
+    @Option(names = "--link-mode", defaultValue = "copy",
+            description = "When hardlink or symlink, files that are not interpolated are linked to the source rather than copied,"
+                    + " which avoids copying read-only content that is on the same filesystem."
+                    + " Files are copied when linking is not possible, such as hard links across filesystems."
+                    + "%nValid values: ${COMPLETION-CANDIDATES}%nDefault: ${DEFAULT-VALUE}")
+    LinkMode linkMode;
+
+    @Option(names = "--threads", paramLabel = "N", defaultValue = "${env:SYNC_THREADS:-1}",
+            description = "When greater than one, files are compared and processed concurrently"
+                    + " with this many threads, which can help with large trees on network volumes."
+                    + " Default: ${DEFAULT-VALUE}")
+    int threads;
+
+    @Option(names = "--state-file", paramLabel = "FILE",
+            description = "When set, the size and modification time of synchronized files and a fingerprint of the"
+                    + " variables interpolated into them are recorded in this file."
+                    + " Files whose source and variables are unchanged since then are skipped without accessing"
+                    + " the destination, so destination files modified or removed by other means are not restored"
+                    + " while it is used. All files are processed again when the other options change.")
+    Path stateFile;
+
+    @Option(names = "--state-file-inodes",
+            description = "Also record and compare the inode, or equivalent file key, of source files in the state file")
+    boolean stateFileInodes;
+
     @ArgGroup(multiplicity = "1", exclusive = false)
     ReplaceEnvOptions replaceEnv = new ReplaceEnvOptions();
 
@@ -41,17 +66,22 @@ public class SyncAndInterpolate implements Callable<Integer> {
     public Integer call() throws Exception {
         log.debug("Configured with {}", this);
 
+        final SyncState syncState = stateFile != null ? SyncState.load(stateFile, stateFileInodes) : null;
         try {
-            Files.walkFileTree(src,
+            ParallelFileTreeWalker.walkFileTree(src,
                     new SynchronizingFileVisitor(src, dest, skipNewerInDestination,
                             new InterpolatingFileProcessor(
                                     replaceEnv,
                                     new Interpolator(new StandardEnvironmentVariablesProvider(), replaceEnv.prefix),
-                                    new CopyingFileProcessor()
-                            )
-
-                    )
+                                    new CopyingFileProcessor(linkMode)
+                            ),
+                            syncState
+                    ),
+                    threads
             );
+            if (syncState != null) {
+                syncState.save();
+            }
         } catch (IOException e) {
             log.error("Failed to sync and interpolate {} into {} : {}", src, dest, e.getMessage());
             log.debug("Details", e);
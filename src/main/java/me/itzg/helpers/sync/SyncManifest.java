@@ -0,0 +1,17 @@
+package me.itzg.helpers.sync;
+
+import lombok.Getter;
+import lombok.experimental.SuperBuilder;
+import lombok.extern.jackson.Jacksonized;
+import me.itzg.helpers.files.BaseManifest;
+
+@SuperBuilder
+@Getter
+@Jacksonized
+public class SyncManifest extends BaseManifest {
+
+    /**
+     * The source directory that the files were synchronized from
+     */
+    private String source;
+}
@@ -0,0 +1,164 @@
+package me.itzg.helpers.sync;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonFormat.Shape;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.Data;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import me.itzg.helpers.json.ObjectMappers;
+
+/**
+ * Persists what was synchronized to each destination file, so that a later sync can skip files whose
+ * inputs are unchanged, even when the destination content differs from the source, such as after interpolation.
+ * Since the destination is assumed to be unchanged since the last sync, those files are skipped without
+ * accessing the destination at all.
+ * <p>
+ * Only entries recorded or kept during the current sync are saved, so entries of files that are no longer
+ * in the source are dropped.
+ * </p>
+ */
+@Slf4j
+class SyncState {
+
+    private final Path file;
+    private final String previousConfiguration;
+    private final Map<String, Entry> previous;
+    private final Map<String, Entry> current = new ConcurrentHashMap<>();
+    @Getter
+    private final boolean recordFileKeys;
+    private volatile String configuration;
+
+    private SyncState(Path file, String previousConfiguration, Map<String, Entry> previous, boolean recordFileKeys) {
+        this.file = file;
+        this.previousConfiguration = previousConfiguration;
+        this.previous = previous;
+        this.recordFileKeys = recordFileKeys;
+    }
+
+    static SyncState load(Path file) {
+        return load(file, false);
+    }
+
+    /**
+     * @param recordFileKeys when true, the file key, such as the inode, of source files is also recorded and compared,
+     *                       which detects replaced files with the same size and modification time
+     * @return state with no entries if the file does not exist or could not be read
+     */
+    static SyncState load(Path file, boolean recordFileKeys) {
+        if (Files.exists(file)) {
+            try {
+                final Content content = ObjectMappers.defaultMapper().readValue(file.toFile(), Content.class);
+                if (content.getEntries() != null) {
+                    return new SyncState(file, content.getConfiguration(), content.getEntries(), recordFileKeys);
+                }
+            } catch (IOException e) {
+                log.warn("Failed to read sync state from {}, so all files will be compared: {}", file, e.getMessage());
+                log.debug("Details", e);
+            }
+        }
+        return new SyncState(file, null, new TreeMap<>(), recordFileKeys);
+    }
+
+    /**
+     * Sets the fingerprint of the options that affect how files are processed. When it differs from that of the
+     * previous sync, the entries of the previous sync are discarded.
+     * @return true if the previous sync used different options, so all files need to be processed again
+     */
+    boolean useConfiguration(String configuration) {
+        this.configuration = configuration;
+        if (!previous.isEmpty() && !Objects.equals(previousConfiguration, configuration)) {
+            log.info("Sync options changed since the previous sync, so all files will be processed again");
+            previous.clear();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return the entry from the previous sync or null if none
+     */
+    Entry get(String relativePath) {
+        return previous.get(relativePath);
+    }
+
+    void record(String relativePath, Entry entry) {
+        current.put(relativePath, entry);
+    }
+
+    /**
+     * Carries over the entry of the previous sync, if any
+     */
+    void keep(String relativePath) {
+        final Entry entry = previous.get(relativePath);
+        if (entry != null) {
+            current.put(relativePath, entry);
+        }
+    }
+
+    void save() throws IOException {
+        final Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        final Path tempFile = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        try {
+            ObjectMappers.defaultMapper().writeValue(tempFile.toFile(), new Content()
+                .setConfiguration(configuration)
+                .setEntries(new TreeMap<>(current))
+            );
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    @Data
+    static class Content {
+        /**
+         * Fingerprint of the options the entries were synchronized with
+         */
+        private String configuration;
+        /**
+         * Keyed by the path relative to the source and destination directories
+         */
+        private Map<String, Entry> entries;
+    }
+
+    /**
+     * Serialized as an array, rather than an object, since there is an entry per synchronized file
+     */
+    @Data
+    @JsonFormat(shape = Shape.ARRAY)
+    @JsonPropertyOrder({"srcSize", "srcModified", "srcFileKey", "variables", "fingerprint"})
+    static class Entry {
+        private long srcSize;
+        private long srcModified;
+        /**
+         * Such as the device and inode of the source file, when recorded
+         */
+        private String srcFileKey;
+        /**
+         * Names of the variables the destination content was interpolated with, if any
+         */
+        private Set<String> variables;
+        /**
+         * Fingerprint of the values of {@link #variables}
+         */
+        private String fingerprint;
+
+        boolean matchesSource(BasicFileAttributes srcAttrs) {
+            return srcSize == srcAttrs.size()
+                && srcModified == srcAttrs.lastModifiedTime().toMillis()
+                && (srcFileKey == null || srcFileKey.equals(String.valueOf(srcAttrs.fileKey())));
+        }
+    }
+}
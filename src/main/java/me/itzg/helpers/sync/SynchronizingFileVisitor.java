@@ -1,14 +1,20 @@
 package me.itzg.helpers.sync;
 
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.codec.digest.DigestUtils;
 
 import java.io.IOException;
 import java.nio.file.FileVisitResult;
 import java.nio.file.FileVisitor;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.nio.file.attribute.FileTime;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Slf4j
 class SynchronizingFileVisitor implements FileVisitor<Path> {
@@ -16,12 +22,45 @@ class SynchronizingFileVisitor implements FileVisitor<Path> {
     private final Path dest;
     private final boolean skipNewerInDestination;
     private final FileProcessor fileProcessor;
+    /**
+     * Null when state is not persisted
+     */
+    private final SyncState syncState;
+    /**
+     * When the options changed since the recorded sync, destination files that match the source,
+     * such as ones copied rather than interpolated, still need to be processed
+     */
+    private final boolean reprocessAll;
+    /**
+     * Relative paths of all files visited in the source, whether processed or not
+     */
+    @Getter
+    private final Set<String> visitedFiles = ConcurrentHashMap.newKeySet();
+    /**
+     * Relative paths of source files and directories that could not be accessed or listed, so the
+     * visited files may be incomplete
+     */
+    @Getter
+    private final Set<String> failedPaths = ConcurrentHashMap.newKeySet();
 
     public SynchronizingFileVisitor(Path src, Path dest, boolean skipNewerInDestination, FileProcessor fileProcessor) {
+        this(src, dest, skipNewerInDestination, fileProcessor, null);
+    }
+
+    /**
+     * @param syncState can be null
+     */
+    public SynchronizingFileVisitor(Path src, Path dest, boolean skipNewerInDestination, FileProcessor fileProcessor,
+        SyncState syncState
+    ) {
         this.src = src;
         this.dest = dest;
         this.skipNewerInDestination = skipNewerInDestination;
         this.fileProcessor = fileProcessor;
+        this.syncState = syncState;
+        this.reprocessAll = syncState != null && syncState.useConfiguration(DigestUtils.sha256Hex(
+            "skipNewerInDestination=" + skipNewerInDestination + ", " + fileProcessor.describeConfiguration()
+        ));
     }
 
     @Override
@@ -38,25 +77,90 @@ class SynchronizingFileVisitor implements FileVisitor<Path> {
     @Override
     public FileVisitResult visitFile(Path srcFile, BasicFileAttributes attrs) throws IOException {
         log.trace("visit file={}", srcFile);
-        final Path destFile = dest.resolve(src.relativize(srcFile));
+        final Path relativePath = src.relativize(srcFile);
+        final Path destFile = dest.resolve(relativePath);
+        visitedFiles.add(relativePath.toString());
+
+        // the walk doesn't follow links, but the comparison is of the linked file's content
+        final BasicFileAttributes srcAttrs = attrs.isSymbolicLink() ?
+            Files.readAttributes(srcFile, BasicFileAttributes.class) : attrs;
+        if (syncState != null && sourceUnchangedSinceSync(relativePath.toString(), srcAttrs)) {
+            log.debug("Skipping destFile={} since unchanged since last sync", destFile);
+            syncState.keep(relativePath.toString());
+            return FileVisitResult.CONTINUE;
+        }
 
-        if (shouldProcessFile(srcFile, destFile)) {
+        final BasicFileAttributes destAttrs = readAttributesIfExists(destFile);
+        if (shouldProcessFile(srcFile, srcAttrs, destFile, destAttrs)) {
             fileProcessor.processFile(srcFile, destFile);
+            if (syncState != null) {
+                recordState(relativePath.toString(), srcAttrs, destFile);
+            }
         }
         else {
             log.debug("Skipping destFile={}", destFile);
+            if (syncState != null) {
+                // same as the source, so subsequent syncs can skip it without comparing
+                syncState.record(relativePath.toString(), newStateEntry(srcAttrs));
+            }
         }
 
         return FileVisitResult.CONTINUE;
     }
 
-    private boolean shouldProcessFile(Path srcFile, Path destFile) throws IOException {
-        if (Files.notExists(destFile)) {
+    /**
+     * @return null if the file does not exist
+     */
+    private static BasicFileAttributes readAttributesIfExists(Path file) throws IOException {
+        try {
+            return Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Avoids accessing the destination file, since it is assumed unchanged since the last sync
+     */
+    private boolean sourceUnchangedSinceSync(String relativePath, BasicFileAttributes srcAttrs) throws IOException {
+        final SyncState.Entry entry = syncState.get(relativePath);
+        if (entry == null || !entry.matchesSource(srcAttrs)) {
+            return false;
+        }
+        return entry.getVariables() == null
+            || Objects.equals(entry.getFingerprint(), fileProcessor.fingerprint(entry.getVariables()));
+    }
+
+    private void recordState(String relativePath, BasicFileAttributes srcAttrs, Path destFile) throws IOException {
+        final Set<String> variables = fileProcessor.variablesUsedBy(destFile);
+        syncState.record(relativePath, newStateEntry(srcAttrs)
+            .setVariables(variables)
+            .setFingerprint(variables != null ? fileProcessor.fingerprint(variables) : null)
+        );
+    }
+
+    private SyncState.Entry newStateEntry(BasicFileAttributes srcAttrs) {
+        return new SyncState.Entry()
+            .setSrcSize(srcAttrs.size())
+            .setSrcModified(srcAttrs.lastModifiedTime().toMillis())
+            .setSrcFileKey(syncState.isRecordFileKeys() && srcAttrs.fileKey() != null ?
+                srcAttrs.fileKey().toString() : null);
+    }
+
+    /**
+     * Uses the source attributes from the walk and the destination attributes read once,
+     * since each stat is costly on network and overlay volumes.
+     * @param destAttrs null if the destination file does not exist
+     */
+    private boolean shouldProcessFile(Path srcFile, BasicFileAttributes srcAttrs,
+        Path destFile, BasicFileAttributes destAttrs
+    ) {
+        if (destAttrs == null) {
             return true;
         }
 
-        final FileTime srcTime = Files.getLastModifiedTime(srcFile);
-        final FileTime destTime = Files.getLastModifiedTime(destFile);
+        final FileTime srcTime = srcAttrs.lastModifiedTime();
+        final FileTime destTime = destAttrs.lastModifiedTime();
 
         if (skipNewerInDestination) {
             if (destTime.compareTo(srcTime) > 0) {
@@ -65,8 +169,12 @@ class SynchronizingFileVisitor implements FileVisitor<Path> {
             }
         }
 
-        final long srcSize = Files.size(srcFile);
-        final long destSize = Files.size(destFile);
+        if (reprocessAll) {
+            return true;
+        }
+
+        final long srcSize = srcAttrs.size();
+        final long destSize = destAttrs.size();
 
         log.debug("Comparing {} (size={}, time={}) to {} (size={}, time={})",
                 srcFile, srcSize, srcTime,
@@ -82,11 +190,17 @@ class SynchronizingFileVisitor implements FileVisitor<Path> {
     public FileVisitResult visitFileFailed(Path file, IOException exc) {
         log.warn("Failed to access {} due to {}", file, exc.getMessage());
         log.debug("Details", exc);
+        failedPaths.add(src.relativize(file).toString());
         return FileVisitResult.CONTINUE;
     }
 
     @Override
     public FileVisitResult postVisitDirectory(Path dir, IOException exc) {
+        if (exc != null) {
+            log.warn("Failed to list {} due to {}", dir, exc.getMessage());
+            log.debug("Details", exc);
+            failedPaths.add(src.relativize(dir).toString());
+        }
         return FileVisitResult.CONTINUE;
     }
 }
@@ -0,0 +1,185 @@
+package me.itzg.helpers.trace;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import lombok.Data;
+import me.itzg.helpers.json.ObjectMappers;
+
+/**
+ * Records spans of the phases of a command, such as manifest loading and downloads, which can be written
+ * in the <a href="https://docs.google.com/document/d/1CvAClvFfyA5R-PhYUmn5OOQtYMH4h6I0nSsKchNAySU">Chrome trace
+ * event format</a> and viewed with tools such as chrome://tracing or <a href="https://ui.perfetto.dev">Perfetto</a>.
+ * <p>
+ * Recording is disabled unless {@link #enable()} is called, which may happen after a span was started,
+ * such as once the command line has been parsed.
+ * </p>
+ * Usage:
+ * <pre>
+ * {@code
+ *     try (Tracer.Span ignored = Tracer.span("manifest load")) {
+ *         ...
+ *     }
+ * }
+ * </pre>
+ */
+public final class Tracer {
+
+    /**
+     * Anchors the monotonic clock to the wall clock, in microseconds
+     */
+    private static final long EPOCH_MICROS_AT_NANO_ZERO =
+        TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis()) - TimeUnit.NANOSECONDS.toMicros(System.nanoTime());
+
+    /**
+     * Typically early in the main method, when spans are first used
+     */
+    private static final long INITIALIZED_MICROS = nowMicros();
+
+    private static volatile boolean enabled;
+    private static final Queue<Event> events = new ConcurrentLinkedQueue<>();
+
+    private Tracer() {
+    }
+
+    /**
+     * Enables recording and records a span from the start of the JVM until this class was first used
+     */
+    public static void enable() {
+        if (enabled) {
+            return;
+        }
+        enabled = true;
+        final long jvmStartMicros = TimeUnit.MILLISECONDS.toMicros(ManagementFactory.getRuntimeMXBean().getStartTime());
+        events.add(new Event()
+            .setName("jvm startup")
+            .setCat("startup")
+            .setTs(jvmStartMicros)
+            .setDur(Math.max(0, INITIALIZED_MICROS - jvmStartMicros))
+            .setTid(Thread.currentThread().getId())
+        );
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Disables recording and discards recorded events, such as between tests
+     */
+    static void reset() {
+        enabled = false;
+        events.clear();
+    }
+
+    /**
+     * Starts a span that ends when closed
+     * @param name the phase being recorded, such as "manifest load"
+     */
+    public static Span span(String name) {
+        return span("phase", name);
+    }
+
+    public static Span span(String category, String name) {
+        return new Span(category, name, nowMicros(), Thread.currentThread().getId());
+    }
+
+    public static void write(Path file) throws IOException {
+        final List<Event> sorted = new ArrayList<>(events);
+        sorted.sort((a, b) -> Long.compare(a.getTs(), b.getTs()));
+
+        final Map<String, Object> trace = new LinkedHashMap<>();
+        trace.put("traceEvents", sorted);
+        trace.put("displayTimeUnit", "ms");
+
+        final Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        final Path tempFile = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        try {
+            ObjectMappers.defaultMapper().writeValue(tempFile.toFile(), trace);
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    private static long nowMicros() {
+        return EPOCH_MICROS_AT_NANO_ZERO + TimeUnit.NANOSECONDS.toMicros(System.nanoTime());
+    }
+
+    public static class Span implements AutoCloseable {
+        private final String category;
+        private final String name;
+        private final long startMicros;
+        private final long threadId;
+        private Map<String, Object> args;
+        private boolean closed;
+
+        private Span(String category, String name, long startMicros, long threadId) {
+            this.category = category;
+            this.name = name;
+            this.startMicros = startMicros;
+            this.threadId = threadId;
+        }
+
+        /**
+         * Adds detail to the span, such as the number of files processed
+         */
+        public synchronized Span arg(String key, Object value) {
+            if (enabled) {
+                if (args == null) {
+                    args = new LinkedHashMap<>();
+                }
+                args.put(key, value);
+            }
+            return this;
+        }
+
+        /**
+         * Ends the span, where subsequent calls have no effect
+         */
+        @Override
+        public synchronized void close() {
+            if (!enabled || closed) {
+                return;
+            }
+            closed = true;
+            events.add(new Event()
+                .setName(name)
+                .setCat(category)
+                .setTs(startMicros)
+                .setDur(nowMicros() - startMicros)
+                .setTid(threadId)
+                .setArgs(args != null ? Collections.unmodifiableMap(args) : null)
+            );
+        }
+    }
+
+    /**
+     * A complete event of the Chrome trace event format
+     */
+    @Data
+    @JsonInclude(Include.NON_NULL)
+    static class Event {
+        private String name;
+        private String cat;
+        private final String ph = "X";
+        private long ts;
+        private long dur;
+        private final long pid = 1;
+        private long tid;
+        private Map<String, Object> args;
+    }
+}
@@ -10,6 +10,7 @@ import me.itzg.helpers.files.Manifests;
 import me.itzg.helpers.http.*;
 import me.itzg.helpers.json.ObjectMappers;
 import me.itzg.helpers.singles.MoreCollections;
+import me.itzg.helpers.trace.Tracer;
 import me.itzg.helpers.vanillatweaks.model.PackDefinition;
 import me.itzg.helpers.vanillatweaks.model.Type;
 import me.itzg.helpers.vanillatweaks.model.ZipLinkResponse;
@@ -89,7 +90,10 @@ public class VanillaTweaksCommand implements Callable<Integer> {
             return ExitCode.USAGE;
         }
 
-        final VanillaTweaksManifest oldManifest = loadManifest();
+        final VanillaTweaksManifest oldManifest;
+        try (Tracer.Span ignored = Tracer.span("manifest load")) {
+            oldManifest = loadManifest();
+        }
 
         if (oldManifest != null &&
             sameInputs(oldManifest) &&
@@ -104,7 +108,9 @@ public class VanillaTweaksCommand implements Callable<Integer> {
         worldPath = outputDirectory.resolve(worldSubdir);
         Files.createDirectories(worldPath);
 
-        try (SharedFetch sharedFetch = Fetch.sharedFetch("vanillatweaks", sharedFetchArgs.options())) {
+        try (SharedFetch sharedFetch = Fetch.sharedFetch("vanillatweaks", sharedFetchArgs.options());
+            Tracer.Span ignored = Tracer.span("api resolution and downloads")
+        ) {
             loadPackDefinitions()
                 .concatWith(resolveShareCodes(sharedFetch))
                 .flatMap(packDefinition -> processPackDefinition(sharedFetch, packDefinition.source,
@@ -127,8 +133,10 @@ public class VanillaTweaksCommand implements Callable<Integer> {
             .files(Manifests.relativizeAll(outputDirectory, writtenFiles))
             .build();
 
-        Manifests.cleanup(outputDirectory, oldManifest, newManifest, log);
-        Manifests.save(outputDirectory, MANIFEST_ID, newManifest);
+        try (Tracer.Span ignored = Tracer.span("manifest save")) {
+            Manifests.cleanup(outputDirectory, oldManifest, newManifest, log);
+            Manifests.save(outputDirectory, MANIFEST_ID, newManifest);
+        }
 
         return ExitCode.OK;
     }
@@ -0,0 +1,22 @@
+package me.itzg.helpers;
+
+import java.io.IOException;
+
+public class Benchmarks {
+
+    public interface IORunnable {
+        void run() throws IOException;
+    }
+
+    /**
+     * @return elapsed nanoseconds of running the given runnable
+     */
+    public static long time(IORunnable runnable) throws IOException {
+        final long start = System.nanoTime();
+        runnable.run();
+        return System.nanoTime() - start;
+    }
+
+    private Benchmarks() {
+    }
+}
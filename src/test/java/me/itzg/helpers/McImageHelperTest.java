@@ -0,0 +1,44 @@
+package me.itzg.helpers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import picocli.CommandLine;
+import picocli.CommandLine.Model.CommandSpec;
+
+class McImageHelperTest {
+
+    @Test
+    void subcommandNamesMatchTheirCommands() {
+        for (final String name : McImageHelper.SUBCOMMAND_NAMES) {
+            final Class<?> subcommandClass = McImageHelper.subcommandClass(name);
+            assertThat(subcommandClass).as(name).isNotNull();
+            assertThat(subcommandClass.getAnnotation(CommandLine.Command.class).name()).isEqualTo(name);
+        }
+    }
+
+    @Test
+    void registersOnlyInvokedSubcommand() {
+        final String[] args = {"--logging", "debug", "--trace-file=trace.json", "-s", "java-release"};
+        final CommandLine commandLine = McImageHelper.newCommandLine(new McImageHelper(), args);
+
+        assertThat(commandLine.getSubcommands()).containsOnlyKeys("java-release");
+    }
+
+    @Test
+    void registersAllSubcommandsForUsage() {
+        final CommandLine commandLine = McImageHelper.newCommandLine(new McImageHelper(), new String[]{"--help"});
+
+        assertThat(commandLine.getSubcommands()).containsOnlyKeys(McImageHelper.SUBCOMMAND_NAMES);
+    }
+
+    @Test
+    void skipsParametersOfRootOptions() {
+        final CommandSpec rootSpec = new CommandLine(new McImageHelper()).getCommandSpec();
+
+        assertThat(McImageHelper.findSubcommandName(rootSpec, new String[]{"--fetch-metrics-file", "get", "find"}))
+            .isEqualTo("find");
+        assertThat(McImageHelper.findSubcommandName(rootSpec, new String[]{"--debug"}))
+            .isNull();
+    }
+}
@@ -0,0 +1,113 @@
+package me.itzg.helpers.batch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import me.itzg.helpers.errors.InvalidParameterException;
+import me.itzg.helpers.trace.Tracer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import picocli.CommandLine;
+import picocli.CommandLine.ExitCode;
+
+class BatchCommandTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void runsEachLineAndReportsExitCodes() throws IOException {
+        final Path script = Files.write(tempDir.resolve("script.txt"), Arrays.asList(
+            "# comment",
+            "compare-versions 1.18 lt 1.19",
+            "",
+            "compare-versions 1.19 lt 1.18",
+            "assert fileExists '" + tempDir.resolve("script.txt") + "'"
+        ));
+        final Path exitCodes = tempDir.resolve("exit-codes.txt");
+
+        final int exitCode = new CommandLine(new BatchCommand())
+            .execute("--exit-codes-file", exitCodes.toString(), script.toString());
+
+        assertThat(exitCode).isEqualTo(1);
+        assertThat(Files.readAllLines(exitCodes)).containsExactly("2 0", "4 1", "5 0");
+    }
+
+    @Test
+    void stopsOnFailureWhenFailFast() throws IOException {
+        final Path script = Files.write(tempDir.resolve("script.txt"), Arrays.asList(
+            "compare-versions 1.19 lt 1.18",
+            "compare-versions 1.18 lt 1.19"
+        ));
+        final Path exitCodes = tempDir.resolve("exit-codes.txt");
+
+        final int exitCode = new CommandLine(new BatchCommand())
+            .execute("--fail-fast", "--exit-codes-file", exitCodes.toString(), script.toString());
+
+        assertThat(exitCode).isEqualTo(1);
+        assertThat(Files.readAllLines(exitCodes)).containsExactly("1 1");
+    }
+
+    @Test
+    void rejectsProcessOptionsOnLines() throws IOException {
+        final Path traceFile = tempDir.resolve("trace.json");
+        final Path script = Files.write(tempDir.resolve("script.txt"), Arrays.asList(
+            "--trace-file '" + traceFile + "' compare-versions 1.18 lt 1.19",
+            "compare-versions 1.18 lt 1.19"
+        ));
+        final Path exitCodes = tempDir.resolve("exit-codes.txt");
+
+        final int exitCode = new CommandLine(new BatchCommand())
+            .execute("--exit-codes-file", exitCodes.toString(), script.toString());
+
+        assertThat(exitCode).isEqualTo(ExitCode.USAGE);
+        assertThat(Files.readAllLines(exitCodes)).containsExactly("1 " + ExitCode.USAGE, "2 0");
+        assertThat(traceFile).doesNotExist();
+        assertThat(Tracer.isEnabled()).isFalse();
+    }
+
+    @Test
+    void reportsInvalidLinesAndContinues() throws IOException {
+        final Path script = Files.write(tempDir.resolve("script.txt"), Arrays.asList(
+            "compare-versions 'unterminated",
+            "--silent batch",
+            "compare-versions 1.18 lt 1.19"
+        ));
+        final Path exitCodes = tempDir.resolve("exit-codes.txt");
+
+        final int exitCode = new CommandLine(new BatchCommand())
+            .execute("--exit-codes-file", exitCodes.toString(), script.toString());
+
+        assertThat(exitCode).isEqualTo(ExitCode.USAGE);
+        assertThat(Files.readAllLines(exitCodes))
+            .containsExactly("1 " + ExitCode.USAGE, "2 " + ExitCode.USAGE, "3 0");
+    }
+
+    @Test
+    void stopsOnInvalidLineWhenFailFast() throws IOException {
+        final Path script = Files.write(tempDir.resolve("script.txt"), Arrays.asList(
+            "compare-versions 'unterminated",
+            "compare-versions 1.18 lt 1.19"
+        ));
+        final Path exitCodes = tempDir.resolve("exit-codes.txt");
+
+        final int exitCode = new CommandLine(new BatchCommand())
+            .execute("--fail-fast", "--exit-codes-file", exitCodes.toString(), script.toString());
+
+        assertThat(exitCode).isEqualTo(ExitCode.USAGE);
+        assertThat(Files.readAllLines(exitCodes)).containsExactly("1 " + ExitCode.USAGE);
+    }
+
+    @Test
+    void splitsLinesLikeShell() {
+        assertThat(ScriptLineParser.parse("  get -o '/data/with space' \"a \\\"b\\\"\" c\\ d # trailing"))
+            .containsExactly("get", "-o", "/data/with space", "a \"b\"", "c d");
+        assertThat(ScriptLineParser.parse("   # only comment")).isEmpty();
+        assertThatThrownBy(() -> ScriptLineParser.parse("get 'unterminated"))
+            .isInstanceOf(InvalidParameterException.class);
+    }
+}
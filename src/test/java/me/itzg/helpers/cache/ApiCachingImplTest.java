@@ -0,0 +1,113 @@
+package me.itzg.helpers.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import lombok.Data;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.core.publisher.Mono;
+
+class ApiCachingImplTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Data
+    static class Content {
+        private String name;
+        private int count;
+    }
+
+    @Test
+    void resolvesOnceThenUsesCache() {
+        final ApiCachingImpl caching = new ApiCachingImpl(tempDir, Duration.ofHours(1));
+
+        final Content first = caching.cache("getContent", Content.class,
+                Mono.just(new Content().setName("alpha").setCount(5)),
+                "alpha", 1
+            )
+            .block();
+        assertThat(first).isNotNull();
+
+        final Content second = caching.cache("getContent", Content.class,
+                Mono.error(new IllegalStateException("should not be resolved")),
+                "alpha", 1
+            )
+            .block();
+
+        assertThat(second)
+            .extracting("name", "count")
+            .containsExactly("alpha", 5);
+    }
+
+    @Test
+    void expiredEntriesAreResolvedAgain() {
+        final ApiCachingImpl caching = new ApiCachingImpl(tempDir, Duration.ofSeconds(-1));
+
+        caching.cache("getContent", Content.class,
+                Mono.just(new Content().setName("alpha").setCount(5)),
+                "alpha"
+            )
+            .block();
+
+        final Content result = caching.cache("getContent", Content.class,
+                Mono.just(new Content().setName("alpha").setCount(6)),
+                "alpha"
+            )
+            .block();
+
+        assertThat(result)
+            .extracting("count")
+            .isEqualTo(6);
+    }
+
+    @Test
+    void immutableEntriesDoNotExpire() {
+        final ApiCachingImpl caching = new ApiCachingImpl(tempDir, Duration.ofSeconds(-1))
+            .withImmutableOperations("getContent");
+
+        caching.store("getContent", new Content().setName("alpha").setCount(5), 1)
+            .block();
+
+        final Content result = caching.lookup("getContent", Content.class, 1)
+            .block();
+
+        assertThat(result)
+            .extracting("count")
+            .isEqualTo(5);
+    }
+
+    @Test
+    void differentKeysAreSeparateEntries() {
+        final ApiCachingImpl caching = new ApiCachingImpl(tempDir, Duration.ofHours(1));
+
+        caching.store("getContent", new Content().setName("alpha").setCount(5), 1)
+            .block();
+
+        assertThat(caching.lookup("getContent", Content.class, 2).block())
+            .isNull();
+    }
+
+    @Test
+    void continuesWhenEntryCannotBeWritten() throws IOException {
+        // a file where the cache directory should be
+        final Path cacheDir = Files.createFile(tempDir.resolve("not-a-directory"));
+        final ApiCachingImpl caching = new ApiCachingImpl(cacheDir, Duration.ofHours(1));
+
+        final Content result = caching.cache("getContent", Content.class,
+                Mono.just(new Content().setName("alpha").setCount(5)),
+                "alpha"
+            )
+            .block();
+
+        assertThat(result)
+            .extracting("name", "count")
+            .containsExactly("alpha", 5);
+        assertThat(caching.lookup("getContent", Content.class, "alpha").block())
+            .isNull();
+    }
+}
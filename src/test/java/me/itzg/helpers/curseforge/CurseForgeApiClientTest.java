@@ -0,0 +1,146 @@
+package me.itzg.helpers.curseforge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import me.itzg.helpers.cache.ApiCachingDisabled;
+import me.itzg.helpers.curseforge.model.CurseForgeMod;
+import me.itzg.helpers.http.SharedFetch.Options;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class CurseForgeApiClientTest {
+
+    private HttpServer server;
+    private ExecutorService executor;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger prewarmRequests = new AtomicInteger();
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        executor = Executors.newCachedThreadPool();
+        server.setExecutor(executor);
+        server.createContext("/", this::respondSlowly);
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    @Test
+    void bulkLookupsAreLimitedByMetadataConcurrency() {
+        final Options options = Options.builder()
+            .metadataConcurrency(2)
+            .build();
+
+        // enough IDs for several chunked requests
+        final List<Integer> modIds = IntStream.rangeClosed(1, 450).boxed().collect(Collectors.toList());
+
+        try (CurseForgeApiClient client = new CurseForgeApiClient(baseUrl(), "key", options, "432",
+            new ApiCachingDisabled()
+        )) {
+            final Map<Integer, CurseForgeMod> result = client.getModsInfo(modIds).block();
+            assertThat(result).isEmpty();
+        }
+
+        assertThat(requests).hasValue(5);
+        assertThat(maxInFlight).hasValueLessThanOrEqualTo(2);
+        // and the lookups did run concurrently
+        assertThat(maxInFlight).hasValue(2);
+    }
+
+    @Test
+    void prewarmsConfiguredHostsWithoutFailingOnErrors() throws IOException, InterruptedException {
+        final Options options = Options.builder()
+            .prewarmConnections(2)
+            .build();
+
+        final int closedPort;
+        try (ServerSocket serverSocket = new ServerSocket(0)) {
+            closedPort = serverSocket.getLocalPort();
+        }
+
+        try (CurseForgeApiClient client = new CurseForgeApiClient(baseUrl(), "key", options, "432",
+            new ApiCachingDisabled(), URI.create("http://localhost:" + closedPort)
+        )) {
+            // the local server closes these without responding and the downloads host refuses to connect
+            client.prewarmConnections();
+
+            final long deadline = System.currentTimeMillis() + 5000;
+            while (prewarmRequests.get() < 2 && System.currentTimeMillis() < deadline) {
+                TimeUnit.MILLISECONDS.sleep(10);
+            }
+            assertThat(prewarmRequests).hasValue(2);
+
+            // and the client is still usable
+            assertThat(client.getModsInfo(Collections.singletonList(1)).block()).isEmpty();
+        }
+    }
+
+    @Test
+    void noPrewarmingByDefault() throws InterruptedException {
+        try (CurseForgeApiClient client = new CurseForgeApiClient(baseUrl(), "key", Options.builder().build(), "432",
+            new ApiCachingDisabled()
+        )) {
+            client.prewarmConnections();
+            TimeUnit.MILLISECONDS.sleep(100);
+        }
+
+        assertThat(prewarmRequests).hasValue(0);
+    }
+
+    private String baseUrl() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    private void respondSlowly(HttpExchange exchange) throws IOException {
+        if (exchange.getRequestMethod().equals("HEAD")) {
+            prewarmRequests.incrementAndGet();
+            // closes without a response
+            exchange.close();
+            return;
+        }
+
+        maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        requests.incrementAndGet();
+        try {
+            TimeUnit.MILLISECONDS.sleep(100);
+            // before responding, since the client can send its next request as soon as it has the response
+            inFlight.decrementAndGet();
+            final byte[] body = "{\"data\":[]}".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package me.itzg.helpers.curseforge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import me.itzg.helpers.curseforge.model.CurseForgeFile;
+import me.itzg.helpers.curseforge.model.FileHash;
+import me.itzg.helpers.curseforge.model.HashAlgo;
+import me.itzg.helpers.errors.GenericException;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ModFileVerifierTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void existingFileWithMatchingHashIsVerified() throws IOException {
+        final byte[] content = "mod content".getBytes(StandardCharsets.UTF_8);
+        final Path file = Files.write(tempDir.resolve("mod.jar"), content);
+
+        final ModFileVerifier verifier = new ModFileVerifier(tempDir, null);
+
+        assertThat(verifier.verifyExisting(file, fileInfo(content))).isTrue();
+        assertThat(verifier.getVerifiedFiles())
+            .containsKey("mod.jar");
+        assertThat(verifier.getVerifiedFiles().get("mod.jar").getSha1())
+            .isEqualTo(DigestUtils.sha1Hex(content));
+    }
+
+    @Test
+    void truncatedExistingFileIsRejected() throws IOException {
+        final byte[] content = "mod content".getBytes(StandardCharsets.UTF_8);
+        final Path file = Files.write(tempDir.resolve("mod.jar"), "mod".getBytes(StandardCharsets.UTF_8));
+
+        final ModFileVerifier verifier = new ModFileVerifier(tempDir, null);
+
+        assertThat(verifier.verifyExisting(file, fileInfo(content))).isFalse();
+    }
+
+    @Test
+    void previouslyVerifiedFileIsTrustedWhenUnchanged() throws IOException {
+        final byte[] content = "mod content".getBytes(StandardCharsets.UTF_8);
+        final Path file = Files.write(tempDir.resolve("mod.jar"), content);
+
+        final VerifiedFile previous = new VerifiedFile()
+            .setSize(content.length)
+            .setLastModified(Files.getLastModifiedTime(file).toMillis())
+            // deliberately not the real hash to confirm content is not re-hashed
+            .setSha1("cafe");
+        final ModFileVerifier verifier = new ModFileVerifier(tempDir,
+            Collections.singletonMap("mod.jar", previous)
+        );
+
+        final CurseForgeFile cfFile = fileInfo(content);
+        cfFile.getHashes().get(0).setValue("cafe");
+        assertThat(verifier.verifyExisting(file, cfFile)).isTrue();
+    }
+
+    @Test
+    void downloadWithWrongHashIsRemoved() throws IOException {
+        final byte[] content = "mod content".getBytes(StandardCharsets.UTF_8);
+        final Path file = Files.write(tempDir.resolve("mod.jar"), content);
+
+        final ModFileVerifier verifier = new ModFileVerifier(tempDir, null);
+
+        assertThatThrownBy(() -> verifier.verifyDownloaded(file, fileInfo(content), "0000"))
+            .isInstanceOf(GenericException.class);
+        assertThat(file).doesNotExist();
+    }
+
+    @Test
+    void fingerprintIgnoresWhitespace() throws IOException {
+        final Path compact = Files.write(tempDir.resolve("compact.txt"), "abcdefg".getBytes(StandardCharsets.UTF_8));
+        final Path spaced = Files.write(tempDir.resolve("spaced.txt"), "a b\tc\r\nd efg\n".getBytes(StandardCharsets.UTF_8));
+        final Path other = Files.write(tempDir.resolve("other.txt"), "abcdefh".getBytes(StandardCharsets.UTF_8));
+
+        assertThat(Murmur2Fingerprint.compute(spaced))
+            .isEqualTo(Murmur2Fingerprint.compute(compact))
+            .isNotEqualTo(Murmur2Fingerprint.compute(other));
+    }
+
+    private static CurseForgeFile fileInfo(byte[] content) {
+        final FileHash sha1 = new FileHash();
+        sha1.setAlgo(HashAlgo.Sha1);
+        sha1.setValue(DigestUtils.sha1Hex(content));
+
+        final CurseForgeFile cfFile = new CurseForgeFile();
+        cfFile.setFileName("mod.jar");
+        cfFile.setFileLength(content.length);
+        cfFile.setHashes(Collections.singletonList(sha1));
+        return cfFile;
+    }
+}
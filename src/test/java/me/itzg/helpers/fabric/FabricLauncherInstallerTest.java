@@ -1,7 +1,6 @@
 package me.itzg.helpers.fabric;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.*;
-import static org.apache.hc.core5.http.HttpHeaders.CONTENT_DISPOSITION;
 import static org.assertj.core.api.Assertions.assertThat;
 import static uk.org.webcompere.modelassert.json.JsonAssertions.assertJson;
 
@@ -21,6 +20,8 @@ import org.junit.jupiter.api.io.TempDir;
 @WireMockTest
 class FabricLauncherInstallerTest {
 
+    private static final String CONTENT_DISPOSITION = "Content-Disposition";
+
     @TempDir
     Path tempDir;
 
@@ -0,0 +1,61 @@
+package me.itzg.helpers.files;
+
+import static me.itzg.helpers.Benchmarks.time;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link Files#copy} to {@link FileCopier#copy} for files the size of typical world and modpack files.
+ * <p>
+ * Run with the Gradle task {@code copyBenchmark}. Since the source stays in the page cache after the first copy,
+ * this primarily measures the cost of moving the content through user-space buffers.
+ * </p>
+ */
+public class FileCopierBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        final int sizeMb = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        final int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        final Path tempDir = Files.createTempDirectory("copy-benchmark");
+        try {
+            final Path src = tempDir.resolve("src.bin");
+            final Path dest = tempDir.resolve("dest.bin");
+            writeRandom(src, sizeMb);
+
+            for (int i = 0; i < iterations; i++) {
+                final long filesCopyNanos = time(() ->
+                    Files.copy(src, dest, StandardCopyOption.REPLACE_EXISTING));
+                final long fileCopierNanos = time(() ->
+                    FileCopier.copy(src, dest, StandardCopyOption.REPLACE_EXISTING));
+
+                System.out.printf("size=%d MB  Files.copy: %5d ms  FileCopier.copy: %5d ms%n",
+                    sizeMb,
+                    TimeUnit.NANOSECONDS.toMillis(filesCopyNanos),
+                    TimeUnit.NANOSECONDS.toMillis(fileCopierNanos)
+                );
+            }
+        } finally {
+            Files.deleteIfExists(tempDir.resolve("src.bin"));
+            Files.deleteIfExists(tempDir.resolve("dest.bin"));
+            Files.deleteIfExists(tempDir);
+        }
+    }
+
+    private static void writeRandom(Path file, int sizeMb) throws IOException {
+        final byte[] buffer = new byte[1024 * 1024];
+        final Random random = new Random(0);
+        try (OutputStream out = Files.newOutputStream(file)) {
+            for (int i = 0; i < sizeMb; i++) {
+                random.nextBytes(buffer);
+                out.write(buffer);
+            }
+        }
+    }
+}
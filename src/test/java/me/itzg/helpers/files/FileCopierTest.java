@@ -0,0 +1,64 @@
+package me.itzg.helpers.files;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class FileCopierTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void transfersLargeFiles() throws IOException {
+        final Path src = writeRandom("src.bin", 300_000);
+        final FileTime modified = FileTime.from(Instant.parse("2023-01-02T03:04:05Z"));
+        Files.setLastModifiedTime(src, modified);
+        final Path dest = tempDir.resolve("dest.bin");
+
+        FileCopier.copy(src, dest, 1024, StandardCopyOption.COPY_ATTRIBUTES);
+
+        assertThat(dest).hasSameBinaryContentAs(src);
+        assertThat(Files.getLastModifiedTime(dest)).isEqualTo(modified);
+    }
+
+    @Test
+    void replacesExistingWhenRequested() throws IOException {
+        final Path src = writeRandom("src.bin", 100_000);
+        final Path dest = writeRandom("dest.bin", 200_000);
+
+        assertThatThrownBy(() -> FileCopier.copy(src, dest, 1024))
+            .isInstanceOf(FileAlreadyExistsException.class);
+
+        FileCopier.copy(src, dest, 1024, StandardCopyOption.REPLACE_EXISTING);
+
+        // also verifies the existing, larger content was truncated
+        assertThat(dest).hasSameBinaryContentAs(src);
+    }
+
+    @Test
+    void copiesSmallFiles() throws IOException {
+        final Path src = writeRandom("src.bin", 100);
+        final Path dest = tempDir.resolve("dest.bin");
+
+        FileCopier.copy(src, dest);
+
+        assertThat(dest).hasSameBinaryContentAs(src);
+    }
+
+    private Path writeRandom(String name, int size) throws IOException {
+        final byte[] content = new byte[size];
+        new Random(size).nextBytes(content);
+        return Files.write(tempDir.resolve(name), content);
+    }
+}
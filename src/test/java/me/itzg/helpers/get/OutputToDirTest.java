@@ -4,16 +4,25 @@ import static java.lang.System.lineSeparator;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockserver.model.HttpResponse.response;
 
+import com.sun.net.httpserver.HttpServer;
 import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.MalformedURLException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.attribute.FileTime;
 import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import me.itzg.helpers.TestLoggingAppender;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
@@ -242,6 +251,96 @@ class OutputToDirTest {
     assertThat(tempDir.resolve("two.txt")).hasContent("content for two");
   }
 
+  @Test
+  void multipleUrisConcurrently(@TempDir Path tempDir) throws MalformedURLException {
+    mock.expectRequest("GET", "/one", response()
+        .withStatusCode(302)
+        .withHeader("Location", mock.buildMockedUrl("/redirected-one.txt").toString()));
+    mock.expectRequest("GET", "/redirected-one.txt", response()
+        .withBody("content for one", MediaType.TEXT_PLAIN));
+    mock.expectRequest("GET", "/two.txt", response()
+        .withBody("content for two", MediaType.TEXT_PLAIN));
+    mock.expectRequest("GET", "/three.txt", response()
+        .withBody("content for three", MediaType.TEXT_PLAIN));
+
+    final StringWriter output = new StringWriter();
+    final int status =
+        new CommandLine(new GetCommand())
+            .setOut(new PrintWriter(output))
+            .execute(
+                "-o",
+                tempDir.toString(),
+                "--concurrency", "3",
+                "--output-filename",
+                mock.buildMockedUrl("/one").toString(),
+                mock.buildMockedUrl("/two.txt").toString(),
+                mock.buildMockedUrl("/three.txt").toString()
+            );
+
+    assertThat(status).isEqualTo(0);
+    assertThat(tempDir.resolve("redirected-one.txt")).hasContent("content for one");
+    assertThat(tempDir.resolve("two.txt")).hasContent("content for two");
+    assertThat(tempDir.resolve("three.txt")).hasContent("content for three");
+    assertThat(output.toString()).isEqualTo(
+        tempDir.resolve("redirected-one.txt") + lineSeparator()
+            + tempDir.resolve("two.txt") + lineSeparator()
+            + tempDir.resolve("three.txt") + lineSeparator()
+    );
+  }
+
+  @Test
+  void overlapsRequestsUpToConcurrency(@TempDir Path tempDir) throws IOException {
+    final AtomicInteger inFlight = new AtomicInteger();
+    final AtomicInteger maxInFlight = new AtomicInteger();
+    final CountDownLatch allStarted = new CountDownLatch(3);
+
+    final HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    final ExecutorService executor = Executors.newCachedThreadPool();
+    server.setExecutor(executor);
+    server.createContext("/", exchange -> {
+      maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+      allStarted.countDown();
+      try {
+        // hold each response until all of them have been requested, or give up when run sequentially
+        allStarted.await(2, TimeUnit.SECONDS);
+        inFlight.decrementAndGet();
+        final byte[] body = "content".getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+          out.write(body);
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } finally {
+        exchange.close();
+      }
+    });
+    server.start();
+
+    try {
+      final String baseUrl = "http://localhost:" + server.getAddress().getPort();
+      final int status =
+          new CommandLine(new GetCommand())
+              .execute(
+                  "-o",
+                  tempDir.toString(),
+                  "--concurrency", "3",
+                  baseUrl + "/one.txt",
+                  baseUrl + "/two.txt",
+                  baseUrl + "/three.txt"
+              );
+
+      assertThat(status).isEqualTo(0);
+      assertThat(maxInFlight).hasValue(3);
+      assertThat(tempDir.resolve("one.txt")).hasContent("content");
+      assertThat(tempDir.resolve("two.txt")).hasContent("content");
+      assertThat(tempDir.resolve("three.txt")).hasContent("content");
+    } finally {
+      server.stop(0);
+      executor.shutdownNow();
+    }
+  }
+
   @Test
   void skipExisting(@TempDir Path tempDir) throws IOException {
     mock.expectRequest("HEAD", "/one.txt", response()
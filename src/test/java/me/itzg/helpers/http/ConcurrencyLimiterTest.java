@@ -0,0 +1,93 @@
+package me.itzg.helpers.http;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+class ConcurrencyLimiterTest {
+
+    @Test
+    void limitsInFlightPerHost() {
+        final ConcurrencyLimiter limiter = new ConcurrencyLimiter(3);
+        final InFlight inFlight = new InFlight();
+
+        final List<Integer> results = Flux.range(0, 20)
+            .flatMap(i -> limiter.limit("example.com:443", inFlight.request(i)))
+            .collectList()
+            .block();
+
+        assertThat(results).hasSize(20);
+        assertThat(inFlight.max).hasValueLessThanOrEqualTo(3);
+        // and the limit was actually used
+        assertThat(inFlight.max).hasValue(3);
+        assertThat(inFlight.current).hasValue(0);
+    }
+
+    @Test
+    void hostsAreLimitedIndependently() {
+        final ConcurrencyLimiter limiter = new ConcurrencyLimiter(2);
+        final InFlight host1 = new InFlight();
+        final InFlight host2 = new InFlight();
+
+        Flux.range(0, 10)
+            .flatMap(i -> Flux.merge(
+                limiter.limit("one.example.com:443", host1.request(i)),
+                limiter.limit("two.example.com:443", host2.request(i))
+            ))
+            .blockLast();
+
+        assertThat(host1.max).hasValue(2);
+        assertThat(host2.max).hasValue(2);
+    }
+
+    @Test
+    void releasesPermitOnFailureAndCancel() {
+        final ConcurrencyLimiter limiter = new ConcurrencyLimiter(1);
+
+        limiter.limit("example.com:443", Mono.error(new IllegalStateException("failed")))
+            .onErrorResume(e -> Mono.empty())
+            .block();
+        limiter.limit("example.com:443", Mono.never())
+            .timeout(Duration.ofMillis(50), Mono.empty())
+            .block();
+
+        assertThat(limiter.limit("example.com:443", Mono.just("done")).block(Duration.ofSeconds(5)))
+            .isEqualTo("done");
+    }
+
+    @Test
+    void unlimitedWhenZero() {
+        final ConcurrencyLimiter limiter = new ConcurrencyLimiter(0);
+        final InFlight inFlight = new InFlight();
+
+        Flux.range(0, 10)
+            .flatMap(i -> limiter.limit("example.com:443", inFlight.request(i)))
+            .blockLast();
+
+        assertThat(inFlight.max).hasValue(10);
+    }
+
+    private static class InFlight {
+        final AtomicInteger current = new AtomicInteger();
+        final AtomicInteger max = new AtomicInteger();
+
+        /**
+         * @return a request that stays in flight for a little while after subscribed
+         */
+        Mono<Integer> request(int i) {
+            return Mono.defer(() -> {
+                max.accumulateAndGet(current.incrementAndGet(), Math::max);
+                return Mono.delay(Duration.ofMillis(20))
+                    .thenReturn(i)
+                    // before completion is signalled, since that releases the permit to the next request
+                    .doOnTerminate(current::decrementAndGet)
+                    .doOnCancel(current::decrementAndGet);
+            });
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package me.itzg.helpers.http;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.github.tomakehurst.wiremock.junit5.WireMockRuntimeInfo;
+import com.github.tomakehurst.wiremock.junit5.WireMockTest;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import me.itzg.helpers.http.FetchMetrics.Format;
+import me.itzg.helpers.http.FetchMetrics.HostMetrics;
+import me.itzg.helpers.http.FetchMetrics.HostSummary;
+import me.itzg.helpers.http.FetchMetrics.Summary;
+import me.itzg.helpers.http.SharedFetch.Options;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+@WireMockTest
+class FetchMetricsTest {
+
+    @Test
+    void recordsRequestsOfSharedFetch(WireMockRuntimeInfo wm) {
+        stubFor(get("/content")
+            .willReturn(ok("0123456789"))
+        );
+
+        final long requestsBefore = summaryOf("StringFetchBuilder").getRequests();
+        final long bytesBefore = summaryOf("StringFetchBuilder").getBytes();
+
+        try (SharedFetch sharedFetch = new SharedFetch("test", Options.builder().build())) {
+            sharedFetch.fetch(URI.create(wm.getHttpBaseUrl() + "/content"))
+                .asString()
+                .execute();
+        }
+
+        final HostSummary after = summaryOf("StringFetchBuilder");
+        assertThat(after.getRequests() - requestsBefore).isEqualTo(1);
+        assertThat(after.getBytes() - bytesBefore).isEqualTo(10);
+        assertThat(after.getStatusCodes()).containsKey("200");
+    }
+
+    @Test
+    void writesPrometheusTextfile(@TempDir Path tempDir) throws IOException {
+        final FetchMetrics metrics = new FetchMetrics();
+        final HostMetrics hostMetrics = metrics.forHost("example.com", "ObjectFetchBuilder");
+        metrics.recordRequest(hostMetrics);
+        metrics.recordResponse(hostMetrics, 304, TimeUnit.MILLISECONDS.toNanos(20));
+        metrics.recordCacheHit(hostMetrics);
+        metrics.recordCompletion(hostMetrics, TimeUnit.MILLISECONDS.toNanos(30), 0, false);
+
+        final Path file = tempDir.resolve("fetch.prom");
+        metrics.write(file, Format.prometheus);
+
+        assertThat(new String(Files.readAllBytes(file), StandardCharsets.UTF_8))
+            .contains("# TYPE mc_image_helper_fetch_requests_total counter")
+            .contains("mc_image_helper_fetch_requests_total{host=\"example.com\",builder=\"ObjectFetchBuilder\"} 1")
+            .contains("mc_image_helper_fetch_not_modified_total{host=\"example.com\",builder=\"ObjectFetchBuilder\"} 1")
+            .contains("mc_image_helper_fetch_cache_hits_total{host=\"example.com\",builder=\"ObjectFetchBuilder\"} 1")
+            .contains("mc_image_helper_fetch_time_to_first_byte_seconds_bucket{host=\"example.com\",builder=\"ObjectFetchBuilder\",le=\"0.01\"} 0")
+            .contains("mc_image_helper_fetch_time_to_first_byte_seconds_bucket{host=\"example.com\",builder=\"ObjectFetchBuilder\",le=\"0.025\"} 1")
+            .contains("mc_image_helper_fetch_total_time_seconds_count{host=\"example.com\",builder=\"ObjectFetchBuilder\"} 1");
+    }
+
+    @Test
+    void writesJsonSummary(@TempDir Path tempDir) throws IOException {
+        final FetchMetrics metrics = new FetchMetrics();
+        final HostMetrics hostMetrics = metrics.forHost("example.com", "SpecificFileFetchBuilder");
+        metrics.recordRequest(hostMetrics);
+        metrics.recordRetry(hostMetrics);
+        metrics.recordCompletion(hostMetrics, TimeUnit.SECONDS.toNanos(2), 1024, false);
+
+        final Path file = tempDir.resolve("fetch.json");
+        metrics.write(file, Format.json);
+
+        assertThat(new String(Files.readAllBytes(file), StandardCharsets.UTF_8))
+            .contains("\"host\" : \"example.com\"")
+            .contains("\"bytes\" : 1024")
+            .contains("\"retries\" : 1");
+    }
+
+    @Test
+    void poolsToSameAddressAreAddedTogether(WireMockRuntimeInfo wm, @TempDir Path tempDir) throws IOException {
+        stubFor(get("/content")
+            .willReturn(ok("0123456789"))
+        );
+
+        final FetchMetrics metrics = new FetchMetrics();
+        // such as from separate non-shared fetches
+        final ConnectionProvider provider1 = SharedFetch.createConnectionProvider(Options.builder().build(), metrics);
+        final ConnectionProvider provider2 = SharedFetch.createConnectionProvider(Options.builder().build(), metrics);
+        try {
+            for (final ConnectionProvider provider : Arrays.asList(provider1, provider2)) {
+                HttpClient.create(provider)
+                    .get()
+                    .uri(wm.getHttpBaseUrl() + "/content")
+                    .responseSingle((resp, body) -> body.asString())
+                    .block();
+            }
+
+            final Summary summary = metrics.summarize();
+            assertThat(summary.getPools()).hasSize(1);
+            assertThat(summary.getPools().get(0).getPools()).isEqualTo(2);
+
+            final Path file = tempDir.resolve("fetch.prom");
+            metrics.write(file, Format.prometheus);
+
+            final List<String> lines = Files.readAllLines(file);
+            // duplicate series with identical labels would make the textfile invalid
+            assertThat(lines)
+                .filteredOn(line -> !line.startsWith("#"))
+                .doesNotHaveDuplicates();
+            assertThat(lines)
+                .filteredOn(line -> line.startsWith("mc_image_helper_fetch_pool_idle_connections{"))
+                .hasSize(1);
+        } finally {
+            provider1.dispose();
+            provider2.dispose();
+        }
+    }
+
+    private static HostSummary summaryOf(String builder) {
+        return FetchMetrics.global().summarize().getHosts().stream()
+            .filter(host -> host.getHost().equals("localhost") && host.getBuilder().equals(builder))
+            .findFirst()
+            .orElse(new HostSummary());
+    }
+}
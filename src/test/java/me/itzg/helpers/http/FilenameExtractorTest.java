@@ -0,0 +1,25 @@
+package me.itzg.helpers.http;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+class FilenameExtractorTest {
+
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', nullValues = "NULL", value = {
+        "attachment; filename=\"server.jar\"|server.jar",
+        "attachment; filename=server.jar|server.jar",
+        "attachment;filename=\"with space; and semicolon.jar\"|with space; and semicolon.jar",
+        "attachment; size=5; FileName = \"server.jar\"|server.jar",
+        "attachment; filename=\"esc\\\"aped.jar\"|esc\"aped.jar",
+        "attachment; filename=\"=?UTF-8?Q?encoded.jar?=\"|encoded.jar",
+        "attachment|NULL",
+        "inline; name=\"other\"|NULL"
+    })
+    void filenameFromContentDisposition(String headerValue, String expected) {
+        assertThat(FilenameExtractor.filenameFromContentDisposition(headerValue))
+            .isEqualTo(expected);
+    }
+}
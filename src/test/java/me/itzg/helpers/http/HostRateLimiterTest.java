@@ -0,0 +1,115 @@
+package me.itzg.helpers.http;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.netty.handler.codec.http.DefaultHttpHeaders;
+import io.netty.handler.codec.http.HttpHeaders;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class HostRateLimiterTest {
+
+    private final AtomicLong now = new AtomicLong(TimeUnit.SECONDS.toNanos(100));
+
+    @Test
+    void unlimitedUntilFeedback() {
+        final HostRateLimiter limiter = new HostRateLimiter(0, Duration.ofSeconds(30), now::get);
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(limiter.reserve("example.com")).isZero();
+        }
+    }
+
+    @Test
+    void pacesAfterTooManyRequests() {
+        final HostRateLimiter limiter = new HostRateLimiter(0, Duration.ofSeconds(30), now::get);
+
+        limiter.observe("example.com", 429, new DefaultHttpHeaders());
+
+        assertThat(limiter.reserve("example.com")).isZero();
+        assertThat(limiter.reserve("example.com"))
+            .isEqualTo(TimeUnit.MILLISECONDS.toNanos(200));
+        assertThat(limiter.reserve("example.com"))
+            .isEqualTo(TimeUnit.MILLISECONDS.toNanos(400));
+
+        // other hosts are not affected
+        assertThat(limiter.reserve("other.com")).isZero();
+    }
+
+    @Test
+    void pausesForRetryAfter() {
+        final HostRateLimiter limiter = new HostRateLimiter(0, Duration.ofSeconds(30), now::get);
+
+        final HttpHeaders headers = new DefaultHttpHeaders()
+            .set("Retry-After", "10");
+        limiter.observe("example.com", 429, headers);
+
+        assertThat(limiter.reserve("example.com"))
+            .isGreaterThanOrEqualTo(TimeUnit.SECONDS.toNanos(10));
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(11));
+        assertThat(limiter.reserve("example.com")).isZero();
+    }
+
+    @Test
+    void pauseIsCapped() {
+        final HostRateLimiter limiter = new HostRateLimiter(0, Duration.ofSeconds(30), now::get);
+
+        limiter.observe("example.com", 429, new DefaultHttpHeaders()
+            .set("Retry-After", "3600"));
+
+        assertThat(limiter.reserve("example.com"))
+            .isLessThanOrEqualTo(TimeUnit.SECONDS.toNanos(31));
+    }
+
+    @Test
+    void pausesWhenRateLimitExhausted() {
+        final HostRateLimiter limiter = new HostRateLimiter(0, Duration.ofSeconds(30), now::get);
+
+        limiter.observe("example.com", 200, new DefaultHttpHeaders()
+            .set("X-Ratelimit-Limit", "300")
+            .set("X-Ratelimit-Remaining", "0")
+            .set("X-Ratelimit-Reset", "20")
+        );
+
+        assertThat(limiter.reserve("example.com"))
+            .isEqualTo(TimeUnit.SECONDS.toNanos(20));
+    }
+
+    @Test
+    void spreadsRemainingRequestsWhenRunningLow() {
+        final HostRateLimiter limiter = new HostRateLimiter(0, Duration.ofSeconds(30), now::get);
+
+        // plenty remaining, so not limited
+        limiter.observe("example.com", 200, new DefaultHttpHeaders()
+            .set("X-Ratelimit-Limit", "300")
+            .set("X-Ratelimit-Remaining", "250")
+            .set("X-Ratelimit-Reset", "50")
+        );
+        assertThat(limiter.reserve("example.com")).isZero();
+        assertThat(limiter.reserve("example.com")).isZero();
+
+        limiter.observe("example.com", 200, new DefaultHttpHeaders()
+            .set("X-Ratelimit-Limit", "300")
+            .set("X-Ratelimit-Remaining", "20")
+            .set("X-Ratelimit-Reset", "10")
+        );
+        // 2 per second
+        assertThat(limiter.reserve("example.com")).isZero();
+        assertThat(limiter.reserve("example.com"))
+            .isEqualTo(TimeUnit.MILLISECONDS.toNanos(500));
+        assertThat(limiter.reserve("example.com"))
+            .isEqualTo(TimeUnit.SECONDS.toNanos(1));
+    }
+
+    @Test
+    void respectsConfiguredRate() {
+        final HostRateLimiter limiter = new HostRateLimiter(1, Duration.ofSeconds(30), now::get);
+
+        assertThat(limiter.reserve("example.com")).isZero();
+        assertThat(limiter.reserve("example.com"))
+            .isEqualTo(TimeUnit.SECONDS.toNanos(1));
+    }
+}
@@ -8,10 +8,14 @@ import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import com.github.tomakehurst.wiremock.client.WireMock;
 import com.github.tomakehurst.wiremock.junit5.WireMockRuntimeInfo;
 import com.github.tomakehurst.wiremock.junit5.WireMockTest;
+import com.github.tomakehurst.wiremock.stubbing.Scenario;
 import java.io.IOException;
 import java.net.URI;
+import java.nio.file.Path;
 import lombok.Data;
+import me.itzg.helpers.http.SharedFetch.Options;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 @WireMockTest
 class ObjectFetchBuilderTest {
@@ -103,4 +107,126 @@ class ObjectFetchBuilderTest {
                 .withHeader("x-fetch-session", WireMock.matching("[a-z0-9-]+"))
         );
     }
-}
\ No newline at end of file
+
+    @Test
+    void usesCachedContentWhenNotModified(WireMockRuntimeInfo wm, @TempDir Path tempDir) {
+        stubFor(get("/content")
+            .withHeader("if-none-match", absent())
+            .willReturn(jsonResponse("{\"name\": \"alpha\", \"count\": 5}", 200)
+                .withHeader("etag", "\"v1\"")
+            )
+        );
+        stubFor(get("/content")
+            .withHeader("if-none-match", WireMock.equalTo("\"v1\""))
+            .willReturn(aResponse().withStatus(304))
+        );
+
+        final Options options = Options.builder()
+            .conditionalCacheDir(tempDir)
+            .build();
+        try (SharedFetch sharedFetch = new SharedFetch("test", options)) {
+            final URI uri = URI.create(wm.getHttpBaseUrl() + "/content");
+
+            final Content first = sharedFetch.fetch(uri)
+                .toObject(Content.class)
+                .execute();
+            final Content second = sharedFetch.fetch(uri)
+                .toObject(Content.class)
+                .execute();
+
+            assertThat(second).isEqualTo(first);
+            assertThat(second.getName()).isEqualTo("alpha");
+        }
+
+        verify(2, getRequestedFor(urlEqualTo("/content")));
+        verify(1, getRequestedFor(urlEqualTo("/content"))
+            .withHeader("if-none-match", WireMock.equalTo("\"v1\"")));
+    }
+
+    @Test
+    void retriesWhenServiceUnavailable(WireMockRuntimeInfo wm) {
+        stubFor(get("/content")
+            .inScenario("retry")
+            .whenScenarioStateIs(Scenario.STARTED)
+            .willReturn(aResponse().withStatus(503)
+                .withHeader("retry-after", "0")
+            )
+            .willSetStateTo("recovered")
+        );
+        stubFor(get("/content")
+            .inScenario("retry")
+            .whenScenarioStateIs("recovered")
+            .willReturn(jsonResponse("{\"name\": \"alpha\", \"count\": 5}", 200))
+        );
+
+        final Content result = fetch(URI.create(wm.getHttpBaseUrl() + "/content"))
+            .toObject(Content.class)
+            .execute();
+
+        assertThat(result.getName()).isEqualTo("alpha");
+        verify(2, getRequestedFor(urlEqualTo("/content")));
+    }
+
+    @Test
+    void rateLimitsRequestedHostWhenRedirectTargetLimits(WireMockRuntimeInfo wm) {
+        stubFor(get("/content")
+            .willReturn(aResponse().withStatus(302)
+                .withHeader("location", "http://127.0.0.1:" + wm.getHttpPort() + "/cdn/content")
+            )
+        );
+        stubFor(get("/cdn/content")
+            .willReturn(aResponse().withStatus(429)
+                .withHeader("retry-after", "20")
+            )
+        );
+
+        final Options options = Options.builder()
+            .maxRetries(0)
+            .build();
+        try (SharedFetch sharedFetch = new SharedFetch("test", options)) {
+            assertThatThrownBy(() ->
+                sharedFetch.fetch(URI.create(wm.getHttpBaseUrl() + "/content"))
+                    .toObject(Content.class)
+                    .execute()
+            )
+                .isInstanceOf(FailedRequestException.class);
+
+            // the host that later requests are paced by
+            assertThat(sharedFetch.getRateLimiter().reserve("localhost")).isGreaterThan(0);
+        }
+    }
+
+    @Test
+    void doesNotRetryNotFound(WireMockRuntimeInfo wm) {
+        stubFor(get(anyUrl())
+            .willReturn(notFound())
+        );
+
+        assertThatThrownBy(() ->
+            fetch(URI.create(wm.getHttpBaseUrl() + "/content"))
+                .toObject(Content.class)
+                .execute()
+        )
+            .isInstanceOf(FailedRequestException.class);
+
+        verify(1, getRequestedFor(urlEqualTo("/content")));
+    }
+
+    @Test
+    void worksWithHttp2Enabled(WireMockRuntimeInfo wm) {
+        stubFor(get("/content")
+            .willReturn(jsonResponse("{\"name\": \"alpha\", \"count\": 5}", 200))
+        );
+
+        final Options options = Options.builder()
+            .http2(true)
+            .build();
+        try (SharedFetch sharedFetch = new SharedFetch("test", options)) {
+            final Content result = sharedFetch.fetch(URI.create(wm.getHttpBaseUrl() + "/content"))
+                .toObject(Content.class)
+                .execute();
+
+            assertThat(result.getName()).isEqualTo("alpha");
+        }
+    }
+}
@@ -9,7 +9,9 @@ import com.github.tomakehurst.wiremock.junit5.WireMockRuntimeInfo;
 import com.github.tomakehurst.wiremock.junit5.WireMockTest;
 import java.io.IOException;
 import java.net.URI;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Collections;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
@@ -18,17 +20,11 @@ class OutputToDirectoryFetchBuilderTest {
 
     @Test
     void basicScenario(WireMockRuntimeInfo wm, @TempDir Path tempDir) throws IOException {
-        stubFor(
-            head(WireMock.urlPathEqualTo("/file"))
-                .willReturn(
-                    ok()
-                        .withHeader("content-disposition", "attachment; filename=\"actual.txt\"")
-                )
-        );
         stubFor(
             get("/file")
                 .willReturn(
                     ok("content of actual.txt")
+                        .withHeader("content-disposition", "attachment; filename=\"actual.txt\"")
                 )
         );
 
@@ -42,5 +38,32 @@ class OutputToDirectoryFetchBuilderTest {
             .isEqualTo(expectedFile)
             .exists()
             .hasContent("content of actual.txt");
+        assertThat(tempDir).isDirectoryNotContaining("glob:**.tmp");
+
+        verify(0, headRequestedFor(anyUrl()));
+    }
+
+    @Test
+    void usesHeadWhenSkippingExisting(WireMockRuntimeInfo wm, @TempDir Path tempDir) throws IOException {
+        stubFor(
+            head(WireMock.urlPathEqualTo("/file"))
+                .willReturn(
+                    ok()
+                        .withHeader("content-disposition", "attachment; filename=\"actual.txt\"")
+                )
+        );
+        final Path expectedFile = tempDir.resolve("actual.txt");
+        Files.write(expectedFile, Collections.singletonList("existing"));
+
+        final Path result = fetch(URI.create(wm.getHttpBaseUrl() + "/file"))
+            .toDirectory(tempDir)
+            .skipExisting(true)
+            .execute();
+
+        assertThat(result)
+            .isEqualTo(expectedFile)
+            .hasContent("existing");
+
+        verify(0, getRequestedFor(anyUrl()));
     }
 }
\ No newline at end of file
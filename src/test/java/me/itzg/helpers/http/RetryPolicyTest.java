@@ -0,0 +1,123 @@
+package me.itzg.helpers.http;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.netty.handler.codec.DecoderException;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.ssl.SslHandshakeTimeoutException;
+import io.netty.handler.timeout.ReadTimeoutException;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.ServerSocket;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLHandshakeException;
+import javax.net.ssl.SSLPeerUnverifiedException;
+import me.itzg.helpers.errors.GenericException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+
+class RetryPolicyTest {
+
+    private static final URI uri = URI.create("http://localhost/file");
+
+    static Stream<Throwable> retriableFailures() {
+        return Stream.of(
+            new FailedRequestException(HttpResponseStatus.SERVICE_UNAVAILABLE, uri, "", "test", null),
+            new ConnectException("Connection refused"),
+            new UnknownHostException("nowhere.invalid"),
+            new NoRouteToHostException("No route to host"),
+            new SocketTimeoutException("Read timed out"),
+            ReadTimeoutException.INSTANCE,
+            new SSLException("Connection reset"),
+            new DecoderException(new SSLException("Connection reset")),
+            new SslHandshakeTimeoutException("handshake timed out")
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource("retriableFailures")
+    void retriesTransientFailures(Throwable failure) {
+        assertThat(RetryPolicy.isRetriable(failure)).isTrue();
+    }
+
+    static Stream<Throwable> nonRetriableFailures() {
+        return Stream.of(
+            new FailedRequestException(HttpResponseStatus.NOT_FOUND, uri, "", "test", null),
+            new GenericException("Unexpected content type"),
+            new IOException("Disk full"),
+            new SSLHandshakeException("PKIX path building failed"),
+            new DecoderException(new SSLHandshakeException("PKIX path building failed")),
+            new SSLPeerUnverifiedException("peer not authenticated")
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource("nonRetriableFailures")
+    void doesNotRetryOtherFailures(Throwable failure) {
+        assertThat(RetryPolicy.isRetriable(failure)).isFalse();
+    }
+
+    @Test
+    void retriesConnectionRefused() throws IOException {
+        final int closedPort;
+        try (ServerSocket serverSocket = new ServerSocket(0)) {
+            closedPort = serverSocket.getLocalPort();
+        }
+
+        final Throwable failure = HttpClient.create()
+            .get()
+            .uri("http://localhost:" + closedPort + "/file")
+            .response()
+            .then(Mono.<Throwable>empty())
+            .onErrorResume(Mono::just)
+            .block();
+
+        assertThat(failure).isNotNull();
+        assertThat(RetryPolicy.isRetriable(failure)).isTrue();
+    }
+
+    @Test
+    void retriesUntilSuccess() {
+        final RetryPolicy retryPolicy = new RetryPolicy(3, Duration.ofMillis(1), Duration.ofMillis(10));
+        final AtomicInteger attempts = new AtomicInteger();
+        final AtomicInteger retries = new AtomicInteger();
+
+        final String result = retryPolicy.apply(uri,
+            Mono.defer(() -> attempts.incrementAndGet() < 3 ?
+                Mono.error(new ConnectException("Connection refused"))
+                : Mono.just("done")),
+            retries::incrementAndGet
+        ).block();
+
+        assertThat(result).isEqualTo("done");
+        assertThat(attempts).hasValue(3);
+        assertThat(retries).hasValue(2);
+    }
+
+    @Test
+    void givesUpAfterMaxRetries() {
+        final RetryPolicy retryPolicy = new RetryPolicy(2, Duration.ofMillis(1), Duration.ofMillis(10));
+        final AtomicInteger attempts = new AtomicInteger();
+
+        assertThatThrownBy(() -> retryPolicy.apply(uri,
+            Mono.defer(() -> {
+                attempts.incrementAndGet();
+                return Mono.error(new UnknownHostException("nowhere.invalid"));
+            }),
+            () -> {}
+        ).block())
+            .hasCauseInstanceOf(UnknownHostException.class);
+        assertThat(attempts).hasValue(3);
+    }
+}
@@ -0,0 +1,53 @@
+package me.itzg.helpers.http;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import me.itzg.helpers.http.SharedFetch.Options;
+import org.junit.jupiter.api.Test;
+import picocli.CommandLine;
+import picocli.CommandLine.ArgGroup;
+import picocli.CommandLine.Command;
+import reactor.netty.resources.ConnectionProvider;
+
+class SharedFetchTest {
+
+    @Command
+    static class TestCommand {
+        @ArgGroup(exclusive = false)
+        SharedFetchArgs sharedFetchArgs = new SharedFetchArgs();
+    }
+
+    @Test
+    void connectionProviderUsesPoolSettings() {
+        final ConnectionProvider provider = SharedFetch.createConnectionProvider(
+            Options.builder()
+                .maxConnections(7)
+                .pendingAcquireMaxCount(3)
+                .build(),
+            new FetchMetrics()
+        );
+        try {
+            assertThat(provider.maxConnections()).isEqualTo(7);
+        } finally {
+            provider.dispose();
+        }
+    }
+
+    @Test
+    void argsApplyPoolSettings() {
+        final TestCommand command = new TestCommand();
+        new CommandLine(command).parseArgs(
+            "--connection-pool-max-connections=7",
+            "--connection-pool-pending-acquire-max-count=3",
+            "--connection-pool-pending-acquire-timeout=PT5S",
+            "--connection-prewarm=2"
+        );
+
+        final Options options = command.sharedFetchArgs.options();
+        assertThat(options.getMaxConnections()).isEqualTo(7);
+        assertThat(options.getPendingAcquireMaxCount()).isEqualTo(3);
+        assertThat(options.getPendingAcquireTimeout()).isEqualTo(Duration.ofSeconds(5));
+        assertThat(options.getPrewarmConnections()).isEqualTo(2);
+    }
+}
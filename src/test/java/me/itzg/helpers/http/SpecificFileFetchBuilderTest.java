@@ -8,10 +8,24 @@ import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import com.github.tomakehurst.wiremock.junit5.WireMockRuntimeInfo;
 import com.github.tomakehurst.wiremock.junit5.WireMockTest;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.time.Duration;
 import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import me.itzg.helpers.files.DigestSink;
+import me.itzg.helpers.http.SharedFetch.Options;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
@@ -89,5 +103,234 @@ class SpecificFileFetchBuilderTest {
             .hasContent("original content");
     }
 
+    @Test
+    void computesDigestWhileDownloading(WireMockRuntimeInfo wm, @TempDir Path tempDir) throws IOException {
+        final Path requestedOutputFile = tempDir.resolve("downloaded.txt");
+
+        stubFor(
+            get("/requested.txt")
+                .willReturn(
+                    ok("new content")
+                )
+        );
+
+        final MessageDigest md = DigestUtils.getSha1Digest();
+        final Path result = fetch(URI.create(wm.getHttpBaseUrl() + "/requested.txt"))
+            .toFile(requestedOutputFile)
+            .digestSink(DigestSink.of(md))
+            .execute();
+
+        assertThat(result)
+            .hasContent("new content");
+        assertThat(Hex.encodeHexString(md.digest()))
+            .isEqualTo(DigestUtils.sha1Hex("new content"));
+    }
+
+    @Test
+    void resumesPartialDownload(WireMockRuntimeInfo wm, @TempDir Path tempDir) throws IOException {
+        final Path requestedOutputFile = tempDir.resolve("downloaded.txt");
+        Files.write(tempDir.resolve("downloaded.txt.part"), "new ".getBytes(StandardCharsets.UTF_8));
+        Files.write(tempDir.resolve("downloaded.txt.part-validator"), "\"v1\"".getBytes(StandardCharsets.UTF_8));
+
+        stubFor(
+            get("/requested.txt")
+                .withHeader("Range", equalTo("bytes=4-"))
+                .withHeader("If-Range", equalTo("\"v1\""))
+                .willReturn(
+                    aResponse()
+                        .withStatus(206)
+                        .withHeader("Content-Range", "bytes 4-10/11")
+                        .withBody("content")
+                )
+        );
+
+        final MessageDigest md = DigestUtils.getSha1Digest();
+        final Path result = fetch(URI.create(wm.getHttpBaseUrl() + "/requested.txt"))
+            .toFile(requestedOutputFile)
+            .digestSink(DigestSink.of(md))
+            .execute();
+
+        assertThat(result)
+            .hasContent("new content");
+        assertThat(Hex.encodeHexString(md.digest()))
+            .isEqualTo(DigestUtils.sha1Hex("new content"));
+        assertThat(tempDir.resolve("downloaded.txt.part"))
+            .doesNotExist();
+        assertThat(tempDir.resolve("downloaded.txt.part-validator"))
+            .doesNotExist();
+    }
+
+    @Test
+    void restartsWhenPartialContentDoesNotContinuePartialFile(WireMockRuntimeInfo wm, @TempDir Path tempDir)
+        throws IOException {
+        final Path requestedOutputFile = tempDir.resolve("downloaded.txt");
+        Files.write(tempDir.resolve("downloaded.txt.part"), "new ".getBytes(StandardCharsets.UTF_8));
+        Files.write(tempDir.resolve("downloaded.txt.part-validator"), "\"v1\"".getBytes(StandardCharsets.UTF_8));
+
+        stubFor(
+            get("/requested.txt")
+                .atPriority(1)
+                .withHeader("Range", equalTo("bytes=4-"))
+                .willReturn(
+                    aResponse()
+                        .withStatus(206)
+                        .withHeader("Content-Range", "bytes 2-10/11")
+                        .withBody("w content")
+                )
+        );
+        stubFor(
+            get("/requested.txt")
+                .atPriority(5)
+                .willReturn(
+                    ok("new content")
+                )
+        );
+
+        try (SharedFetch sharedFetch = Fetch.sharedFetch("test", Options.builder()
+            .retryInitialBackoff(Duration.ofMillis(10))
+            .build())) {
+            sharedFetch.fetch(URI.create(wm.getHttpBaseUrl() + "/requested.txt"))
+                .toFile(requestedOutputFile)
+                .execute();
+        }
+
+        assertThat(requestedOutputFile)
+            .hasContent("new content");
+        verify(2, getRequestedFor(urlEqualTo("/requested.txt")));
+        verify(1, getRequestedFor(urlEqualTo("/requested.txt")).withoutHeader("Range"));
+    }
+
+    @Test
+    void failsWhenPartialContentDoesNotContinuePartialFile(WireMockRuntimeInfo wm, @TempDir Path tempDir)
+        throws IOException {
+        final Path requestedOutputFile = tempDir.resolve("downloaded.txt");
+        Files.write(tempDir.resolve("downloaded.txt.part"), "new ".getBytes(StandardCharsets.UTF_8));
+        Files.write(tempDir.resolve("downloaded.txt.part-validator"), "\"v1\"".getBytes(StandardCharsets.UTF_8));
+
+        stubFor(
+            get("/requested.txt")
+                .willReturn(
+                    aResponse()
+                        .withStatus(206)
+                        .withBody("w content")
+                )
+        );
+
+        try (SharedFetch sharedFetch = Fetch.sharedFetch("test", Options.builder()
+            .maxRetries(0)
+            .build())) {
+            assertThatThrownBy(sharedFetch.fetch(URI.create(wm.getHttpBaseUrl() + "/requested.txt"))
+                .toFile(requestedOutputFile)::execute
+            )
+                .isInstanceOf(UnexpectedRangeException.class);
+        }
+
+        assertThat(requestedOutputFile)
+            .doesNotExist();
+        assertThat(tempDir.resolve("downloaded.txt.part"))
+            .doesNotExist();
+    }
+
+    @Test
+    void digestIsOnlyOfContentWhenRetriedAfterPrematureClose(@TempDir Path tempDir) throws Exception {
+        final Path requestedOutputFile = tempDir.resolve("downloaded.txt");
 
-}
\ No newline at end of file
+        try (TruncatingServer server = new TruncatingServer("new content", 4)) {
+            final MessageDigest md = DigestUtils.getSha1Digest();
+            try (SharedFetch sharedFetch = Fetch.sharedFetch("test", Options.builder()
+                .retryInitialBackoff(Duration.ofMillis(10))
+                .build())) {
+                sharedFetch.fetch(server.uri())
+                    .toFile(requestedOutputFile)
+                    .digestSink(DigestSink.of(md))
+                    .execute();
+            }
+
+            assertThat(server.requests()).hasSize(2);
+            assertThat(requestedOutputFile)
+                .hasContent("new content");
+            assertThat(Hex.encodeHexString(md.digest()))
+                .isEqualTo(DigestUtils.sha1Hex("new content"));
+        }
+    }
+
+    /**
+     * Responds to the first request with only the first part of the content before closing the connection,
+     * and responds to subsequent requests with the remaining content when the request is for the remaining range
+     */
+    private static class TruncatingServer implements AutoCloseable {
+        private final String content;
+        private final int truncateAt;
+        private final ServerSocket serverSocket;
+        private final List<String> requests = new CopyOnWriteArrayList<>();
+        private final Thread thread;
+
+        TruncatingServer(String content, int truncateAt) throws IOException {
+            this.content = content;
+            this.truncateAt = truncateAt;
+            serverSocket = new ServerSocket(0, 10, InetAddress.getLoopbackAddress());
+            thread = new Thread(this::serve, "truncating-server");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        URI uri() {
+            return URI.create("http://localhost:" + serverSocket.getLocalPort() + "/requested.txt");
+        }
+
+        List<String> requests() {
+            return requests;
+        }
+
+        private void serve() {
+            while (!serverSocket.isClosed()) {
+                try (Socket socket = serverSocket.accept()) {
+                    final String request = readRequestHead(socket.getInputStream());
+                    requests.add(request);
+                    final OutputStream out = socket.getOutputStream();
+                    final String head = "Content-Type: text/plain\r\nETag: \"v1\"\r\nConnection: close\r\n";
+                    if (requests.size() == 1) {
+                        out.write(("HTTP/1.1 200 OK\r\n" + head
+                            + "Content-Length: " + content.length() + "\r\n\r\n"
+                            + content.substring(0, truncateAt)
+                        ).getBytes(StandardCharsets.UTF_8));
+                    }
+                    else if (request.contains("bytes=" + truncateAt + "-")) {
+                        out.write(("HTTP/1.1 206 Partial Content\r\n" + head
+                            + "Content-Range: bytes " + truncateAt + "-" + (content.length() - 1) + "/" + content.length()
+                            + "\r\nContent-Length: " + (content.length() - truncateAt) + "\r\n\r\n"
+                            + content.substring(truncateAt)
+                        ).getBytes(StandardCharsets.UTF_8));
+                    }
+                    else {
+                        out.write(("HTTP/1.1 200 OK\r\n" + head
+                            + "Content-Length: " + content.length() + "\r\n\r\n"
+                            + content
+                        ).getBytes(StandardCharsets.UTF_8));
+                    }
+                    out.flush();
+                } catch (IOException e) {
+                    // closed
+                }
+            }
+        }
+
+        private static String readRequestHead(InputStream in) throws IOException {
+            final StringBuilder sb = new StringBuilder();
+            int c;
+            while ((c = in.read()) != -1) {
+                sb.append((char) c);
+                if (sb.length() >= 4 && sb.substring(sb.length() - 4).equals("\r\n\r\n")) {
+                    break;
+                }
+            }
+            return sb.toString();
+        }
+
+        @Override
+        public void close() throws Exception {
+            serverSocket.close();
+            thread.join(5000);
+        }
+    }
+}
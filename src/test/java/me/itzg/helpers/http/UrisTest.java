@@ -0,0 +1,31 @@
+package me.itzg.helpers.http;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.net.URI;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+class UrisTest {
+
+    @ParameterizedTest
+    @CsvSource({
+        "https://repo.example.com/maven2,https://repo.example.com/maven2/net/example/1.0/maven-metadata.xml",
+        "https://repo.example.com/maven2/,https://repo.example.com/maven2/net/example/1.0/maven-metadata.xml",
+        "https://repo.example.com,https://repo.example.com/net/example/1.0/maven-metadata.xml",
+        "http://localhost:8080/repo,http://localhost:8080/repo/net/example/1.0/maven-metadata.xml"
+    })
+    void appendPath(String base, String expected) {
+        assertThat(Uris.appendPath(URI.create(base), "net/example/1.0/maven-metadata.xml"))
+            .isEqualTo(URI.create(expected));
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+        "https://repo.example.com/maven2,https://repo.example.com/maven2/a%20b/c.jar"
+    })
+    void appendPathEncodesSegments(String base, String expected) {
+        assertThat(Uris.appendPath(URI.create(base), "a b/c.jar"))
+            .isEqualTo(URI.create(expected));
+    }
+}
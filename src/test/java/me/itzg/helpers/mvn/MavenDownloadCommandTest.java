@@ -0,0 +1,68 @@
+package me.itzg.helpers.mvn;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.junit5.WireMockRuntimeInfo;
+import com.github.tomakehurst.wiremock.junit5.WireMockTest;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import picocli.CommandLine;
+import picocli.CommandLine.ExitCode;
+
+@WireMockTest
+class MavenDownloadCommandTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void metadataServedFromCacheWhenNotModified(WireMockRuntimeInfo wm) {
+        final String metadataPath = "/org/example/lib/maven-metadata.xml";
+        stubFor(get(metadataPath)
+            .withHeader("if-none-match", absent())
+            .willReturn(aResponse()
+                .withStatus(200)
+                .withHeader("content-type", "application/xml")
+                .withHeader("etag", "\"m1\"")
+                .withBody("<metadata><groupId>org.example</groupId><artifactId>lib</artifactId>"
+                    + "<versioning><latest>1.2.0</latest><release>1.2.0</release>"
+                    + "<versions><version>1.2.0</version></versions></versioning></metadata>")
+            )
+        );
+        stubFor(get(metadataPath)
+            .withHeader("if-none-match", WireMock.equalTo("\"m1\""))
+            .willReturn(aResponse().withStatus(304))
+        );
+        stubFor(get("/org/example/lib/1.2.0/lib-1.2.0.jar")
+            .willReturn(aResponse()
+                .withStatus(200)
+                .withHeader("content-type", "application/java-archive")
+                .withBody("jar content")
+            )
+        );
+
+        final Path outputDir = tempDir.resolve("out");
+        final Path cacheDir = tempDir.resolve("cache");
+        for (int i = 0; i < 2; i++) {
+            final int exitCode = new CommandLine(new MavenDownloadCommand())
+                .execute(
+                    "--maven-repo", wm.getHttpBaseUrl(),
+                    "--group", "org.example",
+                    "--artifact", "lib",
+                    "--output-directory", outputDir.toString(),
+                    "--http-cache-dir", cacheDir.toString()
+                );
+            assertThat(exitCode).isEqualTo(ExitCode.OK);
+        }
+
+        assertThat(outputDir.resolve("lib-1.2.0.jar"))
+            .hasContent("jar content");
+
+        verify(2, getRequestedFor(urlEqualTo(metadataPath)));
+        verify(1, getRequestedFor(urlEqualTo(metadataPath))
+            .withHeader("if-none-match", WireMock.equalTo("\"m1\"")));
+    }
+}
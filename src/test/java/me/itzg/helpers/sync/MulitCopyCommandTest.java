@@ -287,6 +287,31 @@ class MulitCopyCommandTest {
                 .hasContent("two");
         }
 
+        @Test
+        void failsWhenRemoteListingNotFound(WireMockRuntimeInfo wmInfo) {
+            // an error page is not treated as a listing
+            stubFor(get("/listing.txt")
+                .willReturn(
+                    notFound()
+                        .withBody(wmInfo.getHttpBaseUrl() + "/file1.jar\n")
+                )
+            );
+            stubRemoteSrc("file1.jar", "one");
+
+            final Path destDir = tempDir.resolve("dest");
+
+            final int exitCode = new CommandLine(new MulitCopyCommand())
+                .execute(
+                    "--to", destDir.toString(),
+                    "--file-is-listing",
+                    wmInfo.getHttpBaseUrl() + "/listing.txt"
+                );
+            assertThat(exitCode).isNotEqualTo(CommandLine.ExitCode.OK);
+
+            assertThat(destDir.resolve("file1.jar"))
+                .doesNotExist();
+        }
+
         private void stubRemoteSrc(String filename, String content) {
             stubFor(head(urlPathEqualTo("/" + filename))
                 .willReturn(
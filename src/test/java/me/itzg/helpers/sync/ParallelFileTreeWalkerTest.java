@@ -0,0 +1,52 @@
+package me.itzg.helpers.sync;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ParallelFileTreeWalkerTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void waitsForRunningTasksWhenOneFails() throws IOException {
+        final Path src = Files.createDirectories(tempDir.resolve("src"));
+        final Path dest = tempDir.resolve("dest");
+        for (int i = 0; i < 32; i++) {
+            Files.write(src.resolve("file" + i + ".txt"), Collections.singletonList("content" + i));
+        }
+        Files.write(src.resolve("bad.txt"), Collections.singletonList("bad"));
+
+        final AtomicInteger inProgress = new AtomicInteger();
+        final SynchronizingFileVisitor visitor = new SynchronizingFileVisitor(src, dest, false,
+            (srcFile, destFile) -> {
+                inProgress.incrementAndGet();
+                try {
+                    if (srcFile.getFileName().toString().equals("bad.txt")) {
+                        throw new IOException("Failed to process " + srcFile);
+                    }
+                    Thread.sleep(100);
+                    Files.copy(srcFile, destFile);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    inProgress.decrementAndGet();
+                }
+            }
+        );
+
+        assertThatThrownBy(() -> ParallelFileTreeWalker.walkFileTree(src, visitor, 4))
+            .isInstanceOf(IOException.class)
+            .hasMessageContaining("bad.txt");
+
+        assertThat(inProgress).hasValue(0);
+    }
+}
@@ -0,0 +1,121 @@
+package me.itzg.helpers.sync;
+
+import static me.itzg.helpers.Benchmarks.time;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Compares the time to re-sync an already synchronized tree, where only stat'ing happens, between
+ * the comparison that re-stat'ed each source and destination file and {@link SynchronizingFileVisitor},
+ * which uses the attributes from the walk and one read of the destination's attributes.
+ * <p>
+ * Run with the Gradle task {@code syncStatBenchmark}. This only measures time. To count the stat syscalls
+ * of each comparison, give only one of them as the third argument and run the main class under strace,
+ * such as
+ * </p>
+ * <pre>
+ * strace -f -c -e trace=%stat java -cp ... me.itzg.helpers.sync.SyncStatBenchmark 50000 1 restat
+ * strace -f -c -e trace=%stat java -cp ... me.itzg.helpers.sync.SyncStatBenchmark 50000 1 walk
+ * </pre>
+ * The counts include creating and initially syncing the tree, which is the same for both.
+ */
+public class SyncStatBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        final int fileCount = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+        final int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        // restat, walk, or both when absent
+        final String only = args.length > 2 ? args[2] : null;
+
+        final Path tempDir = Files.createTempDirectory("sync-stat-benchmark");
+        try {
+            final Path src = tempDir.resolve("src");
+            final Path dest = tempDir.resolve("dest");
+            createTree(src, fileCount);
+            Files.walkFileTree(src, new SynchronizingFileVisitor(src, dest, false, new CopyingFileProcessor()));
+
+            for (int i = 0; i < iterations; i++) {
+                if (only == null || only.equals("restat")) {
+                    final AtomicLong processed = new AtomicLong();
+                    final long nanos = time(() ->
+                        Files.walkFileTree(src, new RestatVisitor(src, dest, processed)));
+                    System.out.printf("files=%d  re-stat:         %5d ms (processed=%d)%n",
+                        fileCount, TimeUnit.NANOSECONDS.toMillis(nanos), processed.get());
+                }
+
+                if (only == null || only.equals("walk")) {
+                    final AtomicLong processed = new AtomicLong();
+                    final long nanos = time(() ->
+                        Files.walkFileTree(src, new SynchronizingFileVisitor(src, dest, false,
+                            (srcFile, destFile) -> processed.incrementAndGet()
+                        )));
+                    System.out.printf("files=%d  walk attributes: %5d ms (processed=%d)%n",
+                        fileCount, TimeUnit.NANOSECONDS.toMillis(nanos), processed.get());
+                }
+            }
+        } finally {
+            try (Stream<Path> paths = Files.walk(tempDir)) {
+                paths.sorted(Comparator.reverseOrder())
+                    .forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    private static void createTree(Path src, int fileCount) throws IOException {
+        final byte[] content = "key=value\n".getBytes();
+        for (int i = 0; i < fileCount; i++) {
+            final Path dir = src.resolve("dir" + (i / 500)).resolve("sub" + (i / 50 % 10));
+            if (i % 50 == 0) {
+                Files.createDirectories(dir);
+            }
+            Files.write(dir.resolve("file" + i + ".cfg"), content);
+        }
+    }
+
+    /**
+     * The previous comparison, which ignored the attributes from the walk
+     */
+    private static class RestatVisitor extends SimpleFileVisitor<Path> {
+        private final Path src;
+        private final Path dest;
+        private final AtomicLong processed;
+
+        RestatVisitor(Path src, Path dest, AtomicLong processed) {
+            this.src = src;
+            this.dest = dest;
+            this.processed = processed;
+        }
+
+        @Override
+        public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+            // same as SynchronizingFileVisitor
+            Files.createDirectories(dest.resolve(src.relativize(dir)));
+            return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFile(Path srcFile, BasicFileAttributes attrs) throws IOException {
+            final Path destFile = dest.resolve(src.relativize(srcFile));
+            if (Files.notExists(destFile)) {
+                processed.incrementAndGet();
+                return FileVisitResult.CONTINUE;
+            }
+            final FileTime srcTime = Files.getLastModifiedTime(srcFile);
+            final FileTime destTime = Files.getLastModifiedTime(destFile);
+            if (Files.size(srcFile) != Files.size(destFile) || srcTime.toMillis() != destTime.toMillis()) {
+                processed.incrementAndGet();
+            }
+            return FileVisitResult.CONTINUE;
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package me.itzg.helpers.sync;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+import picocli.CommandLine;
+
+class SyncTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void parallelMatchesSerial() throws IOException {
+        final Path src = tempDir.resolve("src");
+        for (int d = 0; d < 5; d++) {
+            final Path dir = Files.createDirectories(src.resolve("dir" + d).resolve("nested" + d));
+            for (int f = 0; f < 20; f++) {
+                Files.write(dir.resolve("file" + f + ".txt"),
+                    Collections.singletonList("content " + d + "/" + f));
+                Files.write(dir.getParent().resolve("top" + f + ".txt"),
+                    Collections.singletonList("top " + d + "/" + f));
+            }
+        }
+        Files.createDirectories(src.resolve("empty"));
+
+        final Path serialDest = tempDir.resolve("serial");
+        final Path parallelDest = tempDir.resolve("parallel");
+
+        assertThat(new CommandLine(new Sync()).execute(src.toString(), serialDest.toString()))
+            .isEqualTo(0);
+        assertThat(new CommandLine(new Sync()).execute("--threads", "4", src.toString(), parallelDest.toString()))
+            .isEqualTo(0);
+
+        final List<String> serialEntries = describe(serialDest);
+        assertThat(serialEntries).hasSize(5 * 2 + 5 * 40 + 1 + 1);
+        assertThat(describe(parallelDest)).isEqualTo(serialEntries);
+    }
+
+    @Test
+    void parallelOnlyCopiesChangedFiles() throws IOException {
+        final Path src = Files.createDirectories(tempDir.resolve("src"));
+        final Path dest = tempDir.resolve("dest");
+        final Path srcFile = Files.write(src.resolve("file.txt"), Collections.singletonList("original"));
+
+        assertThat(new CommandLine(new Sync()).execute("--threads", "2", src.toString(), dest.toString()))
+            .isEqualTo(0);
+        final Path destFile = dest.resolve("file.txt");
+        // modify the destination without changing its size or modification time
+        Files.write(destFile, Collections.singletonList("modified"));
+        Files.setLastModifiedTime(destFile, Files.getLastModifiedTime(srcFile));
+
+        assertThat(new CommandLine(new Sync()).execute("--threads", "2", src.toString(), dest.toString()))
+            .isEqualTo(0);
+
+        assertThat(destFile).hasContent("modified");
+    }
+
+    @Test
+    void stateFileSkipsUnchangedSourcesWithoutComparing() throws IOException {
+        final Path src = Files.createDirectories(tempDir.resolve("src"));
+        final Path dest = tempDir.resolve("dest");
+        final Path stateFile = tempDir.resolve("sync-state.json");
+        final Path unchanged = Files.write(src.resolve("unchanged.txt"), Collections.singletonList("unchanged"));
+        final Path changed = Files.write(src.resolve("changed.txt"), Collections.singletonList("original"));
+
+        assertThat(new CommandLine(new Sync()).execute("--state-file", stateFile.toString(),
+            src.toString(), dest.toString())
+        ).isEqualTo(0);
+        assertThat(stateFile).exists();
+
+        // since the source is unchanged, the destination is not compared and this remains
+        Files.write(dest.resolve("unchanged.txt"), Collections.singletonList("modified in destination"));
+        Files.write(changed, Collections.singletonList("updated"));
+        Files.setLastModifiedTime(changed, FileTime.fromMillis(Files.getLastModifiedTime(changed).toMillis() + 2000));
+
+        assertThat(new CommandLine(new Sync()).execute("--state-file", stateFile.toString(),
+            src.toString(), dest.toString())
+        ).isEqualTo(0);
+
+        assertThat(dest.resolve("unchanged.txt")).hasContent("modified in destination");
+        assertThat(dest.resolve("changed.txt")).hasContent("updated");
+        assertThat(unchanged).hasContent("unchanged");
+    }
+
+    @Test
+    void deleteExtraneousRemovesOnlyPreviouslySyncedFiles() throws IOException {
+        final Path src = Files.createDirectories(tempDir.resolve("src"));
+        final Path dest = Files.createDirectories(tempDir.resolve("dest"));
+        Files.write(src.resolve("kept.txt"), Collections.singletonList("kept"));
+        final Path removed = Files.write(Files.createDirectories(src.resolve("sub")).resolve("removed.txt"),
+            Collections.singletonList("removed"));
+        Files.write(dest.resolve("user.txt"), Collections.singletonList("created by user"));
+
+        assertThat(new CommandLine(new Sync()).execute("--delete-extraneous", src.toString(), dest.toString()))
+            .isEqualTo(0);
+        assertThat(dest.resolve("sub/removed.txt")).exists();
+
+        Files.delete(removed);
+        assertThat(new CommandLine(new Sync()).execute("--delete-extraneous", src.toString(), dest.toString()))
+            .isEqualTo(0);
+
+        assertThat(dest.resolve("sub/removed.txt")).doesNotExist();
+        assertThat(dest.resolve("kept.txt")).exists();
+        assertThat(dest.resolve("user.txt")).exists();
+    }
+
+    @Test
+    @DisabledOnOs(OS.WINDOWS)
+    void deleteExtraneousKeepsFilesWhenSourceCannotBeListed() throws IOException {
+        final Path src = Files.createDirectories(tempDir.resolve("src"));
+        final Path dest = Files.createDirectories(tempDir.resolve("dest"));
+        Files.write(src.resolve("kept.txt"), Collections.singletonList("kept"));
+        final Path subDir = Files.createDirectories(src.resolve("sub"));
+        Files.write(subDir.resolve("unreadable.txt"), Collections.singletonList("unreadable"));
+
+        assertThat(new CommandLine(new Sync()).execute("--delete-extraneous", src.toString(), dest.toString()))
+            .isEqualTo(0);
+        assertThat(dest.resolve("sub/unreadable.txt")).exists();
+
+        final Set<PosixFilePermission> originalPermissions = Files.getPosixFilePermissions(subDir);
+        Files.setPosixFilePermissions(subDir, Collections.emptySet());
+        try {
+            // such as when running as root
+            assumeFalse(Files.isReadable(subDir), "permissions are not enforced");
+
+            assertThat(new CommandLine(new Sync()).execute("--delete-extraneous", src.toString(), dest.toString()))
+                .isEqualTo(0);
+        } finally {
+            Files.setPosixFilePermissions(subDir, originalPermissions);
+        }
+
+        assertThat(dest.resolve("sub/unreadable.txt")).exists();
+
+        // and the manifest still tracks it once the source can be listed again
+        Files.delete(subDir.resolve("unreadable.txt"));
+        assertThat(new CommandLine(new Sync()).execute("--delete-extraneous", src.toString(), dest.toString()))
+            .isEqualTo(0);
+        assertThat(dest.resolve("sub/unreadable.txt")).doesNotExist();
+        assertThat(dest.resolve("kept.txt")).exists();
+    }
+
+    @Test
+    void linksFilesWithLinkMode() throws IOException {
+        final Path src = Files.createDirectories(tempDir.resolve("src"));
+        final Path srcFile = Files.write(src.resolve("mod.jar"), Collections.singletonList("jar content"));
+
+        final Path hardlinked = tempDir.resolve("hardlinked");
+        assertThat(new CommandLine(new Sync()).execute("--link-mode", "hardlink", src.toString(), hardlinked.toString()))
+            .isEqualTo(0);
+        assertThat(Files.isSameFile(srcFile, hardlinked.resolve("mod.jar"))).isTrue();
+
+        final Path symlinked = tempDir.resolve("symlinked");
+        assertThat(new CommandLine(new Sync()).execute("--link-mode", "symlink", src.toString(), symlinked.toString()))
+            .isEqualTo(0);
+        assertThat(symlinked.resolve("mod.jar")).isSymbolicLink();
+        assertThat(symlinked.resolve("mod.jar")).hasContent("jar content");
+
+        // a source replaced by a new file, as deployments do, replaces the link to the previous file
+        final Path newSrcFile = Files.write(tempDir.resolve("mod.jar.new"),
+            Collections.singletonList("updated jar content")
+        );
+        Files.setLastModifiedTime(newSrcFile,
+            FileTime.fromMillis(Files.getLastModifiedTime(srcFile).toMillis() + 2000)
+        );
+        Files.move(newSrcFile, srcFile, StandardCopyOption.REPLACE_EXISTING);
+        assertThat(hardlinked.resolve("mod.jar")).hasContent("jar content");
+
+        assertThat(new CommandLine(new Sync()).execute("--link-mode", "hardlink", src.toString(), hardlinked.toString()))
+            .isEqualTo(0);
+        assertThat(hardlinked.resolve("mod.jar")).hasContent("updated jar content");
+        assertThat(Files.isSameFile(srcFile, hardlinked.resolve("mod.jar"))).isTrue();
+    }
+
+    private static List<String> describe(Path root) throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            return paths
+                .map(path -> {
+                    final String relative = root.relativize(path).toString();
+                    try {
+                        return Files.isDirectory(path) ? relative + "/"
+                            : relative + "=" + new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+                    } catch (IOException e) {
+                        throw new RuntimeException(e);
+                    }
+                })
+                .sorted()
+                .collect(Collectors.toList());
+        }
+    }
+}
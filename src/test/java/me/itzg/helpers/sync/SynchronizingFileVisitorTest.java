@@ -0,0 +1,128 @@
+package me.itzg.helpers.sync;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import me.itzg.helpers.env.Interpolator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SynchronizingFileVisitorTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final Map<String, String> variables = new HashMap<>();
+
+    @Test
+    void skipsInterpolatedFilesWithUnchangedInputs() throws IOException {
+        final Path src = Files.createDirectories(tempDir.resolve("src"));
+        final Path dest = tempDir.resolve("dest");
+        final Path stateFile = tempDir.resolve("state.json");
+        Files.write(src.resolve("server.txt"), Collections.singletonList("value=${CFG_VALUE}"));
+        variables.put("CFG_VALUE", "one");
+
+        sync(src, dest, stateFile);
+        final Path destFile = dest.resolve("server.txt");
+        assertThat(destFile).hasContent("value=one");
+
+        // alter the destination without changing its size or modification time to detect re-processing
+        final FileTime modified = Files.getLastModifiedTime(destFile);
+        Files.write(destFile, Collections.singletonList("value=ONE"));
+        Files.setLastModifiedTime(destFile, modified);
+
+        sync(src, dest, stateFile);
+        assertThat(destFile).hasContent("value=ONE");
+
+        variables.put("CFG_VALUE", "two");
+        sync(src, dest, stateFile);
+        assertThat(destFile).hasContent("value=two");
+    }
+
+    @Test
+    void reprocessesWhenSourceChanges() throws IOException {
+        final Path src = Files.createDirectories(tempDir.resolve("src"));
+        final Path dest = tempDir.resolve("dest");
+        final Path stateFile = tempDir.resolve("state.json");
+        final Path srcFile = Files.write(src.resolve("server.txt"), Collections.singletonList("a=${CFG_VALUE}"));
+        variables.put("CFG_VALUE", "one");
+
+        sync(src, dest, stateFile);
+
+        Files.write(srcFile, Collections.singletonList("b=${CFG_VALUE}"));
+        Files.setLastModifiedTime(srcFile, FileTime.fromMillis(Files.getLastModifiedTime(srcFile).toMillis() + 2000));
+        sync(src, dest, stateFile);
+
+        assertThat(dest.resolve("server.txt")).hasContent("b=one");
+    }
+
+    @Test
+    void reprocessesWhenOptionsChange() throws IOException {
+        final Path src = Files.createDirectories(tempDir.resolve("src"));
+        final Path dest = tempDir.resolve("dest");
+        final Path stateFile = tempDir.resolve("state.json");
+        Files.write(src.resolve("server.txt"), Collections.singletonList("value=${CFG_VALUE}"));
+        Files.write(src.resolve("server.cfg"), Collections.singletonList("value=${CFG_VALUE}"));
+        variables.put("CFG_VALUE", "one");
+
+        sync(src, dest, stateFile, "txt");
+        assertThat(dest.resolve("server.txt")).hasContent("value=one");
+        assertThat(dest.resolve("server.cfg")).hasContent("value=${CFG_VALUE}");
+
+        // alter the destination without changing its size or modification time to detect re-processing
+        final Path destFile = dest.resolve("server.txt");
+        final FileTime modified = Files.getLastModifiedTime(destFile);
+        Files.write(destFile, Collections.singletonList("value=ONE"));
+        Files.setLastModifiedTime(destFile, modified);
+
+        sync(src, dest, stateFile, "txt", "cfg");
+
+        assertThat(dest.resolve("server.cfg")).hasContent("value=one");
+        // with the previous state discarded, it is processed again
+        assertThat(destFile).hasContent("value=one");
+    }
+
+    @Test
+    void interpolationDoesNotWriteThroughLink() throws IOException {
+        final Path src = Files.createDirectories(tempDir.resolve("src"));
+        final Path dest = Files.createDirectories(tempDir.resolve("dest"));
+        final Path srcFile = Files.write(src.resolve("server.txt"), Collections.singletonList("value=${CFG_VALUE}"));
+        // such as from a previous sync with a link mode
+        Files.createLink(dest.resolve("server.txt"), srcFile);
+        variables.put("CFG_VALUE", "one");
+
+        final ReplaceEnvOptions replaceEnv = new ReplaceEnvOptions();
+        replaceEnv.suffixes = Collections.singletonList("txt");
+        new InterpolatingFileProcessor(replaceEnv, new Interpolator(variables::get, "CFG_"), new CopyingFileProcessor())
+            .processFile(srcFile, dest.resolve("server.txt"));
+
+        assertThat(dest.resolve("server.txt")).hasContent("value=one");
+        assertThat(srcFile).hasContent("value=${CFG_VALUE}");
+    }
+
+    private void sync(Path src, Path dest, Path stateFile) throws IOException {
+        sync(src, dest, stateFile, "txt");
+    }
+
+    private void sync(Path src, Path dest, Path stateFile, String... suffixes) throws IOException {
+        final ReplaceEnvOptions replaceEnv = new ReplaceEnvOptions();
+        replaceEnv.suffixes = Arrays.asList(suffixes);
+
+        final SyncState syncState = SyncState.load(stateFile);
+        Files.walkFileTree(src, new SynchronizingFileVisitor(src, dest, false,
+            new InterpolatingFileProcessor(replaceEnv,
+                new Interpolator(variables::get, "CFG_"),
+                new CopyingFileProcessor()
+            ),
+            syncState
+        ));
+        syncState.save();
+    }
+}
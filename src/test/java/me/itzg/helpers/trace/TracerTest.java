@@ -0,0 +1,46 @@
+package me.itzg.helpers.trace;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import java.io.IOException;
+import java.nio.file.Path;
+import me.itzg.helpers.json.ObjectMappers;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TracerTest {
+
+    @AfterEach
+    void tearDown() {
+        Tracer.reset();
+    }
+
+    @Test
+    void writesCompleteEvents(@TempDir Path tempDir) throws IOException {
+        Tracer.enable();
+
+        try (Tracer.Span span = Tracer.span("test phase")) {
+            span.arg("files", 3);
+        }
+
+        final Path traceFile = tempDir.resolve("trace.json");
+        Tracer.write(traceFile);
+
+        final JsonNode trace = ObjectMappers.defaultMapper().readTree(traceFile.toFile());
+        assertThat(trace.path("traceEvents").isArray()).isTrue();
+
+        JsonNode found = null;
+        for (final JsonNode event : trace.path("traceEvents")) {
+            if (event.path("name").asText().equals("test phase")) {
+                found = event;
+            }
+        }
+        assertThat(found).isNotNull();
+        assertThat(found.path("ph").asText()).isEqualTo("X");
+        assertThat(found.path("cat").asText()).isEqualTo("phase");
+        assertThat(found.path("dur").asLong()).isGreaterThanOrEqualTo(0);
+        assertThat(found.path("args").path("files").asInt()).isEqualTo(3);
+    }
+}